@@ -0,0 +1,187 @@
+package br.com.totusttus.testes.jmh;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import br.com.totusttus.testes.benchmark.StreamsBenchmark;
+import br.com.totusttus.testes.model.Curso;
+import br.com.totusttus.testes.stream.ArrayDeCursos;
+import br.com.totusttus.testes.stream.BuscaParalela;
+
+/**
+ * Os cenários do StreamsBenchmark em JMH: sequencial, paralelo e laço para
+ * filter/map/toList, filter/mapToInt/sum (e o map com boxing), findAny e
+ * toMap.
+ *
+ * Cada benchmark roda em JVMs próprias (@Fork), então o perfil que o JIT
+ * monta para um cenário não contamina os outros. Com o -prof gc, a alocação é
+ * somada de todas as threads, inclusive as do ForkJoinPool, o que o harness
+ * do pacote benchmark não consegue medir nos cenários paralelos.
+ *
+ * <pre>
+ * mvn -B package
+ * java -jar jmh/target/benchmarks.jar StreamsJmh -prof gc
+ * java -jar jmh/target/benchmarks.jar StreamsJmh -p tamanho=1000000 -prof gc
+ * </pre>
+ *
+ * O resultado de uma execução, com as condições em que foi medido, está em
+ * jmh/resultados/StreamsJmh.txt.
+ *
+ * @author thiag
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class StreamsJmh {
+
+	@Param({ "10", "1000", "100000", "1000000", "10000000" })
+	private int tamanho;
+
+	private List<Curso> cursos;
+	private ArrayDeCursos array;
+	private BuscaParalela busca;
+
+	@Setup
+	public void prepara() {
+		cursos = StreamsBenchmark.geraCursos(tamanho);
+		array = ArrayDeCursos.of(cursos);
+		busca = new BuscaParalela();
+	}
+
+	/*
+	 * filter -> map -> Collectors.toList
+	 */
+
+	@Benchmark
+	public List<String> filtraNomesSequencial() {
+		return cursos.stream().filter(c -> c.getAlunos() > 100).map(Curso::getNome).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<String> filtraNomesParalelo() {
+		return cursos.parallelStream().filter(c -> c.getAlunos() > 100).map(Curso::getNome)
+				.collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<String> filtraNomesLaco() {
+		List<String> nomes = new ArrayList<>();
+		for (Curso c : cursos)
+			if (c.getAlunos() > 100)
+				nomes.add(c.getNome());
+		return nomes;
+	}
+
+	/*
+	 * filter -> mapToInt -> sum, comparado com o map com boxing
+	 */
+
+	@Benchmark
+	public int somaMapToIntSequencial() {
+		return cursos.stream().filter(c -> c.getAlunos() > 100).mapToInt(c -> c.getAlunos()).sum();
+	}
+
+	@Benchmark
+	public int somaMapToIntParalelo() {
+		return cursos.parallelStream().filter(c -> c.getAlunos() > 100).mapToInt(c -> c.getAlunos()).sum();
+	}
+
+	@Benchmark
+	public int somaMapToIntParaleloArrayDeCursos() {
+		return array.parallelStream().filter(c -> c.getAlunos() > 100).mapToInt(c -> c.getAlunos()).sum();
+	}
+
+	@Benchmark
+	public int somaMapSequencial() {
+		return cursos.stream().filter(c -> c.getAlunos() > 100).map(c -> c.getAlunos()).reduce(0, Integer::sum);
+	}
+
+	@Benchmark
+	public int somaMapParalelo() {
+		return cursos.parallelStream().filter(c -> c.getAlunos() > 100).map(c -> c.getAlunos()).reduce(0,
+				Integer::sum);
+	}
+
+	@Benchmark
+	public void somaLaco(Blackhole blackhole) {
+		int soma = 0;
+		for (Curso c : cursos)
+			if (c.getAlunos() > 100)
+				soma += c.getAlunos();
+		blackhole.consume(soma);
+	}
+
+	/*
+	 * findAny
+	 */
+
+	@Benchmark
+	public Optional<Curso> findAnySequencial() {
+		return cursos.stream().filter(c -> c.getAlunos() > 100).findAny();
+	}
+
+	@Benchmark
+	public Optional<Curso> findAnyParalelo() {
+		return cursos.parallelStream().filter(c -> c.getAlunos() > 100).findAny();
+	}
+
+	@Benchmark
+	public Optional<Curso> findAnyBuscaParalela() {
+		return busca.findAny(cursos, c -> c.getAlunos() > 100);
+	}
+
+	@Benchmark
+	public Optional<Curso> findAnyLaco() {
+		for (Curso c : cursos)
+			if (c.getAlunos() > 100)
+				return Optional.of(c);
+		return Optional.empty();
+	}
+
+	/*
+	 * Collectors.toMap
+	 */
+
+	@Benchmark
+	public Map<String, Integer> toMapSequencial() {
+		return cursos.stream().filter(c -> c.getAlunos() > 100)
+				.collect(Collectors.toMap(c -> c.getNome(), c -> c.getAlunos()));
+	}
+
+	@Benchmark
+	public Map<String, Integer> toMapParalelo() {
+		return cursos.parallelStream().filter(c -> c.getAlunos() > 100)
+				.collect(Collectors.toMap(c -> c.getNome(), c -> c.getAlunos()));
+	}
+
+	@Benchmark
+	public Map<String, Integer> toMapLaco() {
+		Map<String, Integer> mapa = new HashMap<>();
+		for (Curso c : cursos)
+			if (c.getAlunos() > 100)
+				mapa.put(c.getNome(), c.getAlunos());
+		return mapa;
+	}
+}
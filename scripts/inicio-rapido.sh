@@ -0,0 +1,70 @@
+#!/bin/sh
+#
+# Prepara o modo de início rápido dos main dos testes (StreamsTeste,
+# DatasTeste e DefaultMethodsTeste):
+#
+#   1. compila as classes em um jar (o AppCDS só arquiva classes de jars);
+#   2. grava o snapshot dos cursos, lido no lugar de montar a lista
+#      (veja o SnapshotDeCursos);
+#   3. faz uma execução de treino do InicioRapido, que roda os três testes,
+#      e grava o arquivo CDS com todas as classes que eles carregaram. A
+#      partir do Java 16 entram também as classes geradas para os lambdas e
+#      method references.
+#
+# Uso: scripts/inicio-rapido.sh [diretório de saída]
+#
+# Depois, para executar um teste:
+#
+#   java -Xshare:on -XX:SharedArchiveFile=build/inicio-rapido/app.jsa \
+#        -Dcursos.snapshot=build/inicio-rapido/cursos.bin \
+#        -cp build/inicio-rapido/app.jar br.com.totusttus.testes.InicioRapido streams
+#
+# e para medir o tempo de início com e sem o arquivo:
+#
+#   java -cp build/inicio-rapido/app.jar br.com.totusttus.testes.benchmark.TempoDeInicio \
+#        build/inicio-rapido/app.jar build/inicio-rapido/app.jsa build/inicio-rapido/cursos.bin
+#
+# O arquivo CDS só vale para a mesma JVM que o gerou e para o mesmo jar:
+# recompilou ou trocou de JDK, rode o script de novo.
+
+set -e
+cd "$(dirname "$0")/.."
+
+SAIDA=${1:-build/inicio-rapido}
+BIN=${JAVA_HOME:+$JAVA_HOME/bin/}
+PRINCIPAL=br.com.totusttus.testes.InicioRapido
+
+rm -rf "$SAIDA"
+mkdir -p "$SAIDA/classes"
+find src -name '*.java' > "$SAIDA/fontes.txt"
+"${BIN}javac" -nowarn -encoding ISO-8859-1 -d "$SAIDA/classes" @"$SAIDA/fontes.txt"
+"${BIN}jar" cf "$SAIDA/app.jar" -C "$SAIDA/classes" .
+
+# Grava o snapshot antes do treino, para que o treino carregue (e arquive)
+# as classes que leem o snapshot, e não as que o gravam.
+"${BIN}java" -Dcursos.snapshot="$SAIDA/cursos.bin" -cp "$SAIDA/app.jar" $PRINCIPAL streams > /dev/null
+
+# "1.8.0_392" -> 8, "17.0.9" -> 17
+VERSAO=$("${BIN}java" -version 2>&1 | sed -n 's/.*version "\([0-9]*\)\.\([0-9]*\).*/\1 \2/p; s/.*version "\([0-9]*\)".*/\1 0/p' \
+	| head -n 1 | awk '{ print ($1 == 1) ? $2 : $1 }')
+
+TREINO="-Dcursos.snapshot=$SAIDA/cursos.bin -cp $SAIDA/app.jar $PRINCIPAL"
+
+if [ "$VERSAO" -ge 13 ]; then
+	# Arquivo dinâmico: grava, na saída da JVM, tudo o que foi carregado além
+	# do arquivo CDS do próprio JDK.
+	"${BIN}java" -XX:ArchiveClassesAtExit="$SAIDA/app.jsa" $TREINO > /dev/null
+elif [ "$VERSAO" -ge 10 ]; then
+	# Java 10 a 12: lista as classes carregadas no treino e gera um arquivo
+	# estático com elas.
+	APPCDS=
+	[ "$VERSAO" -eq 10 ] && APPCDS=-XX:+UseAppCDS
+	"${BIN}java" $APPCDS -Xshare:off -XX:DumpLoadedClassList="$SAIDA/classes.lst" $TREINO > /dev/null
+	"${BIN}java" $APPCDS -Xshare:dump -XX:SharedClassListFile="$SAIDA/classes.lst" \
+		-XX:SharedArchiveFile="$SAIDA/app.jsa" -cp "$SAIDA/app.jar" > /dev/null
+else
+	echo "O AppCDS do OpenJDK precisa do Java 10 ou mais novo; gerado apenas o snapshot dos cursos." >&2
+	exit 0
+fi
+
+echo "Gerados $SAIDA/app.jar, $SAIDA/app.jsa e $SAIDA/cursos.bin"
@@ -0,0 +1,68 @@
+package br.com.totusttus.testes;
+
+import br.com.totusttus.testes.util.DicionarioDeNomes;
+
+/**
+ * Verificações das classes que prometem funcionar com várias threads ao mesmo
+ * tempo. Cada verificação repete o cenário várias vezes, porque uma corrida só
+ * aparece quando as threads se intercalam no ponto errado, e lança
+ * AssertionError na primeira falha.
+ *
+ * <pre>
+ * java br.com.totusttus.testes.ConcorrenciaTeste
+ * </pre>
+ *
+ * @author thiag
+ *
+ */
+public class ConcorrenciaTeste {
+
+	public static void main(String[] args) throws InterruptedException {
+		ordemAlfabeticaEnquantoCadastra();
+		System.out.println("ok");
+	}
+
+	/*
+	 * O ordemAlfabetica() lê o tamanho publicado pelo cadastra, que é escrito
+	 * antes de o id entrar na tabela de busca. Ele precisa funcionar com os ids
+	 * que ainda não aparecem no idSeExistir.
+	 */
+	private static void ordemAlfabeticaEnquantoCadastra() throws InterruptedException {
+		for (int rodada = 0; rodada < 20; rodada++) {
+			DicionarioDeNomes dicionario = new DicionarioDeNomes();
+			Thread[] cadastrando = new Thread[Math.max(2, Runtime.getRuntime().availableProcessors() - 1)];
+			for (int t = 0; t < cadastrando.length; t++) {
+				int inicio = t;
+				cadastrando[t] = new Thread(() -> {
+					for (int i = inicio; i < 100_000; i += cadastrando.length)
+						dicionario.id("Curso " + (i * 7919 % 100_000));
+				});
+				cadastrando[t].start();
+			}
+
+			boolean algumaViva = true;
+			while (algumaViva) {
+				verificaOrdem(dicionario, dicionario.ordemAlfabetica());
+				algumaViva = false;
+				for (Thread thread : cadastrando)
+					algumaViva |= thread.isAlive();
+			}
+			for (Thread thread : cadastrando)
+				thread.join();
+			verificaOrdem(dicionario, dicionario.ordemAlfabetica());
+		}
+	}
+
+	private static void verificaOrdem(DicionarioDeNomes dicionario, int[] ordem) {
+		String[] porPosicao = new String[ordem.length];
+		for (int id = 0; id < ordem.length; id++) {
+			if (porPosicao[ordem[id]] != null)
+				throw new AssertionError("Posição repetida: " + ordem[id]);
+			porPosicao[ordem[id]] = dicionario.nome(id);
+		}
+		for (int posicao = 1; posicao < porPosicao.length; posicao++)
+			if (porPosicao[posicao - 1].compareTo(porPosicao[posicao]) >= 0)
+				throw new AssertionError("Fora de ordem na posição " + posicao + ": " + porPosicao[posicao - 1]
+						+ " antes de " + porPosicao[posicao]);
+	}
+}
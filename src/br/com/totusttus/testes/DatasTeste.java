@@ -1,5 +1,6 @@
 package br.com.totusttus.testes;
 
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -8,6 +9,9 @@ import java.time.Period;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 
+import br.com.totusttus.testes.util.FormatadorDeDatas;
+import br.com.totusttus.testes.util.RelogioLocal;
+
 public class DatasTeste {
 
 	public static void main(String[] args) {
@@ -15,8 +19,13 @@ public class DatasTeste {
 		/*
 		 * Para representar uma data em java agora eu posso utilizar a classe LocalDate,
 		 * presente no pacote java.time.
+		 *
+		 * O now() também aceita um Clock. Passamos o do RelogioLocal, que dá a
+		 * mesma data sem carregar o banco de fusos: sozinho, ele levaria mais
+		 * tempo que o resto deste main até a primeira linha da saída.
 		 */
-		LocalDate hoje = LocalDate.now();
+		Clock relogio = RelogioLocal.relogio();
+		LocalDate hoje = LocalDate.now(relogio);
 		System.out.println(hoje);
 
 		/*
@@ -25,7 +34,7 @@ public class DatasTeste {
 		LocalDate proximaCopa = LocalDate.of(2022, Month.JUNE, 5);
 
 		/*
-		 * Para saber a diferena entre duas datas podemos utilizar seu mtodo between.
+		 * Para saber a diferença entre duas datas podemos utilizar seu método between.
 		 * 
 		 * Pesquise a respeito da classe Duration caso queira trabalhar com intervalo de horas.
 		 */
@@ -37,10 +46,10 @@ public class DatasTeste {
 		 * Incrementando e decrementando datas
 		 * 
 		 * 
-		 * Outra coisa bem comum em nosso dia a dia  quando queremos saber o dia
+		 * Outra coisa bem comum em nosso dia a dia é quando queremos saber o dia
 		 * anterior, ou posterior a uma data. Por exemplo como saber qual a data de
-		 * amanh? H diversos mtodos pra nos ajudar com isso, vamos encontrar na API
-		 * diversos mtodos minus ou plus para as diferentes unidades de tempo.
+		 * amanhã? Há diversos métodos pra nos ajudar com isso, vamos encontrar na API
+		 * diversos métodos minus ou plus para as diferentes unidades de tempo.
 		 */
 		System.out.println(hoje.minusYears(1));
 		System.out.println(hoje.minusMonths(4));
@@ -51,20 +60,20 @@ public class DatasTeste {
 		System.out.println(hoje.plusDays(2));
 
 		/*
-		 * Uma API imutvel
+		 * Uma API imutável
 		 * 
-		 * Sabendo disso podemos escrever o seguinte cdigo para incrementar 4 anos na
-		 * data atual, para saber quando ser a prxima Olimpada, por exemplo.
+		 * Sabendo disso podemos escrever o seguinte código para incrementar 4 anos na
+		 * data atual, para saber quando será a próxima Olimpíada, por exemplo.
 		 */
 		proximaCopa.plusYears(6);
 		System.out.println(proximaCopa);
 
 		/*
-		 * Mas repare que a sada desse cdigo ainda ser a data atual. Porque isso
-		 * ocorreu? Da mesma forma que as novas API's, como o Stream, os mtodos da API
-		 * de datas sempre vo retornar uma nova instancia da sua data.
+		 * Mas repare que a saída desse código ainda será a data atual. Porque isso
+		 * ocorreu? Da mesma forma que as novas API's, como o Stream, os métodos da API
+		 * de datas sempre vão retornar uma nova instancia da sua data.
 		 * 
-		 * Ou seja, toda a API de datas  imutvel. Ela nunca vai alterar a data
+		 * Ou seja, toda a API de datas é imutável. Ela nunca vai alterar a data
 		 * original.
 		 * 
 		 * Portanto precisamos fazer algo como:
@@ -77,8 +86,8 @@ public class DatasTeste {
 		 * Formatando suas datas
 		 * 
 		 * Para formatar nossas datas podemos utilizar o DateTimeFormatter. Existem
-		 * diversos j prontos, mas h ainda a alternativa de voc criar o seu prprio
-		 * formatador no padro j conhecido.
+		 * diversos já prontos, mas há ainda a alternativa de você criar o seu próprio
+		 * formatador no padrão já conhecido.
 		 * 
 		 */
 
@@ -87,32 +96,43 @@ public class DatasTeste {
 		String valorFormatado = proximaCopa.format(formatador);
 		System.out.println(valorFormatado);
 
+		/*
+		 * Criar o formatador tem um custo: o padrão é interpretado a cada
+		 * ofPattern. Como o DateTimeFormatter é imutável, podemos reaproveitá-lo, e
+		 * o FormatadorDeDatas guarda um por padrão.
+		 *
+		 * Para o formato fixo dd/MM/yyyy ele ainda tem um caminho rápido, que
+		 * escreve os dígitos direto em um StringBuilder (ou char[], ou ByteBuffer).
+		 */
+		System.out.println(proximaCopa.format(FormatadorDeDatas.formatador("dd/MM/yyyy")));
+		System.out.println(FormatadorDeDatas.formataData(proximaCopa, new StringBuilder()));
+
 		/*
 		 * Trabalhando com medida de tempo
 		 * 
-		 * Por enquanto s estamos trabalhando com datas, fazendo formataes e
-		 * manipulando seu resultado. Mas  muito comum tambm precisar trabalhar com
+		 * Por enquanto só estamos trabalhando com datas, fazendo formatações e
+		 * manipulando seu resultado. Mas é muito comum também precisar trabalhar com
 		 * horas, minutos e segundos. Ou seja, trabalhar com uma medida de data com
 		 * tempo.
 		 * 
 		 */
-		LocalDateTime agora = LocalDateTime.now();
+		LocalDateTime agora = LocalDateTime.now(relogio);
 
 		/*
 		 * Podemos criar um novo formatador para mostrar as horas, minutos e segundos
-		 * para conseguirmos ver o resultado j formatado:
+		 * para conseguirmos ver o resultado já formatado:
 		 */
 
 		DateTimeFormatter formatadorComHoras = DateTimeFormatter.ofPattern("dd/MM/yyyy hh:mm:ss");
-		System.out.println(LocalDateTime.now().format(formatadorComHoras));
+		System.out.println(LocalDateTime.now(relogio).format(formatadorComHoras));
 
 		/*
-		 * Lidando com modelos mais especficos
+		 * Lidando com modelos mais específicos
 		 * 
-		 *  muito comum ignorarmos valores quando precisamos apenas de algumas medidas
-		 * de tempo, como por exemplo ano e ms. Nessa caso no lugar de criarmos um
+		 * É muito comum ignorarmos valores quando precisamos apenas de algumas medidas
+		 * de tempo, como por exemplo ano e mês. Nessa caso no lugar de criarmos um
 		 * LocalDate ou algo assim e ignorar o seu valor de dia, podemos trabalhar com
-		 * os modelos mais especficos da nova API.
+		 * os modelos mais específicos da nova API.
 		 */
 
 		YearMonth anoEMes = YearMonth.of(2020, Month.AUGUST);
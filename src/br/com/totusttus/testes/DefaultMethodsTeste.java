@@ -6,9 +6,14 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import br.com.totusttus.testes.util.DicionarioDeNomes;
+import br.com.totusttus.testes.util.ExecutorDeTarefas;
+import br.com.totusttus.testes.util.OrdenacaoPorTamanho;
 
 /**
- * Pesquise os novos mtodos default adicionados na interface List:
+ * Pesquise os novos métodos default adicionados na interface List:
  * http://docs.oracle.com/javase/8/docs/api/java/util/List.html
  * 
  * @author thiag
@@ -16,8 +21,8 @@ import java.util.function.Function;
  */
 public class DefaultMethodsTeste {
 
-	List<String> lista = Arrays.asList("Biblioteca Catlica", "Cdigo de Direito Cannico",
-			"Catecismo da Igreja Catlica");
+	List<String> lista = Arrays.asList("Biblioteca Católica", "Código de Direito Canônico",
+			"Catecismo da Igreja Católica");
 
 	public DefaultMethodsTeste() {
 
@@ -30,6 +35,7 @@ public class DefaultMethodsTeste {
 		utilizandoThreadComLambda();
 		utilizandoFunction();
 		utilizandoMethodReference();
+		utilizandoDicionarioDeNomes();
 
 	}
 
@@ -42,19 +48,30 @@ public class DefaultMethodsTeste {
 		lista.sort(Comparator.comparing(String::length));
 		
 		/*
-		 * So equivalentes nesse caso! 
+		 * São equivalentes nesse caso! 
 		 * 
-		 * Sim,  estranho ver String::length e dizer que  equivalente 
-		 * a um lambda, pois no h nem a -> e nem os parnteses
-		 *  de invocao ao mtodo. 
+		 * Sim, é estranho ver String::length e dizer que é equivalente 
+		 * a um lambda, pois não há nem a -> e nem os parênteses
+		 *  de invocação ao método. 
 		 *  
-		 *  Por isso  chamado de method reference.
+		 *  Por isso é chamado de method reference.
 		 *  
-		 *  Ambas geram a mesma funo: dada um String, invoca o 
-		 *  mtodo length e devolve este Integer. As duas sero 
+		 *  Ambas geram a mesma função: dada um String, invoca o 
+		 *  método length e devolve este Integer. As duas serão 
 		 *  avaliadas/resolvidas (evaluated) para Functions equivalentes.
 		 */
-		
+
+		/*
+		 * Repare que, como a Function devolve um Integer, o comparing faz
+		 * autoboxing do tamanho a cada comparação. O comparingInt recebe
+		 * uma ToIntFunction e evita isso.
+		 *
+		 * Para listas grandes, o OrdenacaoPorTamanho calcula cada tamanho
+		 * uma única vez e ordena sem comparações (counting sort).
+		 */
+		lista.sort(Comparator.comparingInt(String::length));
+		OrdenacaoPorTamanho.ordena(lista);
+
 		/*
 		 * Outro exemplo com method reference:
 		 */
@@ -62,14 +79,14 @@ public class DefaultMethodsTeste {
 		
 		/*
 		 * Novamente pode parecer estranho. 
-		 * No h os parnteses, no h a flechinha (->), nem os 
-		 * argumentos que o Consumer recebe. Fica tudo implcito. 
+		 * Não há os parênteses, não há a flechinha (->), nem os 
+		 * argumentos que o Consumer recebe. Fica tudo implícito. 
 		 * 
-		 * Dessa vez, o argumento recebido (isso , cada palavra dentro 
-		 * da lista palavras), no ser a varivel onde o mtodo ser invocado. 
+		 * Dessa vez, o argumento recebido (isso é, cada palavra dentro 
+		 * da lista palavras), não será a variável onde o método será invocado. 
 		 * 
 		 * O Java 8 consegue perceber que tem um println que recebe objetos e 
-		 * invocar esse mtodo, passando a String da vez.
+		 * invocará esse método, passando a String da vez.
 		 */
 	}
 
@@ -77,36 +94,36 @@ public class DefaultMethodsTeste {
 	private void utilizandoFunction() {
 		
 		/*
-		 * H vrios mtodos auxiliares no Java 8. 
-		 * At em interfaces como o Comparator. 
-		 * E voc pode ter um mtodo default que  esttico. 
-		 * Esse  o caso do Comparator.comparing, que  
-		 * uma fbrica, uma factory, de Comparator. 
-		 * Passamos o lambda para dizer qual ser o 
-		 * critrio de comparao desse Comparator
+		 * Há vários métodos auxiliares no Java 8. 
+		 * Até em interfaces como o Comparator. 
+		 * E você pode ter um método default que é estático. 
+		 * Esse é o caso do Comparator.comparing, que é 
+		 * uma fábrica, uma factory, de Comparator. 
+		 * Passamos o lambda para dizer qual será o 
+		 * critério de comparação desse Comparator
 		 * 
-		 * Veja a expressividade da linha, est escrito algo 
+		 * Veja a expressividade da linha, está escrito algo 
 		 * como "palavras ordene comparando s.length".
 		 * 
 		 * Dizemos que Comparator.comparing recebe um lambda, mas 
-		 * essa  uma expresso do dia a dia. 
-		 * Na verdade, ela recebe uma instncia de uma interface 
-		 * funcional. No caso  a interface Function que tem apenas 
-		 * um mtodo, o apply.
+		 * essa é uma expressão do dia a dia. 
+		 * Na verdade, ela recebe uma instância de uma interface 
+		 * funcional. No caso é a interface Function que tem apenas 
+		 * um método, o apply.
 		 */
 		lista.sort(Comparator.comparing(s -> s.length()));
 		
 		
 		/*
 		 * A interface Function vai nos ajudar a passar um objeto para o 
-		 * Comparator.comparing que diz qual ser a informao que queremos 
-		 * usar como critrio de comparao. Ela recebe dois tipos genricos. 
+		 * Comparator.comparing que diz qual será a informação que queremos 
+		 * usar como critério de comparação. Ela recebe dois tipos genéricos. 
 		 * 
-		 * No nosso caso, recebe uma String, que  o tipo que queremos comparar e 
-		 * um Integer, que  o que queremos extrair dessa string para usar como 
-		 * critrio.
+		 * No nosso caso, recebe uma String, que é o tipo que queremos comparar e 
+		 * um Integer, que é o que queremos extrair dessa string para usar como 
+		 * critério.
 		 * 
-		 * Antes do Java 8, deveramos escrever algo como:
+		 * Antes do Java 8, deveríamos escrever algo como:
 		 */
 		Function<String, Integer> funcao = new Function<String, Integer>() {
 			@Override
@@ -118,6 +135,27 @@ public class DefaultMethodsTeste {
 		
 		Comparator<String> comparador = Comparator.comparing(funcao);
 		lista.sort(comparador);
+
+		/*
+		 * A Function<String, Integer> devolve um Integer, então cada chamada faz
+		 * boxing do int. Para valores primitivos existem as versões
+		 * especializadas, como ToIntFunction, usada pelo Comparator.comparingInt:
+		 */
+		ToIntFunction<String> tamanho = String::length;
+		lista.sort(Comparator.comparingInt(tamanho));
+	}
+
+	private void utilizandoDicionarioDeNomes() {
+
+		/*
+		 * Quando os mesmos nomes se repetem muito, o DicionarioDeNomes troca cada
+		 * String por um id int. Com a ordem alfabética calculada uma vez,
+		 * ordenar pelos nomes é ordenar ints, sem Comparator e sem boxing:
+		 */
+		DicionarioDeNomes dicionario = new DicionarioDeNomes();
+		int[] ids = lista.stream().mapToInt(dicionario::id).toArray();
+		for (int id : dicionario.ordenaPorNome(ids))
+			System.out.println(dicionario.nome(id));
 	}
 
 	private void utilizandoThreadComLambda() {
@@ -136,16 +174,25 @@ public class DefaultMethodsTeste {
 		}).start();
 		
 		/*
-		 * Aps o Lambda
+		 * Após o Lambda
 		 */
 		
 		new Thread(() -> System.out.println("Executando um Runnable via Lambda")).start();
-		
+
+		/*
+		 * Criar uma Thread nova para cada tarefa não escala quando são milhares de
+		 * tarefas. O mesmo lambda pode ser entregue a um ExecutorDeTarefas, que usa
+		 * virtual threads quando a JVM tem suporte, ou um pool limitado de threads.
+		 */
+		try (ExecutorDeTarefas executor = ExecutorDeTarefas.novo()) {
+			executor.executa(() -> System.out.println("Executando um Runnable via ExecutorDeTarefas"));
+		}
+
 	}
 
 	private void utilizandoComparatorComLambda() {
 		
-		// Antes do Lamba, precisvamos escrever algo assim
+		// Antes do Lamba, precisávamos escrever algo assim
 		lista.sort(new Comparator<String>() {
 		    public int compare(String s1, String s2) {
 		    	return Integer.compare(s1.length(), s2.length());
@@ -156,7 +203,7 @@ public class DefaultMethodsTeste {
 		 * Com o Lambda, escrevemos bem menos.
 		 * 
 		 * O return pode ser eliminado que o compilador vai inferir 
-		 * que deve ser retornado o valor que o prprio compare 
+		 * que deve ser retornado o valor que o próprio compare 
 		 * do Integer devolver.
 		 * 
 		 * A leitura ficaria assim:
@@ -168,33 +215,33 @@ public class DefaultMethodsTeste {
 	private void iterandoComLambda() {
 		
 		/*
-		 * Em vez de escrever a classe annima, deixamos de escrever 
+		 * Em vez de escrever a classe anônima, deixamos de escrever 
 		 * alguns itens que podem ser inferidos.
 		 * 
-		 * Como a interface Consumer s tem um mtodo, no precisamos escrever o 
-		 * nome do mtodo. 
-		 * Tambm no daremos new. 
+		 * Como a interface Consumer só tem um método, não precisamos escrever o 
+		 * nome do método. 
+		 * Também não daremos new. 
 		 * Apenas declararemos os argumentos e o bloco a ser executado, 
 		 * separados por ->
 		 * 
-		 *   uma forma bem mais sucinta de escrever! 
+		 *  É uma forma bem mais sucinta de escrever! 
 		 *  Essa sintaxe funciona para qualquer interface que tenha apenas 
-		 *  um mtodo abstrato, e  por esse motivo que nem precisamos falar 
-		 *  que estamos implementando o mtodo accept, j que no h 
+		 *  um método abstrato, e é por esse motivo que nem precisamos falar 
+		 *  que estamos implementando o método accept, já que não há 
 		 *  outra possibilidade.
 		 *  
-		 *  Uma interface que possui apenas um mtodo abstrato  agora conhecida 
+		 *  Uma interface que possui apenas um método abstrato é agora conhecida 
 		 *  como interface funcional e pode ser utilizada dessa forma.
 		 *  
 		 *  
-		 *  REFORANDO:
-		 *  Uma interface funcional deve ter 1 nico mtodo abstrato. 
-		 *  Alm desse mtodo ela pode ter outros mtodos, contanto que sejam default ou 'static'.
-		 *  Essa estrutura  fundamental, pois assim o compilador sabe exatamente que o corpo da 
-		 *  expresso lambda que escrevemos  a implementao de seu nico mtodo abstrato
+		 *  REFORÇANDO:
+		 *  Uma interface funcional deve ter 1 único método abstrato. 
+		 *  Além desse método ela pode ter outros métodos, contanto que sejam default ou 'static'.
+		 *  Essa estrutura é fundamental, pois assim o compilador sabe exatamente que o corpo da 
+		 *  expressão lambda que escrevemos é a implementação de seu único método abstrato
 		 *  
-		 *  NOTA: com o Lambda, no precisamos inferir o tipo da varivel que estamos
-		 *  recebendo via mtodo
+		 *  NOTA: com o Lambda, não precisamos inferir o tipo da variável que estamos
+		 *  recebendo via método
 		 */
 		// Podemos usar o Lambda dessa maneira
 		lista.forEach((String s) -> {
@@ -210,7 +257,7 @@ public class DefaultMethodsTeste {
 		lista.forEach(s -> System.out.println(s));
 		
 		/*
-		 * As linhas acima nos evitam de criarmos cdigos como esse:
+		 * As linhas acima nos evitam de criarmos códigos como esse:
 		 */
 		lista.forEach(new Consumer<String>() {
 		    public void accept(String s) {
@@ -223,13 +270,13 @@ public class DefaultMethodsTeste {
 	private void iterandoListaComJava8() {
 
 		/*
-		 * Vamos a um outro mtodo default adicionado as colees do Java: o forEach na
-		 * interface Iterable. Como Iterable  me de Collection, temos acesso a esse
-		 * mtodo na nossa lista.
+		 * Vamos a um outro método default adicionado as coleções do Java: o forEach na
+		 * interface Iterable. Como Iterable é mãe de Collection, temos acesso a esse
+		 * método na nossa lista.
 		 * 
-		 * Se voc abrir o JavaDoc ou utilizar o auto complete do Eclipse, ver que
-		 * List.forEach recebe um Consumer, que  uma das muitas interfaces do novo
-		 * pacote java.util.functions. Ento vamos criar um consumidor de String,
+		 * Se você abrir o JavaDoc ou utilizar o auto complete do Eclipse, verá que
+		 * List.forEach recebe um Consumer, que é uma das muitas interfaces do novo
+		 * pacote java.util.functions. Então vamos criar um consumidor de String,
 		 * chamado ConsumidorDeString.
 		 */
 		Consumer<String> consumidor = new ConsumidorDeString();
@@ -240,22 +287,22 @@ public class DefaultMethodsTeste {
 		/*
 		 * Como fazemos hoje com o Java 8 para implementar um Comparator
 		 * 
-		 * Esse mtodo sort() no existia antes na interface List, nem em suas mes
+		 * Esse método sort() não existia antes na interface List, nem em suas mães
 		 * (Collection e Iterable).
 		 * 
-		 * O Java 8 optou por criar um novo recurso que possibilitasse adicionar mtodos
-		 * em interfaces e implement-los ali mesmo! Se voc abrir o cdigo fonte da
-		 * interface List, ver que esse mtodo tem um corpo.
+		 * O Java 8 optou por criar um novo recurso que possibilitasse adicionar métodos
+		 * em interfaces e implementá-los ali mesmo! Se você abrir o código fonte da
+		 * interface List, verá que esse método tem um corpo.
 		 * 
-		 *  um default method! Um mtodo de interface que voc no precisa implementar
-		 * na sua classe se no quiser, pois voc ter j essa implementao default.
+		 * É um default method! Um método de interface que você não precisa implementar
+		 * na sua classe se não quiser, pois você terá já essa implementação default.
 		 * 
 		 * Default methods foi uma forma que o Java encontrou para evoluir interfaces
-		 * antigas, sem gerar incompatibilidades. No  uma novidade da linguagem:
-		 * Scala, C# e outras possuem recursos similares e at mais poderosos. E repare
-		 * que  diferente de uma classe abstrata: em uma interface voc no pode ter
-		 * atributos de instncia, apenas esses mtodos que delegam chamadas ou
-		 * trabalham com os prprios mtodos da interface.
+		 * antigas, sem gerar incompatibilidades. Não é uma novidade da linguagem:
+		 * Scala, C# e outras possuem recursos similares e até mais poderosos. E repare
+		 * que é diferente de uma classe abstrata: em uma interface você não pode ter
+		 * atributos de instância, apenas esses métodos que delegam chamadas ou
+		 * trabalham com os próprios métodos da interface.
 		 */
 		ComparadorDeStringPorTamanho comparador = new ComparadorDeStringPorTamanho();
 		lista.sort(comparador);
@@ -302,7 +349,7 @@ class ConsumidorDeString implements Consumer<String> {
 class ComparadorDeStringPorTamanho implements Comparator<String> {
 
 	/*
-	 * Verifica qual string  maior que a outra
+	 * Verifica qual string é maior que a outra
 	 */
 	public int compare(String s1, String s2) {
 		if (s1.length() < s2.length())
@@ -0,0 +1,45 @@
+package br.com.totusttus.testes;
+
+/**
+ * Um único ponto de entrada para os main dos testes, usado pelas ferramentas
+ * de linha de comando:
+ *
+ * <pre>
+ * java -cp app.jar br.com.totusttus.testes.InicioRapido streams|datas|default
+ * </pre>
+ *
+ * Sem argumentos, executa os três. É assim que o scripts/inicio-rapido.sh faz
+ * a execução de treino: todas as classes e lambdas que os três carregam vão
+ * para o arquivo CDS, e as execuções seguintes os leem prontos do arquivo em
+ * vez de carregá-los e verificá-los de novo.
+ *
+ * O TempoDeInicio mede o resultado e explica o que dá para esperar dele.
+ *
+ * @author thiag
+ *
+ */
+public class InicioRapido {
+
+	public static void main(String[] args) {
+		String teste = args.length == 0 ? "todos" : args[0];
+		switch (teste) {
+		case "streams":
+			StreamsTeste.main(new String[0]);
+			break;
+		case "datas":
+			DatasTeste.main(new String[0]);
+			break;
+		case "default":
+			DefaultMethodsTeste.main(new String[0]);
+			break;
+		case "todos":
+			StreamsTeste.main(new String[0]);
+			DatasTeste.main(new String[0]);
+			DefaultMethodsTeste.main(new String[0]);
+			break;
+		default:
+			System.err.println("Uso: InicioRapido [streams|datas|default|todos]");
+			System.exit(2);
+		}
+	}
+}
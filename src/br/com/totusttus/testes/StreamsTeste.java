@@ -5,51 +5,67 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import br.com.totusttus.testes.fluxo.MapaAoVivo;
+import br.com.totusttus.testes.fluxo.Pipeline;
+import br.com.totusttus.testes.fluxo.Publicador;
+import br.com.totusttus.testes.io.SnapshotDeCursos;
 import br.com.totusttus.testes.model.Curso;
+import br.com.totusttus.testes.model.CursoCatalog;
+import br.com.totusttus.testes.model.CursosIndexados;
+import br.com.totusttus.testes.stream.AgregacaoPorChave;
+import br.com.totusttus.testes.stream.ColetoresPrimitivos;
+import br.com.totusttus.testes.stream.ConsultasFundidas;
+import br.com.totusttus.testes.stream.Instrumentacao;
+import br.com.totusttus.testes.stream.TabelaDeAgregados;
+import br.com.totusttus.testes.util.CacheDeResultados;
+import br.com.totusttus.testes.util.LongList;
 
 public class StreamsTeste {
 
 	public static void main(String[] args) {
 
-		List<Curso> cursos = new ArrayList<Curso>();
-		cursos.add(new Curso("Python", 45));
-		cursos.add(new Curso("JavaScript", 150));
-		cursos.add(new Curso("Java 8", 113));
-		cursos.add(new Curso("C", 55));
+		/*
+		 * Com -Dcursos.snapshot=arquivo, a lista é lida do arquivo gravado na
+		 * primeira execução em vez de montada (veja o SnapshotDeCursos).
+		 */
+		List<Curso> cursos = SnapshotDeCursos.carregaOuMonta(StreamsTeste::montaCursos);
 
 		// Ordenando a lista pela quantidade de alunos
 		cursos.sort(Comparator.comparingInt(Curso::getAlunos));
 		cursos.forEach(System.out::println);
 
 		/*
-		 * Streams: trabalhando com colees no java 8
+		 * Streams: trabalhando com coleções no java 8
 		 * 
-		 * E se quisermos fazer outras tarefas com essa coleo de cursos?
+		 * E se quisermos fazer outras tarefas com essa coleção de cursos?
 		 * 
-		 * Por exemplo, filtrar apenas os cursos com mais de 100 alunos. Poderamos
-		 * fazer um loop que, dado o critrio desejado seja atendido, adicionamos este
+		 * Por exemplo, filtrar apenas os cursos com mais de 100 alunos. Poderíamos
+		 * fazer um loop que, dado o critério desejado seja atendido, adicionamos este
 		 * curso em uma nova lista, a lista filtrada.
 		 * 
-		 * No Java 8, podemos fazer de uma forma muito mais interessante. H como
-		 * invocar um filter. Para sua surpresa, esse mtodo no se encontra em List,
-		 * nem em Collection, nem em nenhuma das interfaces j conhecidas. Ela est
-		 * dentro de uma nova interface, a Stream. Voc pode pegar um Stream de uma
-		 * coleo simplesmente invocando cursos.stream().
+		 * No Java 8, podemos fazer de uma forma muito mais interessante. Há como
+		 * invocar um filter. Para sua surpresa, esse método não se encontra em List,
+		 * nem em Collection, nem em nenhuma das interfaces já conhecidas. Ela está
+		 * dentro de uma nova interface, a Stream. Você pode pegar um Stream de uma
+		 * coleção simplesmente invocando cursos.stream().
 		 * 
-		 * O que fazemos com ele? O Stream devolvido por esse mtodo tem uma dezena de
-		 * mtodos bastante teis. O primeiro  o filter, que recebe um predicado (um
-		 * critrio), que deve devolver verdadeiro ou falso, dependendo se voc deseja
-		 * filtr-lo ou no.
+		 * O que fazemos com ele? O Stream devolvido por esse método tem uma dezena de
+		 * métodos bastante úteis. O primeiro é o filter, que recebe um predicado (um
+		 * critério), que deve devolver verdadeiro ou falso, dependendo se você deseja
+		 * filtrá-lo ou não.
 		 * 
-		 * Repare que o filtro devolve tambm um Stream!  um exemplo do que chamam de
+		 * Repare que o filtro devolve também um Stream! É um exemplo do que chamam de
 		 * fluent interface.
 		 * 
-		 * IMPORTANTE: modificaes em um stream no modificam a coleo/objeto que o
-		 * gerou. Tudo que  feito nesse fluxo de objetos, nesse Stream, no impacta,
-		 * no tem efeitos colaterais na coleo original. A coleo original continua
+		 * IMPORTANTE: modificações em um stream não modificam a coleção/objeto que o
+		 * gerou. Tudo que é feito nesse fluxo de objetos, nesse Stream, não impacta,
+		 * não tem efeitos colaterais na coleção original. A coleção original continua
 		 * com os mesmos cursos!
 		 */
 		Stream<Curso> streamDeCurso = cursos.stream().filter(c -> c.getAlunos() > 100);
@@ -58,7 +74,7 @@ public class StreamsTeste {
 		streamDeCurso.forEach(c -> System.out.println(c.getNome()));
 
 		/*
-		 * Executando a mesna funo acima, mas de forma resumida
+		 * Executando a mesna função acima, mas de forma resumida
 		 */
 
 		System.out.println("\n*******************");
@@ -69,7 +85,7 @@ public class StreamsTeste {
 		 * objetos, um novo fluxo apenas com a quantidade de alunos de cada um deles?
 		 * Utilizamos o map.
 		 * 
-		 * Se voc reparar, esse map no devolve um Stream<Curso>, e sim um
+		 * Se você reparar, esse map não devolve um Stream<Curso>, e sim um
 		 * Stream<Integer>!
 		 * 
 		 * A leitura ficaria assim: cursos.stream() .filter(sleecione somente o curso
@@ -80,34 +96,42 @@ public class StreamsTeste {
 		cursos.stream().filter(c -> c.getAlunos() > 100).map(c -> c.getAlunos()).forEach(i -> System.out.println(i));
 
 		/*
-		 * Gerando uma coleo a partir de um Stream
+		 * Gerando uma coleção a partir de um Stream
 		 * 
-		 * Invocar mtodos no stream de uma coleo no altera o contedo da coleo
-		 * original. Ele no gera efeitos colaterais. Como ento obter uma coleo
+		 * Invocar métodos no stream de uma coleção não altera o conteúdo da coleção
+		 * original. Ele não gera efeitos colaterais. Como então obter uma coleção
 		 * depois de alterar um Stream?
 		 * 
-		 * O mtodo Collect recebe um Collector, uma interface no to trivial de se
+		 * O método Collect recebe um Collector, uma interface não tão trivial de se
 		 * implementar. Podemos usar a classe Collectors (repare o s no final), cheio de
-		 * factory methods que ajudam na criao de coletores. Um dos coletores mais
-		 * utilizados  o retornado por Collectors.toList()
+		 * factory methods que ajudam na criação de coletores. Um dos coletores mais
+		 * utilizados é o retornado por Collectors.toList()
 		 */
 		System.out.println("\n*******************");
 		List<Long> listaInteiros = cursos.stream().map(c -> Long.valueOf(c.getAlunos())).collect(Collectors.toList());
 		listaInteiros.forEach(System.out::println);
 
+		/*
+		 * Cada Long da lista acima é um objeto. Para muitos cursos, o
+		 * ColetoresPrimitivos.toLongList guarda os valores direto em um long[],
+		 * sem criar um objeto por elemento.
+		 */
+		LongList listaPrimitiva = cursos.stream().collect(ColetoresPrimitivos.toLongList(c -> c.getAlunos()));
+		listaPrimitiva.forEach(System.out::println);
+
 		/*
 		 * Streams primitivos
 		 * 
 		 * 
-		 * Trabalhar com Streams vai ser frequente no seu dia a dia. H um cuidado a ser
+		 * Trabalhar com Streams vai ser frequente no seu dia a dia. Há um cuidado a ser
 		 * tomado: com os tipos primitivos. Quando fizemos o map(Curso::getAlunos),
 		 * recebemos de volta um Stream<Integer>, que acaba fazendo o autoboxing dos
-		 * ints. Isto , utilizar mais recursos da JVM. Claro que, se sua coleo 
-		 * pequena, o impacto ser irrisrio. Mas  possvel trabalhar s com ints,
-		 * invocando o mtodo mapToInt
+		 * ints. Isto é, utilizará mais recursos da JVM. Claro que, se sua coleção é
+		 * pequena, o impacto será irrisório. Mas é possível trabalhar só com ints,
+		 * invocando o método mapToInt
 		 * 
-		 * Ele devolve um IntStream, que no vai gerar autoboxing e possui novos mtodos
-		 * especficos para trabalhar com inteiros. Um exemplo? A soma!
+		 * Ele devolve um IntStream, que não vai gerar autoboxing e possui novos métodos
+		 * específicos para trabalhar com inteiros. Um exemplo? A soma!
 		 * 
 		 * A leitura fica assim: cursos.stream().filter(pegando os cursos que tem mais
 		 * de 100 alunos) .mapToInt(pegando somente o numero de alunos do
@@ -118,24 +142,36 @@ public class StreamsTeste {
 		System.out.println(soma);
 
 		/*
-		 * Vamos conhecer outros mtodos interessantes dos Streams. Um exemplo seria:
-		 * quero um curso que tenha mais de 100 alunos! Pode ser qualquer um deles. H o
-		 * mtodo findAny.
+		 * Para ver onde o tempo é gasto, podemos embrulhar cada etapa com a
+		 * Instrumentacao. Desligada (o padrão, sem -Dinstrumentacao=true), ela
+		 * devolve os próprios lambdas e o pipeline fica igual ao de cima.
+		 */
+		Instrumentacao medidor = Instrumentacao.PADRAO;
+		int somaMedida = medidor.pipeline("soma", () -> medidor.fonte("cursos", cursos.stream())
+				.filter(medidor.filter("alunos > 100", c -> c.getAlunos() > 100))
+				.mapToInt(medidor.mapToInt("getAlunos", c -> c.getAlunos())).sum());
+		System.out.println(somaMedida);
+		medidor.metricas().values().forEach(System.out::println);
+
+		/*
+		 * Vamos conhecer outros métodos interessantes dos Streams. Um exemplo seria:
+		 * quero um curso que tenha mais de 100 alunos! Pode ser qualquer um deles. Há o
+		 * método findAny.
 		 * 
-		 * O que ser que devolve o findAny? Um Curso? No! Um Optional<Curso>.
+		 * O que será que devolve o findAny? Um Curso? Não! Um Optional<Curso>.
 		 * 
-		 * Optional  uma importante nova classe do Java 8.  com ele que poderemos
-		 * trabalhar de uma maneira mais organizada com possveis valores null. Em vez
-		 * de ficar comparando if(algumaCoisa == null), o Optional j fornece uma srie
-		 * de mtodos para nos ajudar nessas situaes. Por que o findAny utiliza esse
-		 * recurso? Pois pode no haver nenhum curso com mais de 100 alunos! Nesse caso,
+		 * Optional é uma importante nova classe do Java 8. É com ele que poderemos
+		 * trabalhar de uma maneira mais organizada com possíveis valores null. Em vez
+		 * de ficar comparando if(algumaCoisa == null), o Optional já fornece uma série
+		 * de métodos para nos ajudar nessas situações. Por que o findAny utiliza esse
+		 * recurso? Pois pode não haver nenhum curso com mais de 100 alunos! Nesse caso,
 		 * o que seria retornado? null? uma exception?
 		 */
 		Optional<Curso> optional = cursos.stream().filter(c -> c.getAlunos() > 100).findAny();
 
 		/*
 		 * O orElse diz que ele deve devolver o curso que existe dentro desse optional,
-		 * ou ento o que foi passado como argumento.
+		 * ou então o que foi passado como argumento.
 		 * 
 		 * Nesse caso ou ele devolve o curso encontrado, ou null, caso nenhum seja
 		 * encontrado.
@@ -145,8 +181,8 @@ public class StreamsTeste {
 			System.out.println(curso.getNome());
 
 		/*
-		 * Mesmo assim, ainda no est to interessante. H como evitar tanto o null,
-		 * quanto as exceptions, quanto os ifs. O mtodo ifPresent executa um lambda (um
+		 * Mesmo assim, ainda não está tão interessante. Há como evitar tanto o null,
+		 * quanto as exceptions, quanto os ifs. O método ifPresent executa um lambda (um
 		 * Consumer) no caso de existir um curso dentro daquele optional.
 		 */
 
@@ -155,14 +191,117 @@ public class StreamsTeste {
 		
 		/*
 		 * Podemos gerar mapas! Queremos um mapa que, dado o nome do curso, o valor
-		 * atrelado  a quantidade alunos. Um Map<String, Integer>. Utilizamos o
+		 * atrelado é a quantidade alunos. Um Map<String, Integer>. Utilizamos o
 		 * Collectors.toMap. Ele recebe duas Functions. A primeira indica o que vai ser
-		 * a chave, e a segunda o que ser o valor:
+		 * a chave, e a segunda o que será o valor:
 		 */
 		Map mapa = cursos.stream().filter(c -> c.getAlunos() > 100)
 				.collect(Collectors.toMap(c -> c.getNome(), c -> c.getAlunos()));
 		
 		System.out.println(mapa);
 
+		/*
+		 * Catálogo em colunas
+		 *
+		 * Para muitos cursos, podemos guardar os dados em um CursoCatalog, que usa
+		 * arrays de int no lugar de um objeto por curso. Os mesmos pipelines
+		 * continuam funcionando através do stream(), e o alunos() já devolve um
+		 * IntStream sem precisar do mapToInt.
+		 */
+		System.out.println("\n*******************");
+		CursoCatalog catalogo = CursoCatalog.of(cursos);
+		int somaCatalogo = catalogo.stream().filter(c -> c.getAlunos() > 100).mapToInt(c -> c.getAlunos()).sum();
+		System.out.println(somaCatalogo);
+		System.out.println(catalogo.alunos().filter(alunos -> alunos > 100).sum());
+
+		/*
+		 * Índices
+		 *
+		 * Quando o mesmo filtro por alunos é repetido muitas vezes, o
+		 * CursosIndexados mantém os cursos ordenados pela quantidade de alunos e
+		 * indexados pelo nome. A consulta só visita os cursos da faixa pedida, em
+		 * vez de percorrer a lista inteira.
+		 */
+		System.out.println("\n*******************");
+		CursosIndexados indexados = CursosIndexados.of(cursos);
+		System.out.println(indexados.comAlunosAcimaDe(100));
+		System.out.println(indexados.somaDeAlunosAcimaDe(100));
+		indexados.qualquerComAlunosAcimaDe(100).ifPresent(c -> System.out.println(c.getNome()));
+		System.out.println(indexados.porNome("Java 8"));
+
+		/*
+		 * Cache de resultados
+		 *
+		 * Se o mesmo pipeline roda várias vezes sobre um catálogo que muda pouco,
+		 * o CacheDeResultados guarda o resultado junto com a versão do catálogo.
+		 * Enquanto o catálogo não muda, o pipeline não roda de novo; depois de um
+		 * add, a versão muda e o resultado é recalculado.
+		 */
+		System.out.println("\n*******************");
+		CacheDeResultados cache = new CacheDeResultados(100, 10_000);
+		for (int i = 0; i < 3; i++)
+			System.out.println(cache.obtem(catalogo, "soma acima de 100",
+					() -> catalogo.alunos().filter(alunos -> alunos > 100).sum()));
+		catalogo.add("Go", 120);
+		System.out.println(cache.obtem(catalogo, "soma acima de 100",
+				() -> catalogo.alunos().filter(alunos -> alunos > 100).sum()));
+		System.out.println(cache);
+
+		/*
+		 * Agrupamentos
+		 *
+		 * Para várias estatísticas por chave (quantidade, soma, mínimo, máximo,
+		 * percentis), a AgregacaoPorChave recebe a chave e o valor como o
+		 * Collectors.toMap e devolve uma tabela com uma linha por chave.
+		 */
+		System.out.println("\n*******************");
+		TabelaDeAgregados<Boolean> porTamanho = AgregacaoPorChave
+				.de((Curso c) -> c.getAlunos() > 100, c -> c.getAlunos()).comPercentis(50).executa(cursos);
+		System.out.print(porTamanho);
+
+		/*
+		 * Várias consultas em uma passada
+		 *
+		 * Quase todos os pipelines acima percorrem a lista com o mesmo filtro. Com
+		 * o ConsultasFundidas, a soma, o findAny e o toMap saem de uma única
+		 * passada, e o filtro é avaliado uma vez por curso.
+		 */
+		System.out.println("\n*******************");
+		Predicate<Curso> maisDe100 = c -> c.getAlunos() > 100;
+		ConsultasFundidas<Curso> consultas = new ConsultasFundidas<>();
+		ConsultasFundidas.Consulta<Integer> somaFundida = consultas.soma(maisDe100, Curso::getAlunos);
+		ConsultasFundidas.Consulta<Optional<Curso>> qualquerFundido = consultas.qualquer(maisDe100);
+		ConsultasFundidas.Consulta<Map<String, Integer>> mapaFundido = consultas.mapa(maisDe100, Curso::getNome,
+				Curso::getAlunos);
+		ConsultasFundidas.Resultados resultados = consultas.executa(cursos);
+		System.out.println(resultados.get(somaFundida));
+		resultados.get(qualquerFundido).ifPresent(c -> System.out.println(c.getNome()));
+		System.out.println(resultados.get(mapaFundido));
+
+		/*
+		 * As mesmas consultas sobre um fluxo de matrículas que não termina: quem
+		 * publica empurra os cursos, e cada assinante recebe só o que pediu. A
+		 * soma sai por janela (a cada 2 cursos ou a cada segundo) e o mapa pode
+		 * ser lido a qualquer momento.
+		 */
+		Publicador<Curso> publicador = new Publicador<>();
+		CompletableFuture<Void> somas = Pipeline.de(publicador).filter(maisDe100)
+				.somaPorJanela(Curso::getAlunos, 2, 1, TimeUnit.SECONDS).forEach(System.out::println);
+		MapaAoVivo<String, Integer> mapaAoVivo = Pipeline.de(publicador).filter(maisDe100)
+				.toMap(Curso::getNome, Curso::getAlunos, Integer::sum);
+		cursos.forEach(publicador::submit);
+		publicador.close();
+		somas.join();
+		System.out.println(mapaAoVivo.concluido().join());
+
+	}
+
+	private static List<Curso> montaCursos() {
+		List<Curso> cursos = new ArrayList<Curso>();
+		cursos.add(new Curso("Python", 45));
+		cursos.add(new Curso("JavaScript", 150));
+		cursos.add(new Curso("Java 8", 113));
+		cursos.add(new Curso("C", 55));
+		return cursos;
 	}
 }
@@ -0,0 +1,149 @@
+package br.com.totusttus.testes.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Mini harness de benchmark, sem dependências externas.
+ *
+ * Cada cenário passa por algumas iterações de aquecimento (para o JIT
+ * compilar o código) e depois por iterações medidas. Para cada uma medimos a
+ * vazão (operações por segundo) e, quando a JVM permite, os bytes alocados
+ * pela thread que executa o cenário, de forma parecida com o "-prof gc" do
+ * JMH.
+ *
+ * Atenção: em cenários paralelos a alocação feita pelas threads do
+ * ForkJoinPool não aparece, só a da thread principal. E todos os cenários
+ * rodam na mesma JVM, então o perfil que o JIT montou para um cenário pode
+ * atrapalhar os seguintes. Para comparar de verdade, use o módulo jmh (mvn
+ * package e java -jar jmh/target/benchmarks.jar -prof gc); este harness fica
+ * para quando o Maven não está disponível.
+ *
+ * @author thiag
+ *
+ */
+public class Benchmark {
+
+	private final int iteracoesAquecimento;
+	private final int iteracoesMedidas;
+	private final long tempoPorIteracaoNanos;
+	private final List<Resultado> resultados = new ArrayList<>();
+
+	/*
+	 * Guarda o retorno de cada operação para que o JIT não elimine o código
+	 * medido (o papel do Blackhole no JMH).
+	 */
+	private volatile Object sumidouro;
+
+	public Benchmark(int iteracoesAquecimento, int iteracoesMedidas, long tempoPorIteracao, TimeUnit unidade) {
+		this.iteracoesAquecimento = iteracoesAquecimento;
+		this.iteracoesMedidas = iteracoesMedidas;
+		this.tempoPorIteracaoNanos = unidade.toNanos(tempoPorIteracao);
+	}
+
+	public Resultado executa(String nome, int tamanho, Supplier<?> operacao) {
+		for (int i = 0; i < iteracoesAquecimento; i++)
+			iteracao(operacao);
+
+		long operacoes = 0;
+		long nanos = 0;
+		long bytes = 0;
+		for (int i = 0; i < iteracoesMedidas; i++) {
+			long[] medida = iteracao(operacao);
+			operacoes += medida[0];
+			nanos += medida[1];
+			bytes += medida[2];
+		}
+
+		Resultado resultado = new Resultado(nome, tamanho, operacoes, nanos, bytes);
+		resultados.add(resultado);
+		System.out.println(resultado);
+		return resultado;
+	}
+
+	/*
+	 * Executa a operação repetidamente até completar o tempo de uma iteração.
+	 * Devolve {operações, nanos, bytes alocados}.
+	 */
+	private long[] iteracao(Supplier<?> operacao) {
+		long bytesAntes = bytesAlocados();
+		long inicio = System.nanoTime();
+		long fim = inicio + tempoPorIteracaoNanos;
+		long operacoes = 0;
+		long agora;
+		do {
+			sumidouro = operacao.get();
+			operacoes++;
+			agora = System.nanoTime();
+		} while (agora < fim);
+		long bytes = bytesAlocados() - bytesAntes;
+		return new long[] { operacoes, agora - inicio, bytes };
+	}
+
+	public List<Resultado> getResultados() {
+		return resultados;
+	}
+
+	/*
+	 * Bytes alocados pela thread atual, ou zero se a JVM não expuser essa
+	 * informação.
+	 */
+	static long bytesAlocados() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled())
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	public static class Resultado {
+
+		private final String nome;
+		private final int tamanho;
+		private final long operacoes;
+		private final long nanos;
+		private final long bytes;
+
+		Resultado(String nome, int tamanho, long operacoes, long nanos, long bytes) {
+			this.nome = nome;
+			this.tamanho = tamanho;
+			this.operacoes = operacoes;
+			this.nanos = nanos;
+			this.bytes = bytes;
+		}
+
+		public String getNome() {
+			return nome;
+		}
+
+		public int getTamanho() {
+			return tamanho;
+		}
+
+		public double getOperacoesPorSegundo() {
+			return operacoes / (nanos / 1_000_000_000.0);
+		}
+
+		public double getBytesPorOperacao() {
+			return (double) bytes / operacoes;
+		}
+
+		/**
+		 * Taxa de alocação em MB/s, a mesma unidade do gc.alloc.rate do JMH.
+		 */
+		public double getTaxaDeAlocacao() {
+			return (bytes / (1024.0 * 1024.0)) / (nanos / 1_000_000_000.0);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-40s %10d %15.3f ops/s %15.1f B/op %12.1f MB/s", nome, tamanho,
+					getOperacoesPorSegundo(), getBytesPorOperacao(), getTaxaDeAlocacao());
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package br.com.totusttus.testes.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import br.com.totusttus.testes.model.Curso;
+import br.com.totusttus.testes.stream.ArrayDeCursos;
+import br.com.totusttus.testes.stream.BuscaParalela;
+import br.com.totusttus.testes.stream.MetricasDeDivisao;
+
+/**
+ * Benchmark dos pipelines do StreamsTeste.
+ *
+ * Para cada tamanho de lista comparamos a versão sequencial, a paralela e um
+ * laço escrito à mão, além do map(c -> c.getAlunos()) com boxing contra o
+ * mapToInt.
+ *
+ * Uso: java -Xmx8g br.com.totusttus.testes.benchmark.StreamsBenchmark [tamanhos...]
+ *
+ * Sem argumentos, roda com 10, 1.000, 100.000, 1.000.000 e 10.000.000 cursos.
+ *
+ * Os números de referência vêm do módulo jmh (StreamsJmh), que roda os mesmos
+ * cenários em JVMs separadas e mede a alocação de todas as threads com o
+ * -prof gc. Este main serve para uma olhada rápida, sem o Maven.
+ *
+ * @author thiag
+ *
+ */
+public class StreamsBenchmark {
+
+	private static final int[] TAMANHOS_PADRAO = { 10, 1_000, 100_000, 1_000_000, 10_000_000 };
+
+	public static void main(String[] args) {
+
+		int[] tamanhos = TAMANHOS_PADRAO;
+		if (args.length > 0) {
+			tamanhos = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				tamanhos[i] = Integer.parseInt(args[i]);
+		}
+
+		Benchmark benchmark = new Benchmark(5, 5, 1, TimeUnit.SECONDS);
+		for (int tamanho : tamanhos) {
+			List<Curso> cursos = geraCursos(tamanho);
+			executaCenarios(benchmark, cursos);
+		}
+	}
+
+	public static List<Curso> geraCursos(int tamanho) {
+		Random random = new Random(42);
+		List<Curso> cursos = new ArrayList<>(tamanho);
+		for (int i = 0; i < tamanho; i++)
+			cursos.add(new Curso("Curso " + i, random.nextInt(200)));
+		return cursos;
+	}
+
+	private static void executaCenarios(Benchmark benchmark, List<Curso> cursos) {
+		int tamanho = cursos.size();
+
+		/*
+		 * filter -> map -> Collectors.toList
+		 */
+		benchmark.executa("filtraNomes.sequencial", tamanho, () -> cursos.stream()
+				.filter(c -> c.getAlunos() > 100).map(Curso::getNome).collect(Collectors.toList()));
+		benchmark.executa("filtraNomes.paralelo", tamanho, () -> cursos.parallelStream()
+				.filter(c -> c.getAlunos() > 100).map(Curso::getNome).collect(Collectors.toList()));
+		benchmark.executa("filtraNomes.laco", tamanho, () -> {
+			List<String> nomes = new ArrayList<>();
+			for (Curso c : cursos)
+				if (c.getAlunos() > 100)
+					nomes.add(c.getNome());
+			return nomes;
+		});
+
+		/*
+		 * filter -> mapToInt -> sum, comparado com o map com boxing
+		 */
+		benchmark.executa("soma.mapToInt.sequencial", tamanho,
+				() -> cursos.stream().filter(c -> c.getAlunos() > 100).mapToInt(c -> c.getAlunos()).sum());
+		benchmark.executa("soma.mapToInt.paralelo", tamanho,
+				() -> cursos.parallelStream().filter(c -> c.getAlunos() > 100).mapToInt(c -> c.getAlunos()).sum());
+		ArrayDeCursos array = ArrayDeCursos.of(cursos);
+		benchmark.executa("soma.mapToInt.paralelo.ArrayDeCursos", tamanho,
+				() -> array.parallelStream().filter(c -> c.getAlunos() > 100).mapToInt(c -> c.getAlunos()).sum());
+		MetricasDeDivisao metricas = new MetricasDeDivisao();
+		array.parallelStream(ArrayDeCursos.LIMITE_PADRAO, metricas).filter(c -> c.getAlunos() > 100)
+				.mapToInt(c -> c.getAlunos()).sum();
+		System.out.println("  divisão do ArrayDeCursos: " + metricas);
+		benchmark.executa("soma.map.sequencial", tamanho, () -> cursos.stream().filter(c -> c.getAlunos() > 100)
+				.map(c -> c.getAlunos()).reduce(0, Integer::sum));
+		benchmark.executa("soma.map.paralelo", tamanho, () -> cursos.parallelStream()
+				.filter(c -> c.getAlunos() > 100).map(c -> c.getAlunos()).reduce(0, Integer::sum));
+		benchmark.executa("soma.laco", tamanho, () -> {
+			int soma = 0;
+			for (Curso c : cursos)
+				if (c.getAlunos() > 100)
+					soma += c.getAlunos();
+			return soma;
+		});
+
+		/*
+		 * findAny
+		 */
+		benchmark.executa("findAny.sequencial", tamanho,
+				() -> cursos.stream().filter(c -> c.getAlunos() > 100).findAny());
+		benchmark.executa("findAny.paralelo", tamanho,
+				() -> cursos.parallelStream().filter(c -> c.getAlunos() > 100).findAny());
+		BuscaParalela busca = new BuscaParalela();
+		benchmark.executa("findAny.BuscaParalela", tamanho, () -> busca.findAny(cursos, c -> c.getAlunos() > 100));
+		benchmark.executa("findAny.laco", tamanho, () -> {
+			for (Curso c : cursos)
+				if (c.getAlunos() > 100)
+					return Optional.of(c);
+			return Optional.empty();
+		});
+
+		/*
+		 * Collectors.toMap
+		 */
+		benchmark.executa("toMap.sequencial", tamanho, () -> cursos.stream().filter(c -> c.getAlunos() > 100)
+				.collect(Collectors.toMap(c -> c.getNome(), c -> c.getAlunos())));
+		benchmark.executa("toMap.paralelo", tamanho, () -> cursos.parallelStream()
+				.filter(c -> c.getAlunos() > 100).collect(Collectors.toMap(c -> c.getNome(), c -> c.getAlunos())));
+		benchmark.executa("toMap.laco", tamanho, () -> {
+			Map<String, Integer> mapa = new HashMap<>();
+			for (Curso c : cursos)
+				if (c.getAlunos() > 100)
+					mapa.put(c.getNome(), c.getAlunos());
+			return mapa;
+		});
+	}
+}
@@ -0,0 +1,126 @@
+package br.com.totusttus.testes.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mede o tempo de início dos main dos testes, cada um em uma JVM nova, como
+ * as ferramentas de linha de comando são usadas.
+ *
+ * Para cada teste e cada configuração (sem nada, com o snapshot dos cursos,
+ * com o arquivo CDS e o snapshot) a JVM é iniciada algumas vezes e medimos:
+ * <ul>
+ * <li>o tempo até o primeiro byte na saída padrão, que é o que o usuário
+ * percebe;</li>
+ * <li>o tempo até a JVM terminar.</li>
+ * </ul>
+ * Nas configurações com CDS passamos -Xshare:on: se o arquivo não puder ser
+ * mapeado (outra JVM, outro classpath), a JVM falha em vez de seguir sem ele
+ * e medir, sem avisar, o início sem CDS.
+ *
+ * Mostramos a mediana, que sofre menos com uma execução atrapalhada pelo
+ * sistema operacional. A primeira execução de cada configuração é descartada,
+ * para que todas encontrem o jar e o arquivo CDS no cache de disco.
+ *
+ * Há um limite que nenhuma configuração remove: a própria JVM. Um main que só
+ * imprime uma linha leva cerca de 80 ms até a saída em uma máquina de 1 CPU
+ * com o JDK 17. Nela, com CDS e snapshot, os três testes ficaram entre 88 e
+ * 98 ms até a primeira saída, de 10 a 15 ms acima desse piso. Ficar bem
+ * abaixo de 100 ms só é possível onde o piso também estiver bem abaixo disso,
+ * então compare sempre com o piso da mesma máquina, não com um número
+ * absoluto.
+ *
+ * <pre>
+ * scripts/inicio-rapido.sh
+ * java -cp build/inicio-rapido/app.jar br.com.totusttus.testes.benchmark.TempoDeInicio \
+ * 		build/inicio-rapido/app.jar build/inicio-rapido/app.jsa build/inicio-rapido/cursos.bin
+ * </pre>
+ *
+ * @author thiag
+ *
+ */
+public class TempoDeInicio {
+
+	private static final String[] TESTES = { "streams", "datas", "default" };
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 1) {
+			System.err.println("Uso: TempoDeInicio app.jar [app.jsa] [cursos.bin] [repetições]");
+			System.exit(2);
+		}
+		String jar = args[0];
+		String arquivoCds = args.length > 1 ? args[1] : null;
+		String snapshot = args.length > 2 ? args[2] : null;
+		int repeticoes = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+		List<String[]> configuracoes = new ArrayList<>();
+		configuracoes.add(new String[] { "padrão" });
+		if (snapshot != null)
+			configuracoes.add(new String[] { "snapshot", "-Dcursos.snapshot=" + snapshot });
+		if (arquivoCds != null && snapshot != null)
+			configuracoes.add(new String[] { "CDS + snapshot", "-Xshare:on", "-XX:SharedArchiveFile=" + arquivoCds,
+					"-Dcursos.snapshot=" + snapshot });
+		else if (arquivoCds != null)
+			configuracoes.add(new String[] { "CDS", "-Xshare:on", "-XX:SharedArchiveFile=" + arquivoCds });
+
+		System.out.printf("%-10s %-16s %18s %18s%n", "teste", "configuração", "primeira saída (ms)",
+				"total (ms)");
+		for (String teste : TESTES) {
+			for (String[] configuracao : configuracoes) {
+				List<String> comando = new ArrayList<>();
+				comando.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+				comando.addAll(Arrays.asList(configuracao).subList(1, configuracao.length));
+				comando.add("-cp");
+				comando.add(jar);
+				comando.add("br.com.totusttus.testes.InicioRapido");
+				comando.add(teste);
+
+				executa(comando);
+				long[] primeiraSaida = new long[repeticoes];
+				long[] total = new long[repeticoes];
+				for (int i = 0; i < repeticoes; i++) {
+					long[] medida = executa(comando);
+					primeiraSaida[i] = medida[0];
+					total[i] = medida[1];
+				}
+				System.out.printf("%-10s %-16s %18.1f %18.1f%n", teste, configuracao[0], mediana(primeiraSaida) / 1e6,
+						mediana(total) / 1e6);
+			}
+		}
+	}
+
+	/*
+	 * Inicia a JVM e devolve {nanos até o primeiro byte, nanos até terminar}.
+	 * A saída é lida até o fim para que o processo não trave com o buffer do
+	 * pipe cheio.
+	 */
+	private static long[] executa(List<String> comando) throws IOException, InterruptedException {
+		ProcessBuilder construtor = new ProcessBuilder(comando).redirectErrorStream(true);
+		long inicio = System.nanoTime();
+		Process processo = construtor.start();
+		long primeiraSaida = -1;
+		byte[] buffer = new byte[8192];
+		try (InputStream saida = processo.getInputStream()) {
+			int lidos;
+			while ((lidos = saida.read(buffer)) >= 0) {
+				if (primeiraSaida < 0 && lidos > 0)
+					primeiraSaida = System.nanoTime() - inicio;
+			}
+		}
+		int codigo = processo.waitFor();
+		long total = System.nanoTime() - inicio;
+		if (codigo != 0)
+			throw new IllegalStateException("O processo terminou com código " + codigo + ": " + comando);
+		return new long[] { primeiraSaida < 0 ? total : primeiraSaida, total };
+	}
+
+	private static long mediana(long[] valores) {
+		long[] ordenados = valores.clone();
+		Arrays.sort(ordenados);
+		return ordenados[ordenados.length / 2];
+	}
+}
@@ -0,0 +1,67 @@
+package br.com.totusttus.testes.fluxo;
+
+/**
+ * As interfaces do java.util.concurrent.Flow (Reactive Streams), que só
+ * existem a partir do Java 9. Os nomes e os métodos são os mesmos, então
+ * migrar para o Flow do JDK é trocar os imports.
+ *
+ * A diferença para um Stream é quem manda: no Stream quem consome puxa os
+ * elementos; aqui quem publica empurra, mas só a quantidade que o assinante
+ * pediu com request(n). É isso que impede uma rajada de matrículas de encher
+ * a memória de quem não consegue acompanhar.
+ *
+ * @author thiag
+ *
+ */
+public final class Fluxo {
+
+	/**
+	 * Tamanho padrão dos buffers e dos pedidos antecipados.
+	 */
+	public static final int BUFFER_PADRAO = 256;
+
+	private Fluxo() {
+	}
+
+	@FunctionalInterface
+	public interface Publisher<T> {
+
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	public interface Subscriber<T> {
+
+		/**
+		 * Chamado uma vez, antes de qualquer outro método. Nada é enviado até o
+		 * assinante chamar subscription.request(n).
+		 */
+		void onSubscribe(Subscription subscription);
+
+		void onNext(T item);
+
+		void onError(Throwable throwable);
+
+		void onComplete();
+	}
+
+	public interface Subscription {
+
+		/**
+		 * Pede mais n elementos. Os pedidos se acumulam.
+		 */
+		void request(long n);
+
+		void cancel();
+	}
+
+	public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+	}
+
+	/*
+	 * Soma de pedidos sem estourar: acima de Long.MAX_VALUE é "sem limite".
+	 */
+	static long somaDemanda(long atual, long n) {
+		long soma = atual + n;
+		return soma < 0 ? Long.MAX_VALUE : soma;
+	}
+}
@@ -0,0 +1,75 @@
+package br.com.totusttus.testes.fluxo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BinaryOperator;
+
+/**
+ * O toMap de um Pipeline: o mapa vai sendo preenchido enquanto os elementos
+ * chegam, e pode ser lido a qualquer momento com snapshot(), sem esperar a
+ * fonte terminar (o que, para o fluxo de matrículas, nunca acontece).
+ *
+ * O mapa cresce com a quantidade de chaves distintas, não com a quantidade de
+ * elementos: os valores de uma mesma chave são juntados com a função de
+ * junção, como no Collectors.toMap de três argumentos.
+ *
+ * @author thiag
+ *
+ */
+public class MapaAoVivo<K, V> {
+
+	private final BinaryOperator<V> juncao;
+	private final ConcurrentHashMap<K, V> mapa = new ConcurrentHashMap<>();
+	private final CompletableFuture<Map<K, V>> concluido = new CompletableFuture<>();
+	private volatile Fluxo.Subscription assinatura;
+
+	MapaAoVivo(BinaryOperator<V> juncao) {
+		this.juncao = Objects.requireNonNull(juncao);
+	}
+
+	void assinado(Fluxo.Subscription assinatura) {
+		this.assinatura = assinatura;
+	}
+
+	void junta(K chave, V valor) {
+		mapa.merge(chave, valor, juncao);
+	}
+
+	void termina(Throwable erro) {
+		if (erro == null)
+			concluido.complete(snapshot());
+		else
+			concluido.completeExceptionally(erro);
+	}
+
+	/**
+	 * Uma cópia do mapa como está agora.
+	 */
+	public Map<K, V> snapshot() {
+		return new HashMap<>(mapa);
+	}
+
+	public int size() {
+		return mapa.size();
+	}
+
+	/**
+	 * O mapa final, quando a fonte terminar.
+	 */
+	public CompletableFuture<Map<K, V>> concluido() {
+		return concluido;
+	}
+
+	/**
+	 * Para de receber elementos. O mapa fica como está.
+	 */
+	public void cancela() {
+		Fluxo.Subscription atual = assinatura;
+		if (atual != null)
+			atual.cancel();
+		concluido.complete(snapshot());
+	}
+}
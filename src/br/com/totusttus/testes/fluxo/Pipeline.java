@@ -0,0 +1,601 @@
+package br.com.totusttus.testes.fluxo;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * As operações do StreamsTeste (filter, map, sum, findAny, toMap) sobre um
+ * Publisher, para fontes sem fim como o fluxo de matrículas.
+ *
+ * <pre>
+ * Pipeline.de(publicador)
+ * 		.filter(c -> c.getAlunos() > 100)
+ * 		.somaPorJanela(Curso::getAlunos, 1000, 1, TimeUnit.SECONDS)
+ * 		.subscribe(assinante);
+ * </pre>
+ *
+ * Cada operação repassa para cima os pedidos (request) de quem está embaixo,
+ * então nada anda mais rápido do que o último assinante consegue consumir. O
+ * filter pede mais um elemento para cada um que descarta. As janelas pedem
+ * antecipadamente, mas no máximo Fluxo.BUFFER_PADRAO elementos, e param de
+ * pedir quando há janelas prontas demais esperando o assinante.
+ *
+ * Como aqui não há um "fim" do stream, a soma é feita por janela: a cada
+ * tantos elementos ou a cada tanto tempo, o que vier primeiro. Não existe
+ * mapToInt separado porque um Publisher de int seria de Integer; a função que
+ * extrai o valor é passada direto para a somaPorJanela, sem boxing.
+ *
+ * Uma janela fechada pelo tempo é entregue em um Executor (o
+ * ForkJoinPool.commonPool(), ou o informado no janela e no emLotes), nunca na
+ * thread do relógio, que é a mesma para todos os pipelines: um assinante
+ * lento atrasa só as próprias janelas.
+ *
+ * @author thiag
+ *
+ */
+public class Pipeline<T> implements Fluxo.Publisher<T> {
+
+	/*
+	 * Janelas prontas que podem esperar o assinante antes de pararmos de pedir
+	 * elementos.
+	 */
+	private static final int JANELAS_PRONTAS = 16;
+
+	private final Fluxo.Publisher<T> fonte;
+
+	private Pipeline(Fluxo.Publisher<T> fonte) {
+		this.fonte = Objects.requireNonNull(fonte);
+	}
+
+	public static <T> Pipeline<T> de(Fluxo.Publisher<T> fonte) {
+		return fonte instanceof Pipeline ? (Pipeline<T>) fonte : new Pipeline<>(fonte);
+	}
+
+	@Override
+	public void subscribe(Fluxo.Subscriber<? super T> assinante) {
+		fonte.subscribe(assinante);
+	}
+
+	public Pipeline<T> filter(Predicate<? super T> filtro) {
+		Objects.requireNonNull(filtro);
+		return new Pipeline<>(assinante -> fonte.subscribe(new Operacao<T, T>(assinante) {
+
+			@Override
+			public void onNext(T item) {
+				boolean passou;
+				try {
+					passou = filtro.test(item);
+				} catch (Throwable t) {
+					falha(t);
+					return;
+				}
+				if (passou)
+					abaixo.onNext(item);
+				else
+					acima.request(1);
+			}
+		}));
+	}
+
+	public <R> Pipeline<R> map(Function<? super T, ? extends R> funcao) {
+		Objects.requireNonNull(funcao);
+		return new Pipeline<>(assinante -> fonte.subscribe(new Operacao<T, R>(assinante) {
+
+			@Override
+			public void onNext(T item) {
+				R mapeado;
+				try {
+					mapeado = funcao.apply(item);
+				} catch (Throwable t) {
+					falha(t);
+					return;
+				}
+				abaixo.onNext(mapeado);
+			}
+		}));
+	}
+
+	/**
+	 * Agrupa os elementos em janelas de até maxElementos ou de até a duração
+	 * informada, contada a partir do primeiro elemento da janela, e publica o
+	 * resultado do coletor para cada janela. Janelas vazias não são publicadas.
+	 */
+	public <A, R> Pipeline<R> janela(Collector<? super T, A, R> coletor, int maxElementos, long duracao,
+			TimeUnit unidade) {
+		return janela(coletor, maxElementos, duracao, unidade, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Como o janela acima, entregando as janelas fechadas pelo tempo no
+	 * executor informado. Use um executor próprio quando o assinante bloquear.
+	 */
+	public <A, R> Pipeline<R> janela(Collector<? super T, A, R> coletor, int maxElementos, long duracao,
+			TimeUnit unidade, Executor executor) {
+		Objects.requireNonNull(coletor);
+		Objects.requireNonNull(executor);
+		if (maxElementos < 1 || duracao <= 0)
+			throw new IllegalArgumentException("Janela inválida: " + maxElementos + " elementos, duração " + duracao);
+		long nanos = unidade.toNanos(duracao);
+		return new Pipeline<>(
+				assinante -> fonte.subscribe(new Janela<>(assinante, coletor, maxElementos, nanos, executor)));
+	}
+
+	/**
+	 * A soma dos valores de cada janela: o mapToInt(...).sum() do StreamsTeste.
+	 */
+	public Pipeline<Long> somaPorJanela(ToIntFunction<? super T> funcaoValor, int maxElementos, long duracao,
+			TimeUnit unidade) {
+		return janela(Collectors.summingLong(funcaoValor::applyAsInt), maxElementos, duracao, unidade);
+	}
+
+	/**
+	 * Entrega os elementos em listas, para quem prefere processar em lote
+	 * (gravar no banco, por exemplo). Uma rajada vira poucas listas grandes; um
+	 * elemento sozinho espera no máximo a duração informada.
+	 */
+	public Pipeline<List<T>> emLotes(int maxElementos, long duracao, TimeUnit unidade) {
+		return janela(Collectors.<T> toList(), maxElementos, duracao, unidade);
+	}
+
+	/**
+	 * Como o emLotes acima, com as listas fechadas pelo tempo entregues no
+	 * executor informado. Para gravar no banco, que bloqueia, passe um executor
+	 * próprio em vez de ocupar o commonPool.
+	 */
+	public Pipeline<List<T>> emLotes(int maxElementos, long duracao, TimeUnit unidade, Executor executor) {
+		return janela(Collectors.<T> toList(), maxElementos, duracao, unidade, executor);
+	}
+
+	/**
+	 * O primeiro elemento que chegar. A assinatura é cancelada assim que ele
+	 * chega; se a fonte terminar sem elementos, o resultado é Optional.empty().
+	 */
+	public CompletableFuture<Optional<T>> findAny() {
+		CompletableFuture<Optional<T>> resultado = new CompletableFuture<>();
+		fonte.subscribe(new Fluxo.Subscriber<T>() {
+
+			private Fluxo.Subscription assinatura;
+
+			@Override
+			public void onSubscribe(Fluxo.Subscription assinatura) {
+				this.assinatura = assinatura;
+				assinatura.request(1);
+			}
+
+			@Override
+			public void onNext(T item) {
+				if (resultado.complete(Optional.of(item)))
+					assinatura.cancel();
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				resultado.completeExceptionally(throwable);
+			}
+
+			@Override
+			public void onComplete() {
+				resultado.complete(Optional.empty());
+			}
+		});
+		return resultado;
+	}
+
+	/**
+	 * Acumula um mapa enquanto os elementos chegam. O MapaAoVivo dá uma cópia
+	 * do mapa a qualquer momento e o mapa final quando a fonte terminar.
+	 */
+	public <K, V> MapaAoVivo<K, V> toMap(Function<? super T, ? extends K> funcaoChave,
+			Function<? super T, ? extends V> funcaoValor, BinaryOperator<V> juncao) {
+		Objects.requireNonNull(funcaoChave);
+		Objects.requireNonNull(funcaoValor);
+		MapaAoVivo<K, V> mapa = new MapaAoVivo<>(juncao);
+		fonte.subscribe(new Consumidor<T>(Fluxo.BUFFER_PADRAO) {
+
+			@Override
+			public void onSubscribe(Fluxo.Subscription assinatura) {
+				mapa.assinado(assinatura);
+				super.onSubscribe(assinatura);
+			}
+
+			@Override
+			void consome(T item) {
+				mapa.junta(funcaoChave.apply(item), funcaoValor.apply(item));
+			}
+
+			@Override
+			void termina(Throwable erro) {
+				mapa.termina(erro);
+			}
+		});
+		return mapa;
+	}
+
+	/**
+	 * Consome todos os elementos, pedindo de Fluxo.BUFFER_PADRAO em
+	 * Fluxo.BUFFER_PADRAO. O resultado completa quando a fonte terminar.
+	 */
+	public CompletableFuture<Void> forEach(Consumer<? super T> acao) {
+		CompletableFuture<Void> fim = new CompletableFuture<>();
+		fonte.subscribe(new Consumidor<T>(Fluxo.BUFFER_PADRAO) {
+
+			@Override
+			void consome(T item) {
+				acao.accept(item);
+			}
+
+			@Override
+			void termina(Throwable erro) {
+				if (erro == null)
+					fim.complete(null);
+				else
+					fim.completeExceptionally(erro);
+			}
+		});
+		return fim;
+	}
+
+	/*
+	 * Uma operação um-para-um: repassa pedidos e cancelamentos para cima e
+	 * sinais de término para baixo.
+	 */
+	private abstract static class Operacao<T, R> implements Fluxo.Subscriber<T>, Fluxo.Subscription {
+
+		final Fluxo.Subscriber<? super R> abaixo;
+		Fluxo.Subscription acima;
+		private boolean terminada;
+
+		Operacao(Fluxo.Subscriber<? super R> abaixo) {
+			this.abaixo = Objects.requireNonNull(abaixo);
+		}
+
+		@Override
+		public void onSubscribe(Fluxo.Subscription acima) {
+			this.acima = acima;
+			abaixo.onSubscribe(this);
+		}
+
+		void falha(Throwable t) {
+			acima.cancel();
+			onError(t);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			if (!terminada) {
+				terminada = true;
+				abaixo.onError(throwable);
+			}
+		}
+
+		@Override
+		public void onComplete() {
+			if (!terminada) {
+				terminada = true;
+				abaixo.onComplete();
+			}
+		}
+
+		@Override
+		public void request(long n) {
+			acima.request(n);
+		}
+
+		@Override
+		public void cancel() {
+			acima.cancel();
+		}
+	}
+
+	/*
+	 * Base para quem consome no fim do pipeline: pede "lote" elementos e pede
+	 * mais quando metade deles chegou.
+	 */
+	private abstract static class Consumidor<T> implements Fluxo.Subscriber<T> {
+
+		private final int lote;
+		private Fluxo.Subscription assinatura;
+		private int recebidos;
+
+		Consumidor(int lote) {
+			this.lote = lote;
+		}
+
+		abstract void consome(T item);
+
+		abstract void termina(Throwable erro);
+
+		@Override
+		public void onSubscribe(Fluxo.Subscription assinatura) {
+			this.assinatura = assinatura;
+			assinatura.request(lote);
+		}
+
+		@Override
+		public void onNext(T item) {
+			try {
+				consome(item);
+			} catch (Throwable t) {
+				assinatura.cancel();
+				termina(t);
+				return;
+			}
+			if (++recebidos == lote / 2 + 1) {
+				recebidos = 0;
+				assinatura.request(lote / 2 + 1);
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			termina(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			termina(null);
+		}
+	}
+
+	/*
+	 * Fecha as janelas pelo tempo. Uma única thread daemon para todas as
+	 * janelas; ela só fecha a janela e passa a entrega para o executor da
+	 * janela, então nenhum código do assinante roda nela.
+	 */
+	private static final class Relogio {
+
+		static final ScheduledExecutorService AGENDADOR = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+			Thread thread = new Thread(tarefa, "pipeline-janelas");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/*
+	 * O estado fica protegido pelo lock do próprio objeto, pois os elementos
+	 * chegam pela thread de quem publica e o fechamento por tempo vem do
+	 * Relogio. As entregas para baixo acontecem fora do lock, uma por vez
+	 * (controladas por "entregando"): na thread de quem publica ou pede, ou no
+	 * executor quando a janela fecha pelo tempo.
+	 */
+	private static final class Janela<T, A, R> implements Fluxo.Subscriber<T>, Fluxo.Subscription {
+
+		private final Fluxo.Subscriber<? super R> abaixo;
+		private final Supplier<A> fornecedor;
+		private final BiConsumer<A, ? super T> acumulador;
+		private final Function<A, R> finalizador;
+		private final int maxElementos;
+		private final long nanos;
+		private final int antecipados;
+		private final Executor executor;
+
+		private Fluxo.Subscription acima;
+		private A atual;
+		private int elementos;
+		private long geracao;
+		private ScheduledFuture<?> fechamento;
+		private final ArrayDeque<R> prontas = new ArrayDeque<>();
+		private long demanda;
+		private long pedidos;
+		private boolean entregando;
+		private boolean fimDaFonte;
+		private Throwable erro;
+		private boolean terminada;
+		private boolean cancelada;
+
+		Janela(Fluxo.Subscriber<? super R> abaixo, Collector<? super T, A, R> coletor, int maxElementos, long nanos,
+				Executor executor) {
+			this.abaixo = abaixo;
+			this.executor = executor;
+			this.fornecedor = coletor.supplier();
+			this.acumulador = coletor.accumulator();
+			this.finalizador = coletor.finisher();
+			this.maxElementos = maxElementos;
+			this.nanos = nanos;
+			this.antecipados = Math.min(maxElementos, Fluxo.BUFFER_PADRAO);
+			this.atual = fornecedor.get();
+		}
+
+		@Override
+		public void onSubscribe(Fluxo.Subscription acima) {
+			synchronized (this) {
+				this.acima = acima;
+			}
+			abaixo.onSubscribe(this);
+			pedeMais();
+		}
+
+		@Override
+		public void onNext(T item) {
+			synchronized (this) {
+				if (cancelada || fimDaFonte)
+					return;
+				pedidos--;
+				try {
+					acumulador.accept(atual, item);
+				} catch (Throwable t) {
+					cancelada = true;
+					fimDaFonte = true;
+					erro = t;
+				}
+				if (erro == null && ++elementos == 1 && elementos < maxElementos) {
+					long esta = geracao;
+					fechamento = Relogio.AGENDADOR.schedule(() -> fechaPorTempo(esta), nanos, TimeUnit.NANOSECONDS);
+				}
+				if (elementos >= maxElementos)
+					fecha();
+			}
+			if (erro != null)
+				acima.cancel();
+			entrega();
+			pedeMais();
+		}
+
+		/*
+		 * Roda na thread do Relogio: só fecha a janela e agenda a entrega.
+		 */
+		private void fechaPorTempo(long janela) {
+			synchronized (this) {
+				if (janela != geracao || elementos == 0 || cancelada)
+					return;
+				fecha();
+			}
+			try {
+				executor.execute(this::entrega);
+			} catch (RejectedExecutionException e) {
+				/*
+				 * Sem executor não há onde entregar; o erro segue para o
+				 * assinante no próximo request.
+				 */
+				synchronized (this) {
+					cancelada = true;
+					fimDaFonte = true;
+					erro = e;
+				}
+				acima.cancel();
+			}
+		}
+
+		/*
+		 * Sempre chamado com o lock.
+		 */
+		private void fecha() {
+			prontas.add(finalizador.apply(atual));
+			atual = fornecedor.get();
+			elementos = 0;
+			geracao++;
+			if (fechamento != null) {
+				fechamento.cancel(false);
+				fechamento = null;
+			}
+		}
+
+		/*
+		 * Pede mais elementos quando restam menos da metade dos antecipados e
+		 * não há janelas prontas demais esperando.
+		 */
+		private void pedeMais() {
+			long n;
+			synchronized (this) {
+				if (acima == null || fimDaFonte || cancelada || prontas.size() >= JANELAS_PRONTAS
+						|| pedidos > antecipados / 2)
+					return;
+				n = antecipados - pedidos;
+				pedidos += n;
+			}
+			acima.request(n);
+		}
+
+		private void entrega() {
+			for (;;) {
+				R proxima;
+				synchronized (this) {
+					if (entregando || terminada)
+						return;
+					if (cancelada && erro == null) {
+						prontas.clear();
+						return;
+					}
+					if (prontas.isEmpty() || demanda == 0) {
+						if (fimDaFonte && (prontas.isEmpty() || erro != null)) {
+							terminada = true;
+							prontas.clear();
+						} else {
+							return;
+						}
+						proxima = null;
+					} else {
+						proxima = prontas.poll();
+						if (demanda != Long.MAX_VALUE)
+							demanda--;
+						entregando = true;
+					}
+				}
+				if (proxima == null) {
+					if (erro != null)
+						abaixo.onError(erro);
+					else
+						abaixo.onComplete();
+					return;
+				}
+				try {
+					abaixo.onNext(proxima);
+				} finally {
+					synchronized (this) {
+						entregando = false;
+					}
+				}
+				pedeMais();
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			synchronized (this) {
+				if (fimDaFonte)
+					return;
+				fimDaFonte = true;
+				erro = throwable;
+			}
+			entrega();
+		}
+
+		@Override
+		public void onComplete() {
+			synchronized (this) {
+				if (fimDaFonte)
+					return;
+				fimDaFonte = true;
+				if (elementos > 0)
+					fecha();
+			}
+			entrega();
+		}
+
+		@Override
+		public void request(long n) {
+			synchronized (this) {
+				if (n <= 0) {
+					cancelada = true;
+					fimDaFonte = true;
+					erro = new IllegalArgumentException("request deve ser positivo: " + n);
+				} else {
+					demanda = Fluxo.somaDemanda(demanda, n);
+				}
+			}
+			if (n <= 0)
+				acima.cancel();
+			entrega();
+			pedeMais();
+		}
+
+		@Override
+		public void cancel() {
+			synchronized (this) {
+				cancelada = true;
+				if (fechamento != null)
+					fechamento.cancel(false);
+			}
+			acima.cancel();
+		}
+	}
+}
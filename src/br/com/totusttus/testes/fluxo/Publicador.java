@@ -0,0 +1,238 @@
+package br.com.totusttus.testes.fluxo;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publica os elementos submetidos (por exemplo, as matrículas que chegam) para
+ * todos os assinantes, como o SubmissionPublisher do Java 9.
+ *
+ * Cada assinante tem um buffer limitado. Quando o buffer de algum assinante
+ * está cheio, submit() espera abrir espaço (quem produz é freado) e offer()
+ * descarta o elemento para esse assinante e devolve false. Assim a memória
+ * fica limitada mesmo que um assinante seja lento.
+ *
+ * As entregas rodam no Executor, em lotes: uma tarefa entrega até "lote"
+ * elementos e, se ainda houver mais, agenda outra tarefa no lugar de ocupar a
+ * thread indefinidamente. Um assinante lento não segura os outros, e uma
+ * rajada não cria uma tarefa por elemento.
+ *
+ * <pre>
+ * try (Publicador&lt;Curso&gt; publicador = new Publicador&lt;&gt;()) {
+ * 	Pipeline.de(publicador).filter(c -> c.getAlunos() > 100).subscribe(assinante);
+ * 	cursos.forEach(publicador::submit);
+ * }
+ * </pre>
+ *
+ * @author thiag
+ *
+ */
+public class Publicador<T> implements Fluxo.Publisher<T>, AutoCloseable {
+
+	private final Executor executor;
+	private final int capacidade;
+	private final int lote;
+	private final List<Assinatura> assinaturas = new CopyOnWriteArrayList<>();
+	private volatile boolean fechado;
+	private volatile Throwable erro;
+
+	/**
+	 * Entrega no ForkJoinPool comum, com buffers de Fluxo.BUFFER_PADRAO.
+	 */
+	public Publicador() {
+		this(ForkJoinPool.commonPool(), Fluxo.BUFFER_PADRAO, 64);
+	}
+
+	public Publicador(Executor executor, int capacidade, int lote) {
+		if (capacidade < 1 || lote < 1)
+			throw new IllegalArgumentException("Capacidade e lote devem ser positivos");
+		this.executor = Objects.requireNonNull(executor);
+		this.capacidade = capacidade;
+		this.lote = lote;
+	}
+
+	@Override
+	public void subscribe(Fluxo.Subscriber<? super T> assinante) {
+		Assinatura assinatura = new Assinatura(Objects.requireNonNull(assinante));
+		assinaturas.add(assinatura);
+		assinante.onSubscribe(assinatura);
+		if (fechado)
+			assinatura.agenda();
+	}
+
+	/**
+	 * Entrega o elemento para todos os assinantes, esperando enquanto o buffer
+	 * de algum deles estiver cheio.
+	 */
+	public void submit(T item) {
+		Objects.requireNonNull(item);
+		verificaAberto();
+		for (Assinatura assinatura : assinaturas) {
+			try {
+				if (!assinatura.cancelada)
+					assinatura.buffer.put(item);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrompido esperando espaço no buffer", e);
+			}
+			assinatura.agenda();
+		}
+	}
+
+	/**
+	 * Entrega o elemento sem esperar. Devolve false se o buffer de algum
+	 * assinante estava cheio; para esse assinante o elemento é descartado.
+	 */
+	public boolean offer(T item) {
+		Objects.requireNonNull(item);
+		verificaAberto();
+		boolean entregue = true;
+		for (Assinatura assinatura : assinaturas) {
+			if (!assinatura.cancelada && !assinatura.buffer.offer(item))
+				entregue = false;
+			assinatura.agenda();
+		}
+		return entregue;
+	}
+
+	private void verificaAberto() {
+		if (fechado)
+			throw new IllegalStateException("Publicador fechado");
+	}
+
+	public int getNumeroDeAssinantes() {
+		return assinaturas.size();
+	}
+
+	/**
+	 * Maior quantidade de elementos esperando no buffer de um assinante.
+	 */
+	public int getMaiorAtraso() {
+		int maior = 0;
+		for (Assinatura assinatura : assinaturas)
+			maior = Math.max(maior, assinatura.buffer.size());
+		return maior;
+	}
+
+	/**
+	 * Não aceita mais elementos; cada assinante recebe onComplete depois de
+	 * receber o que já estava no buffer.
+	 */
+	@Override
+	public void close() {
+		fechado = true;
+		assinaturas.forEach(Assinatura::agenda);
+	}
+
+	/**
+	 * Como o close(), mas os assinantes recebem onError.
+	 */
+	public void closeExceptionally(Throwable erro) {
+		this.erro = Objects.requireNonNull(erro);
+		close();
+	}
+
+	/*
+	 * O buffer e a demanda de um assinante. Só uma tarefa de entrega roda por
+	 * vez para cada assinante: quem incrementa "trabalho" de 0 para 1 agenda a
+	 * tarefa, e ela roda enquanto houver trabalho.
+	 */
+	private final class Assinatura implements Fluxo.Subscription, Runnable {
+
+		final Fluxo.Subscriber<? super T> assinante;
+		final ArrayBlockingQueue<T> buffer = new ArrayBlockingQueue<>(capacidade);
+		final AtomicLong demanda = new AtomicLong();
+		final AtomicInteger trabalho = new AtomicInteger();
+		volatile boolean cancelada;
+		volatile Throwable pedidoInvalido;
+		boolean terminada;
+
+		Assinatura(Fluxo.Subscriber<? super T> assinante) {
+			this.assinante = assinante;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0)
+				pedidoInvalido = new IllegalArgumentException("request deve ser positivo: " + n);
+			else
+				demanda.accumulateAndGet(n, Fluxo::somaDemanda);
+			agenda();
+		}
+
+		@Override
+		public void cancel() {
+			cancelada = true;
+			agenda();
+		}
+
+		void agenda() {
+			if (trabalho.getAndIncrement() == 0)
+				executor.execute(this);
+		}
+
+		@Override
+		public void run() {
+			int entregues = 0;
+			int pendente = trabalho.get();
+			for (;;) {
+				if (terminada)
+					return;
+				if (pedidoInvalido != null) {
+					termina();
+					assinante.onError(pedidoInvalido);
+					return;
+				}
+				if (cancelada) {
+					termina();
+					return;
+				}
+				while (demanda.get() > 0 && !cancelada) {
+					if (entregues == lote) {
+						/*
+						 * Libera a thread: o resto vai em outra tarefa.
+						 */
+						executor.execute(this);
+						return;
+					}
+					T item = buffer.poll();
+					if (item == null)
+						break;
+					demanda.decrementAndGet();
+					entregues++;
+					try {
+						assinante.onNext(item);
+					} catch (Throwable t) {
+						cancelada = true;
+						termina();
+						assinante.onError(t);
+						return;
+					}
+				}
+				if (fechado && buffer.isEmpty() && !cancelada) {
+					termina();
+					if (erro != null)
+						assinante.onError(erro);
+					else
+						assinante.onComplete();
+					return;
+				}
+				pendente = trabalho.addAndGet(-pendente);
+				if (pendente == 0)
+					return;
+			}
+		}
+
+		private void termina() {
+			terminada = true;
+			assinaturas.remove(this);
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package br.com.totusttus.testes.io;
+
+import java.nio.ByteOrder;
+
+/**
+ * Constantes do formato binário de arquivos de cursos, usado pelo
+ * EscritorDeCursos e pelo LeitorDeCursos.
+ *
+ * <pre>
+ * cabeçalho (16 bytes):
+ *   int  MAGICO ("CURS")
+ *   int  VERSAO
+ *   long reservado
+ *
+ * blocos, um por lote gravado, até o fim do arquivo:
+ *   int  quantidade de registros (n)
+ *   int  quantidade de nomes novos no dicionário (m)
+ *   int  tamanho em bytes da área de nomes (múltiplo de 4)
+ *   área de nomes: m vezes (int tamanho em bytes + bytes UTF-8), completada
+ *                  com zeros até um múltiplo de 4
+ *   int[n] id do nome de cada registro
+ *   int[n] alunos de cada registro
+ * </pre>
+ *
+ * O dicionário de nomes é global: os ids de um bloco podem apontar para
+ * nomes cadastrados em qualquer bloco anterior. Todos os inteiros são little
+ * endian e as colunas ficam alinhadas em 4 bytes, para poderem ser lidas como
+ * IntBuffer direto do arquivo mapeado.
+ *
+ * @author thiag
+ *
+ */
+final class ArquivoDeCursos {
+
+	static final int MAGICO = 0x53525543; // "CURS" em little endian
+	static final int VERSAO = 1;
+	static final int TAMANHO_DO_CABECALHO = 16;
+	static final int TAMANHO_DO_CABECALHO_DO_BLOCO = 12;
+	static final ByteOrder ORDEM = ByteOrder.LITTLE_ENDIAN;
+
+	private ArquivoDeCursos() {
+	}
+
+	static int alinhado(int tamanho) {
+		return (tamanho + 3) & ~3;
+	}
+}
@@ -0,0 +1,272 @@
+package br.com.totusttus.testes.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import br.com.totusttus.testes.model.Curso;
+
+/**
+ * Carrega cursos de arquivos texto com uma linha por curso, no formato
+ * "nome,alunos" (o separador é configurável).
+ *
+ * O arquivo é mapeado em memória e exposto como um Spliterator que divide o
+ * intervalo de bytes ao meio, sempre em um fim de linha. Assim um
+ * parallelStream reparte o arquivo entre os workers do ForkJoinPool, e cada
+ * um lê as suas linhas direto do buffer mapeado, sem BufferedReader e sem
+ * String.split.
+ *
+ * O nome é tudo o que vem antes do último separador da linha, então nomes
+ * com o separador no meio funcionam. Aspas de CSV não são tratadas. Linhas
+ * vazias são ignoradas e o fim de linha pode ser \n ou \r\n.
+ *
+ * <pre>
+ * CarregadorDeCursos carregador = new CarregadorDeCursos(',', true);
+ * int soma = carregador.carrega(caminho).parallel().filter(c -> c.getAlunos() > 100)
+ * 		.mapToInt(c -> c.getAlunos()).sum();
+ * </pre>
+ *
+ * @author thiag
+ *
+ */
+public class CarregadorDeCursos {
+
+	/*
+	 * Arquivos maiores que isso são mapeados em mais de um pedaço, pois cada
+	 * mapeamento tem no máximo 2 GB.
+	 */
+	private static final int TAMANHO_MAXIMO_DO_SEGMENTO = 1 << 30;
+
+	/*
+	 * Abaixo disso não vale a pena dividir o trabalho.
+	 */
+	private static final int TAMANHO_MINIMO_PARA_DIVIDIR = 64 * 1024;
+
+	private final byte separador;
+	private final boolean temCabecalho;
+
+	public CarregadorDeCursos() {
+		this(',', false);
+	}
+
+	public CarregadorDeCursos(char separador, boolean temCabecalho) {
+		if (separador > 0x7F || separador == '\n' || separador == '\r')
+			throw new IllegalArgumentException("Separador inválido: " + separador);
+		this.separador = (byte) separador;
+		this.temCabecalho = temCabecalho;
+	}
+
+	/**
+	 * Stream sequencial dos cursos do arquivo; use parallel() para dividir a
+	 * leitura entre os núcleos.
+	 */
+	public Stream<Curso> carrega(Path caminho) throws IOException {
+		return StreamSupport.stream(spliterator(caminho), false);
+	}
+
+	public Spliterator<Curso> spliterator(Path caminho) throws IOException {
+		try (FileChannel canal = FileChannel.open(caminho, StandardOpenOption.READ)) {
+			List<MappedByteBuffer> segmentos = mapeia(canal);
+			LinhasDeCursos linhas = new LinhasDeCursos(segmentos.toArray(new ByteBuffer[0]));
+			if (temCabecalho)
+				linhas.pulaLinha();
+			return linhas;
+		}
+	}
+
+	/*
+	 * Divide o arquivo em pedaços de até 1 GB que terminam em fim de linha.
+	 */
+	private static List<MappedByteBuffer> mapeia(FileChannel canal) throws IOException {
+		List<MappedByteBuffer> segmentos = new ArrayList<>();
+		long tamanho = canal.size();
+		long inicio = 0;
+		while (inicio < tamanho) {
+			long fim = Math.min(inicio + TAMANHO_MAXIMO_DO_SEGMENTO, tamanho);
+			MappedByteBuffer segmento = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fim - inicio);
+			if (fim < tamanho) {
+				int ultimaQuebra = segmento.limit() - 1;
+				while (ultimaQuebra >= 0 && segmento.get(ultimaQuebra) != '\n')
+					ultimaQuebra--;
+				if (ultimaQuebra < 0)
+					throw new IOException("Linha maior que " + TAMANHO_MAXIMO_DO_SEGMENTO + " bytes");
+				fim = inicio + ultimaQuebra + 1;
+				segmento.limit(ultimaQuebra + 1);
+			}
+			segmentos.add(segmento);
+			inicio = fim;
+		}
+		return segmentos;
+	}
+
+	/*
+	 * Spliterator sobre um ou mais segmentos mapeados. Enquanto cobre mais de
+	 * um segmento, divide a lista de segmentos; quando cobre um só, divide o
+	 * intervalo de bytes ao meio, avançando até a próxima quebra de linha.
+	 */
+	private class LinhasDeCursos implements Spliterator<Curso> {
+
+		private final ByteBuffer[] segmentos;
+		private int segmento;
+		private int fimDosSegmentos;
+		private int posicao;
+		private int limite;
+		private byte[] rascunho = new byte[64];
+
+		LinhasDeCursos(ByteBuffer[] segmentos) {
+			this(segmentos, 0, segmentos.length, 0, segmentos.length > 0 ? segmentos[0].limit() : 0);
+		}
+
+		LinhasDeCursos(ByteBuffer[] segmentos, int segmento, int fimDosSegmentos, int posicao, int limite) {
+			this.segmentos = segmentos;
+			this.segmento = segmento;
+			this.fimDosSegmentos = fimDosSegmentos;
+			this.posicao = posicao;
+			this.limite = limite;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Curso> acao) {
+			while (segmento < fimDosSegmentos) {
+				ByteBuffer buffer = segmentos[segmento];
+				while (posicao < limite) {
+					Curso curso = leLinha(buffer);
+					if (curso != null) {
+						acao.accept(curso);
+						return true;
+					}
+				}
+				proximoSegmento();
+			}
+			return false;
+		}
+
+		private void proximoSegmento() {
+			segmento++;
+			posicao = 0;
+			limite = segmento < fimDosSegmentos ? segmentos[segmento].limit() : 0;
+		}
+
+		void pulaLinha() {
+			if (segmento < fimDosSegmentos)
+				posicao = fimDaLinha(segmentos[segmento], posicao, limite) + 1;
+		}
+
+		/*
+		 * Lê a linha que começa na posição atual e avança para a próxima.
+		 * Devolve null para linhas vazias.
+		 */
+		private Curso leLinha(ByteBuffer buffer) {
+			int inicio = posicao;
+			int quebra = fimDaLinha(buffer, inicio, limite);
+			posicao = quebra + 1;
+
+			int fim = quebra;
+			if (fim > inicio && buffer.get(fim - 1) == '\r')
+				fim--;
+			if (fim == inicio)
+				return null;
+
+			int divisao = fim - 1;
+			while (divisao >= inicio && buffer.get(divisao) != separador)
+				divisao--;
+			if (divisao < inicio)
+				throw linhaInvalida(buffer, inicio, fim, "separador não encontrado");
+
+			return new Curso(nome(buffer, inicio, divisao), numero(buffer, divisao + 1, fim, inicio));
+		}
+
+		private int fimDaLinha(ByteBuffer buffer, int inicio, int limite) {
+			int i = inicio;
+			while (i < limite && buffer.get(i) != '\n')
+				i++;
+			return i;
+		}
+
+		private String nome(ByteBuffer buffer, int inicio, int fim) {
+			int tamanho = fim - inicio;
+			if (rascunho.length < tamanho)
+				rascunho = new byte[Math.max(tamanho, rascunho.length * 2)];
+			for (int i = 0; i < tamanho; i++)
+				rascunho[i] = buffer.get(inicio + i);
+			return new String(rascunho, 0, tamanho, StandardCharsets.UTF_8);
+		}
+
+		private int numero(ByteBuffer buffer, int inicio, int fim, int inicioDaLinha) {
+			while (inicio < fim && buffer.get(inicio) == ' ')
+				inicio++;
+			while (fim > inicio && buffer.get(fim - 1) == ' ')
+				fim--;
+			boolean negativo = inicio < fim && buffer.get(inicio) == '-';
+			if (negativo)
+				inicio++;
+			if (inicio == fim)
+				throw linhaInvalida(buffer, inicioDaLinha, fim, "quantidade de alunos vazia");
+
+			long valor = 0;
+			for (int i = inicio; i < fim; i++) {
+				int digito = buffer.get(i) - '0';
+				if (digito < 0 || digito > 9)
+					throw linhaInvalida(buffer, inicioDaLinha, fim, "quantidade de alunos não é um número");
+				valor = valor * 10 + digito;
+				if (valor > (negativo ? Integer.MAX_VALUE + 1L : Integer.MAX_VALUE))
+					throw linhaInvalida(buffer, inicioDaLinha, fim, "quantidade de alunos grande demais");
+			}
+			return (int) (negativo ? -valor : valor);
+		}
+
+		private IllegalArgumentException linhaInvalida(ByteBuffer buffer, int inicio, int fim, String motivo) {
+			return new IllegalArgumentException(
+					"Linha inválida (" + motivo + ") no segmento " + segmento + ", byte " + inicio + ": "
+							+ nome(buffer, inicio, Math.min(fim, inicio + 200)));
+		}
+
+		@Override
+		public Spliterator<Curso> trySplit() {
+			if (fimDosSegmentos - segmento > 1) {
+				int meio = (segmento + fimDosSegmentos) >>> 1;
+				LinhasDeCursos prefixo = new LinhasDeCursos(segmentos, segmento, meio, posicao, limite);
+				segmento = meio;
+				posicao = 0;
+				limite = segmentos[meio].limit();
+				return prefixo;
+			}
+
+			if (segmento >= fimDosSegmentos || limite - posicao < TAMANHO_MINIMO_PARA_DIVIDIR)
+				return null;
+			ByteBuffer buffer = segmentos[segmento];
+			int meio = fimDaLinha(buffer, (posicao + limite) >>> 1, limite) + 1;
+			if (meio >= limite)
+				return null;
+			LinhasDeCursos prefixo = new LinhasDeCursos(segmentos, segmento, segmento + 1, posicao, meio);
+			posicao = meio;
+			return prefixo;
+		}
+
+		@Override
+		public long estimateSize() {
+			long bytes = limite - posicao;
+			for (int i = segmento + 1; i < fimDosSegmentos; i++)
+				bytes += segmentos[i].limit();
+			/*
+			 * Estimativa grosseira de uma linha a cada 16 bytes.
+			 */
+			return bytes / 16;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL | IMMUTABLE;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package br.com.totusttus.testes.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import br.com.totusttus.testes.model.Curso;
+
+/**
+ * Grava cursos no formato descrito em ArquivoDeCursos, em lotes.
+ *
+ * Os registros ficam em arrays de int até completar um lote (ou até o flush),
+ * e cada lote vira um bloco gravado com uma única escrita no FileChannel.
+ *
+ * <pre>
+ * try (EscritorDeCursos escritor = EscritorDeCursos.cria(caminho)) {
+ * 	escritor.addTodos(cursos);
+ * }
+ * </pre>
+ *
+ * @author thiag
+ *
+ */
+public class EscritorDeCursos implements AutoCloseable {
+
+	public static final int TAMANHO_PADRAO_DO_LOTE = 1 << 20;
+
+	/*
+	 * Cada bloco é mapeado de uma vez pelo leitor, e um mapeamento tem no
+	 * máximo 2 GB.
+	 */
+	private static final int TAMANHO_MAXIMO_DO_LOTE = 1 << 26;
+
+	private final FileChannel canal;
+	private final int tamanhoDoLote;
+
+	private final Map<String, Integer> idsPorNome = new HashMap<>();
+	private final List<String> nomesNovos = new ArrayList<>();
+
+	private final int[] ids;
+	private final int[] alunos;
+	private int pendentes;
+
+	private EscritorDeCursos(FileChannel canal, int tamanhoDoLote) {
+		if (tamanhoDoLote <= 0 || tamanhoDoLote > TAMANHO_MAXIMO_DO_LOTE)
+			throw new IllegalArgumentException("Tamanho do lote inválido: " + tamanhoDoLote);
+		this.canal = canal;
+		this.tamanhoDoLote = tamanhoDoLote;
+		this.ids = new int[tamanhoDoLote];
+		this.alunos = new int[tamanhoDoLote];
+	}
+
+	/**
+	 * Cria um arquivo novo, sobrescrevendo o existente.
+	 */
+	public static EscritorDeCursos cria(Path caminho) throws IOException {
+		return cria(caminho, TAMANHO_PADRAO_DO_LOTE);
+	}
+
+	public static EscritorDeCursos cria(Path caminho, int tamanhoDoLote) throws IOException {
+		FileChannel canal = FileChannel.open(caminho, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		EscritorDeCursos escritor = new EscritorDeCursos(canal, tamanhoDoLote);
+		ByteBuffer cabecalho = ByteBuffer.allocate(ArquivoDeCursos.TAMANHO_DO_CABECALHO)
+				.order(ArquivoDeCursos.ORDEM);
+		cabecalho.putInt(ArquivoDeCursos.MAGICO).putInt(ArquivoDeCursos.VERSAO).putLong(0).flip();
+		escritor.escreve(cabecalho);
+		return escritor;
+	}
+
+	/**
+	 * Abre um arquivo existente para acrescentar novos blocos no final. Se o
+	 * arquivo não existir, ele é criado.
+	 */
+	public static EscritorDeCursos abre(Path caminho) throws IOException {
+		if (!Files.exists(caminho))
+			return cria(caminho);
+
+		List<String> dicionario;
+		try (LeitorDeCursos leitor = LeitorDeCursos.abre(caminho)) {
+			dicionario = leitor.dicionario();
+		}
+		FileChannel canal = FileChannel.open(caminho, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		EscritorDeCursos escritor = new EscritorDeCursos(canal, TAMANHO_PADRAO_DO_LOTE);
+		for (int id = 0; id < dicionario.size(); id++)
+			escritor.idsPorNome.put(dicionario.get(id), id);
+		return escritor;
+	}
+
+	public void add(Curso curso) throws IOException {
+		add(curso.getNome(), curso.getAlunos());
+	}
+
+	public void add(String nome, int quantidadeDeAlunos) throws IOException {
+		Integer id = idsPorNome.get(nome);
+		if (id == null) {
+			id = idsPorNome.size();
+			idsPorNome.put(nome, id);
+			nomesNovos.add(nome);
+		}
+		ids[pendentes] = id;
+		alunos[pendentes] = quantidadeDeAlunos;
+		if (++pendentes == tamanhoDoLote)
+			flush();
+	}
+
+	public void addTodos(Collection<Curso> cursos) throws IOException {
+		for (Curso curso : cursos)
+			add(curso);
+	}
+
+	/**
+	 * Grava os registros pendentes como um novo bloco.
+	 */
+	public void flush() throws IOException {
+		if (pendentes == 0)
+			return;
+
+		List<byte[]> nomes = new ArrayList<>(nomesNovos.size());
+		int tamanhoDosNomes = 0;
+		for (String nome : nomesNovos) {
+			byte[] bytes = nome.getBytes(StandardCharsets.UTF_8);
+			nomes.add(bytes);
+			tamanhoDosNomes += 4 + bytes.length;
+		}
+		int tamanhoAlinhado = ArquivoDeCursos.alinhado(tamanhoDosNomes);
+
+		ByteBuffer bloco = ByteBuffer
+				.allocate(ArquivoDeCursos.TAMANHO_DO_CABECALHO_DO_BLOCO + tamanhoAlinhado + 8 * pendentes)
+				.order(ArquivoDeCursos.ORDEM);
+		bloco.putInt(pendentes).putInt(nomes.size()).putInt(tamanhoAlinhado);
+		for (byte[] nome : nomes)
+			bloco.putInt(nome.length).put(nome);
+		bloco.position(bloco.position() + tamanhoAlinhado - tamanhoDosNomes);
+		bloco.asIntBuffer().put(ids, 0, pendentes).put(alunos, 0, pendentes);
+		bloco.position(bloco.capacity()).flip();
+		escreve(bloco);
+
+		nomesNovos.clear();
+		pendentes = 0;
+	}
+
+	private void escreve(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			canal.write(buffer);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			canal.close();
+		}
+	}
+}
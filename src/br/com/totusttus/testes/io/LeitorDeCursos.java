@@ -0,0 +1,241 @@
+package br.com.totusttus.testes.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import br.com.totusttus.testes.model.Curso;
+
+/**
+ * Lê arquivos gravados pelo EscritorDeCursos mapeando-os em memória com
+ * FileChannel.map.
+ *
+ * Abrir o arquivo só percorre os cabeçalhos dos blocos e monta o dicionário
+ * de nomes; as colunas de ids e alunos ficam no arquivo mapeado e são lidas
+ * sob demanda pelo sistema operacional. Os Cursos devolvidos são visões
+ * (flyweights) sobre o arquivo: guardam apenas a posição e leem nome e
+ * alunos direto das colunas mapeadas.
+ *
+ * As visões só podem ser usadas enquanto o leitor estiver aberto.
+ *
+ * @author thiag
+ *
+ */
+public class LeitorDeCursos implements AutoCloseable {
+
+	private final FileChannel canal;
+	private final String[] dicionario;
+	private final Bloco[] blocos;
+	private final long[] inicioDosBlocos;
+	private final long tamanho;
+	private volatile boolean fechado;
+
+	private static class Bloco {
+		final IntBuffer ids;
+		final IntBuffer alunos;
+		final int quantidade;
+
+		Bloco(IntBuffer ids, IntBuffer alunos, int quantidade) {
+			this.ids = ids;
+			this.alunos = alunos;
+			this.quantidade = quantidade;
+		}
+	}
+
+	private LeitorDeCursos(FileChannel canal, String[] dicionario, Bloco[] blocos) {
+		this.canal = canal;
+		this.dicionario = dicionario;
+		this.blocos = blocos;
+		this.inicioDosBlocos = new long[blocos.length + 1];
+		for (int i = 0; i < blocos.length; i++)
+			inicioDosBlocos[i + 1] = inicioDosBlocos[i] + blocos[i].quantidade;
+		this.tamanho = inicioDosBlocos[blocos.length];
+	}
+
+	public static LeitorDeCursos abre(Path caminho) throws IOException {
+		FileChannel canal = FileChannel.open(caminho, StandardOpenOption.READ);
+		try {
+			return le(canal, caminho);
+		} catch (IOException | RuntimeException e) {
+			canal.close();
+			throw e;
+		}
+	}
+
+	private static LeitorDeCursos le(FileChannel canal, Path caminho) throws IOException {
+		long tamanhoDoArquivo = canal.size();
+		ByteBuffer cabecalho = leitura(canal, 0, ArquivoDeCursos.TAMANHO_DO_CABECALHO, caminho);
+		if (cabecalho.getInt() != ArquivoDeCursos.MAGICO)
+			throw new IOException("Não é um arquivo de cursos: " + caminho);
+		int versao = cabecalho.getInt();
+		if (versao != ArquivoDeCursos.VERSAO)
+			throw new IOException("Versão não suportada: " + versao);
+
+		List<String> dicionario = new ArrayList<>();
+		List<Bloco> blocos = new ArrayList<>();
+		long posicao = ArquivoDeCursos.TAMANHO_DO_CABECALHO;
+		while (posicao < tamanhoDoArquivo) {
+			ByteBuffer cabecalhoDoBloco = leitura(canal, posicao, ArquivoDeCursos.TAMANHO_DO_CABECALHO_DO_BLOCO,
+					caminho);
+			int quantidade = cabecalhoDoBloco.getInt();
+			int nomesNovos = cabecalhoDoBloco.getInt();
+			int tamanhoDosNomes = cabecalhoDoBloco.getInt();
+			long tamanhoDoBloco = ArquivoDeCursos.TAMANHO_DO_CABECALHO_DO_BLOCO + (long) tamanhoDosNomes
+					+ 8L * quantidade;
+			if (quantidade < 0 || nomesNovos < 0 || tamanhoDosNomes < 0 || posicao + tamanhoDoBloco > tamanhoDoArquivo
+					|| tamanhoDoBloco > Integer.MAX_VALUE)
+				throw new IOException("Bloco corrompido na posição " + posicao + " de " + caminho);
+
+			MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, posicao, tamanhoDoBloco);
+			mapa.order(ArquivoDeCursos.ORDEM);
+			mapa.position(ArquivoDeCursos.TAMANHO_DO_CABECALHO_DO_BLOCO);
+			for (int i = 0; i < nomesNovos; i++) {
+				byte[] bytes = new byte[mapa.getInt()];
+				mapa.get(bytes);
+				dicionario.add(new String(bytes, StandardCharsets.UTF_8));
+			}
+
+			int inicioDasColunas = ArquivoDeCursos.TAMANHO_DO_CABECALHO_DO_BLOCO + tamanhoDosNomes;
+			mapa.position(inicioDasColunas);
+			IntBuffer colunas = mapa.slice().order(ArquivoDeCursos.ORDEM).asIntBuffer();
+			colunas.limit(quantidade);
+			IntBuffer ids = colunas.slice();
+			colunas.limit(2 * quantidade).position(quantidade);
+			IntBuffer alunos = colunas.slice();
+			blocos.add(new Bloco(ids, alunos, quantidade));
+
+			posicao += tamanhoDoBloco;
+		}
+
+		return new LeitorDeCursos(canal, dicionario.toArray(new String[0]), blocos.toArray(new Bloco[0]));
+	}
+
+	private static ByteBuffer leitura(FileChannel canal, long posicao, int tamanho, Path caminho)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(tamanho).order(ArquivoDeCursos.ORDEM);
+		while (buffer.hasRemaining()) {
+			if (canal.read(buffer, posicao + buffer.position()) < 0)
+				throw new IOException("Arquivo truncado: " + caminho);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	public long size() {
+		return tamanho;
+	}
+
+	/**
+	 * Os nomes distintos do arquivo, na ordem dos ids.
+	 */
+	public List<String> dicionario() {
+		return Collections.unmodifiableList(Arrays.asList(dicionario));
+	}
+
+	private int bloco(long indice) {
+		if (indice < 0 || indice >= tamanho)
+			throw new IndexOutOfBoundsException("Indice: " + indice + ", tamanho: " + tamanho);
+		int bloco = Arrays.binarySearch(inicioDosBlocos, indice);
+		/*
+		 * Blocos vazios repetem o mesmo início; ficamos com o último deles.
+		 */
+		if (bloco >= 0) {
+			while (bloco + 1 < blocos.length && inicioDosBlocos[bloco + 1] == indice)
+				bloco++;
+			return bloco;
+		}
+		return -bloco - 2;
+	}
+
+	public String getNome(long indice) {
+		int bloco = bloco(indice);
+		return dicionario[blocos[bloco].ids.get((int) (indice - inicioDosBlocos[bloco]))];
+	}
+
+	public int getAlunos(long indice) {
+		int bloco = bloco(indice);
+		return blocos[bloco].alunos.get((int) (indice - inicioDosBlocos[bloco]));
+	}
+
+	/**
+	 * Visão do registro na posição informada.
+	 */
+	public Curso get(long indice) {
+		int bloco = bloco(indice);
+		return new CursoMapeado(blocos[bloco], (int) (indice - inicioDosBlocos[bloco]));
+	}
+
+	/**
+	 * Todos os registros como Stream<Curso>, bloco a bloco, para os mesmos
+	 * pipelines do StreamsTeste.
+	 */
+	public Stream<Curso> stream() {
+		verificaAberto();
+		return Arrays.stream(blocos)
+				.flatMap(bloco -> IntStream.range(0, bloco.quantidade).mapToObj(i -> new CursoMapeado(bloco, i)));
+	}
+
+	/**
+	 * A coluna de alunos como IntStream, lida direto do arquivo mapeado.
+	 */
+	public IntStream alunos() {
+		verificaAberto();
+		return Arrays.stream(blocos).flatMapToInt(bloco -> IntStream.range(0, bloco.quantidade).map(bloco.alunos::get));
+	}
+
+	private void verificaAberto() {
+		if (fechado)
+			throw new IllegalStateException("Leitor já foi fechado");
+	}
+
+	/**
+	 * Fecha o canal. Os mapeamentos são liberados pelo garbage collector quando
+	 * não houver mais referências para eles.
+	 */
+	@Override
+	public void close() throws IOException {
+		fechado = true;
+		canal.close();
+	}
+
+	/*
+	 * Curso que lê os dados do arquivo mapeado em vez de guardá-los.
+	 */
+	private class CursoMapeado extends Curso {
+
+		private final Bloco bloco;
+		private final int posicao;
+
+		CursoMapeado(Bloco bloco, int posicao) {
+			super(null, 0);
+			this.bloco = bloco;
+			this.posicao = posicao;
+		}
+
+		@Override
+		public String getNome() {
+			return dicionario[bloco.ids.get(posicao)];
+		}
+
+		@Override
+		public int getAlunos() {
+			return bloco.alunos.get(posicao);
+		}
+
+		@Override
+		public String toString() {
+			return getNome();
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package br.com.totusttus.testes.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import br.com.totusttus.testes.model.Curso;
+
+/**
+ * Guarda a lista de cursos já montada em um arquivo, no formato do
+ * EscritorDeCursos, para que as próximas execuções a carreguem em vez de
+ * montá-la de novo.
+ *
+ * Serve para programas curtos, como os main dos testes, em que montar o
+ * catálogo pesa no tempo até a primeira saída. O Curso não é Serializable, e
+ * nem precisa: o formato binário dos cursos lê o dicionário de nomes e duas
+ * colunas de int, sem a reflexão da serialização do Java.
+ *
+ * O snapshot só é usado quando a propriedade cursos.snapshot indica o
+ * arquivo:
+ *
+ * <pre>
+ * java -Dcursos.snapshot=build/inicio-rapido/cursos.bin br.com.totusttus.testes.StreamsTeste
+ * </pre>
+ *
+ * Se o arquivo não existir ou não puder ser lido, a lista é montada e o
+ * arquivo é gravado (ou regravado); quando ele existe e não pôde ser lido, o
+ * motivo vai para a saída de erro. Apague o arquivo quando a montagem mudar.
+ *
+ * @author thiag
+ *
+ */
+public final class SnapshotDeCursos {
+
+	public static final String PROPRIEDADE = "cursos.snapshot";
+
+	private SnapshotDeCursos() {
+	}
+
+	/**
+	 * Carrega do arquivo indicado em -Dcursos.snapshot ou, sem a propriedade,
+	 * só chama a montagem.
+	 */
+	public static List<Curso> carregaOuMonta(Supplier<List<Curso>> montagem) {
+		String caminho = System.getProperty(PROPRIEDADE);
+		if (caminho == null || caminho.isEmpty())
+			return montagem.get();
+		return carregaOuMonta(Paths.get(caminho), montagem);
+	}
+
+	public static List<Curso> carregaOuMonta(Path caminho, Supplier<List<Curso>> montagem) {
+		if (Files.isRegularFile(caminho)) {
+			try {
+				return carrega(caminho);
+			} catch (IOException e) {
+				/*
+				 * Snapshot corrompido ou de outra versão: montamos de novo e o
+				 * arquivo é regravado abaixo.
+				 */
+				System.err.println("Snapshot " + caminho + " ignorado, montando os cursos de novo: " + e);
+			}
+		}
+		List<Curso> cursos = montagem.get();
+		try {
+			grava(caminho, cursos);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Não foi possível gravar o snapshot " + caminho, e);
+		}
+		return cursos;
+	}
+
+	/**
+	 * Os cursos do arquivo, na ordem em que foram gravados. A lista pode ser
+	 * alterada (ordenada, por exemplo) sem afetar o arquivo.
+	 *
+	 * @throws IOException se o arquivo não puder ser lido ou não estiver no
+	 *             formato do EscritorDeCursos
+	 */
+	public static List<Curso> carrega(Path caminho) throws IOException {
+		try (LeitorDeCursos leitor = LeitorDeCursos.abre(caminho)) {
+			if (leitor.size() > Integer.MAX_VALUE)
+				throw new IOException("Cursos demais para uma lista: " + leitor.size() + " em " + caminho);
+			List<Curso> cursos = new ArrayList<>((int) leitor.size());
+			for (long i = 0; i < leitor.size(); i++)
+				cursos.add(new Curso(leitor.getNome(i), leitor.getAlunos(i)));
+			return cursos;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+			/*
+			 * O LeitorDeCursos confere o cabeçalho e o tamanho de cada bloco;
+			 * um nome ou um id estragado dentro do bloco só aparece assim, ao
+			 * decodificar.
+			 */
+			throw new IOException("Snapshot corrompido: " + caminho, e);
+		}
+	}
+
+	/**
+	 * Grava em um arquivo temporário ao lado do destino e depois o renomeia,
+	 * para que uma execução ao mesmo tempo nunca leia um snapshot pela metade.
+	 */
+	public static void grava(Path caminho, List<Curso> cursos) throws IOException {
+		Path absoluto = caminho.toAbsolutePath();
+		Files.createDirectories(absoluto.getParent());
+		Path temporario = Files.createTempFile(absoluto.getParent(), absoluto.getFileName().toString(), ".tmp");
+		try {
+			try (EscritorDeCursos escritor = EscritorDeCursos.cria(temporario, Math.max(1, cursos.size()))) {
+				escritor.addTodos(cursos);
+			}
+			Files.move(temporario, absoluto, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporario);
+		}
+	}
+}
@@ -0,0 +1,365 @@
+package br.com.totusttus.testes.model;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Catálogo de cursos guardado fora do heap, em ByteBuffers diretos.
+ *
+ * É a mesma ideia do CursoCatalog, mas os arrays ficam na memória nativa, que
+ * o garbage collector não percorre. Com dezenas de GB de cursos o heap fica
+ * pequeno e as pausas do GC não crescem com o tamanho do catálogo.
+ *
+ * Os dados ficam em páginas:
+ * <ul>
+ * <li>alunos: um int por curso, em páginas de PAGINA_DE_REGISTROS cursos;</li>
+ * <li>nomes: um long por curso com a posição do nome na arena;</li>
+ * <li>arena: os nomes em UTF-8, precedidos do tamanho, em páginas de
+ * PAGINA_DA_ARENA bytes.</li>
+ * </ul>
+ *
+ * Para um catálogo pequeno não reservar dezenas de MB, a primeira página de
+ * registros e a última da arena começam pequenas e dobram (copiando o
+ * conteúdo) até chegar ao tamanho cheio. A posição dentro da página não muda
+ * na cópia. A página trocada por uma maior só é liberada no close(), porque um
+ * alunos() em andamento pode continuar lendo dela; como os tamanhos dobram, as
+ * páginas trocadas somam menos que a página atual. Se a quantidade de cursos for conhecida, o construtor com a
+ * capacidade (ou o of) já cria a primeira página de registros com esse
+ * tamanho.
+ *
+ * Os Cursos devolvidos por get() e stream() são visões (flyweights): leem
+ * alunos e nome da memória nativa a cada chamada. O alunos() devolve um
+ * IntStream direto sobre as páginas de alunos.
+ *
+ * A memória é liberada no close(), sem esperar o GC. Depois disso nenhuma
+ * visão pode ser usada, e o close() só deve ser chamado quando nenhuma outra
+ * thread estiver lendo o catálogo. Não é seguro adicionar cursos de várias
+ * threads ao mesmo tempo; ler de várias threads, sim.
+ *
+ * @author thiag
+ *
+ */
+public class CatalogoForaDoHeap implements AutoCloseable {
+
+	public static final int PAGINA_DE_REGISTROS = 1 << 20;
+	public static final int PAGINA_DA_ARENA = 1 << 24;
+
+	private static final int BITS_DA_PAGINA = 20;
+	private static final int MASCARA_DA_PAGINA = PAGINA_DE_REGISTROS - 1;
+
+	private static final int PRIMEIRA_PAGINA_DE_REGISTROS = 1 << 10;
+	private static final int PRIMEIRA_PAGINA_DA_ARENA = 1 << 14;
+
+	private final int registrosNaPrimeiraPagina;
+	private final List<ByteBuffer> buffers = new ArrayList<>();
+	private IntBuffer[] alunos = new IntBuffer[0];
+	private LongBuffer[] nomes = new LongBuffer[0];
+	/*
+	 * Os ByteBuffers da última página de alunos e de nomes, que são os que
+	 * crescem e são liberados na troca.
+	 */
+	private ByteBuffer ultimaDeAlunos;
+	private ByteBuffer ultimaDeNomes;
+	private ByteBuffer[] arena = new ByteBuffer[0];
+	private int posicaoNaArena;
+	private long tamanho;
+	private long bytesAlocados;
+	private volatile boolean fechado;
+
+	public CatalogoForaDoHeap() {
+		this(0);
+	}
+
+	/**
+	 * Catálogo que espera receber cerca de capacidade cursos. A memória só é
+	 * reservada no primeiro add.
+	 */
+	public CatalogoForaDoHeap(long capacidade) {
+		if (capacidade < 0)
+			throw new IllegalArgumentException("Capacidade negativa: " + capacidade);
+		this.registrosNaPrimeiraPagina = (int) Math.min(Math.max(capacidade, PRIMEIRA_PAGINA_DE_REGISTROS),
+				PAGINA_DE_REGISTROS);
+	}
+
+	public static CatalogoForaDoHeap of(Collection<Curso> cursos) {
+		CatalogoForaDoHeap catalogo = new CatalogoForaDoHeap(cursos.size());
+		cursos.forEach(catalogo::add);
+		return catalogo;
+	}
+
+	private ByteBuffer aloca(int bytes) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+		buffers.add(buffer);
+		bytesAlocados += bytes;
+		return buffer;
+	}
+
+	/*
+	 * Nova página de bytes com o conteúdo da antiga. A antiga continua em
+	 * buffers e só é liberada no close(): um IntStream do alunos() ou uma visão
+	 * que já a pegou ainda pode ler dela.
+	 */
+	private ByteBuffer realoca(ByteBuffer antiga, int bytes) {
+		ByteBuffer nova = aloca(bytes);
+		ByteBuffer origem = antiga.duplicate();
+		origem.clear();
+		nova.put(origem).clear();
+		return nova;
+	}
+
+	/*
+	 * A capacidade dobrada até caber o necessário, sem passar do máximo.
+	 */
+	private static int dobra(int capacidade, long necessario, int maximo) {
+		long nova = capacidade;
+		while (nova < necessario)
+			nova *= 2;
+		return (int) Math.min(nova, maximo);
+	}
+
+	public void add(Curso curso) {
+		add(curso.getNome(), curso.getAlunos());
+	}
+
+	public void add(String nome, int quantidadeDeAlunos) {
+		verificaAberto();
+		int pagina = (int) (tamanho >>> BITS_DA_PAGINA);
+		int posicao = (int) (tamanho & MASCARA_DA_PAGINA);
+		if (pagina == alunos.length) {
+			int registros = pagina == 0 ? registrosNaPrimeiraPagina : PAGINA_DE_REGISTROS;
+			alunos = Arrays.copyOf(alunos, pagina + 1);
+			nomes = Arrays.copyOf(nomes, pagina + 1);
+			ultimaDeAlunos = aloca(registros * 4);
+			ultimaDeNomes = aloca(registros * 8);
+			alunos[pagina] = ultimaDeAlunos.asIntBuffer();
+			nomes[pagina] = ultimaDeNomes.asLongBuffer();
+		} else if (posicao == alunos[pagina].capacity()) {
+			int registros = dobra(posicao, posicao + 1, PAGINA_DE_REGISTROS);
+			ultimaDeAlunos = realoca(ultimaDeAlunos, registros * 4);
+			ultimaDeNomes = realoca(ultimaDeNomes, registros * 8);
+			alunos[pagina] = ultimaDeAlunos.asIntBuffer();
+			nomes[pagina] = ultimaDeNomes.asLongBuffer();
+		}
+		alunos[pagina].put(posicao, quantidadeDeAlunos);
+		nomes[pagina].put(posicao, guardaNome(nome));
+		tamanho++;
+	}
+
+	/*
+	 * Copia o nome para a arena e devolve a sua posição: página nos 32 bits de
+	 * cima, deslocamento nos de baixo. Um nome nunca fica dividido entre duas
+	 * páginas; nomes maiores que uma página ganham uma página só para eles.
+	 * Enquanto a última página for menor que PAGINA_DA_ARENA, ela cresce em vez
+	 * de abrir outra.
+	 */
+	private long guardaNome(String nome) {
+		byte[] bytes = nome.getBytes(StandardCharsets.UTF_8);
+		int necessario = 4 + bytes.length;
+		int ultima = arena.length - 1;
+		long fim = (long) posicaoNaArena + necessario;
+		if (arena.length == 0) {
+			arena = new ByteBuffer[] { aloca(Math.max(PRIMEIRA_PAGINA_DA_ARENA, necessario)) };
+			posicaoNaArena = 0;
+		} else if (fim > arena[ultima].capacity()) {
+			if (arena[ultima].capacity() < PAGINA_DA_ARENA && fim <= PAGINA_DA_ARENA) {
+				arena[ultima] = realoca(arena[ultima], dobra(arena[ultima].capacity(), fim, PAGINA_DA_ARENA));
+			} else {
+				arena = Arrays.copyOf(arena, arena.length + 1);
+				arena[arena.length - 1] = aloca(Math.max(PAGINA_DA_ARENA, necessario));
+				posicaoNaArena = 0;
+			}
+		}
+		int pagina = arena.length - 1;
+		ByteBuffer destino = arena[pagina];
+		destino.putInt(posicaoNaArena, bytes.length);
+		for (int i = 0; i < bytes.length; i++)
+			destino.put(posicaoNaArena + 4 + i, bytes[i]);
+		long posicao = (long) pagina << 32 | posicaoNaArena;
+		posicaoNaArena += necessario;
+		return posicao;
+	}
+
+	public long size() {
+		return tamanho;
+	}
+
+	public boolean isEmpty() {
+		return tamanho == 0;
+	}
+
+	/**
+	 * Bytes de memória nativa reservados pelo catálogo, incluindo as páginas
+	 * já trocadas por maiores.
+	 */
+	public long bytesForaDoHeap() {
+		return bytesAlocados;
+	}
+
+	private void verificaIndice(long indice) {
+		verificaAberto();
+		if (indice < 0 || indice >= tamanho)
+			throw new IndexOutOfBoundsException("Indice: " + indice + ", tamanho: " + tamanho);
+	}
+
+	private void verificaAberto() {
+		if (fechado)
+			throw new IllegalStateException("Catálogo já foi fechado");
+	}
+
+	public int getAlunos(long indice) {
+		verificaIndice(indice);
+		return alunos[(int) (indice >>> BITS_DA_PAGINA)].get((int) (indice & MASCARA_DA_PAGINA));
+	}
+
+	/**
+	 * Os cursos têm tamanho fixo, então a quantidade de alunos pode ser alterada
+	 * no lugar.
+	 */
+	public void setAlunos(long indice, int quantidadeDeAlunos) {
+		verificaIndice(indice);
+		alunos[(int) (indice >>> BITS_DA_PAGINA)].put((int) (indice & MASCARA_DA_PAGINA), quantidadeDeAlunos);
+	}
+
+	public String getNome(long indice) {
+		verificaIndice(indice);
+		long posicao = nomes[(int) (indice >>> BITS_DA_PAGINA)].get((int) (indice & MASCARA_DA_PAGINA));
+		ByteBuffer origem = arena[(int) (posicao >>> 32)];
+		int inicio = (int) posicao;
+		byte[] bytes = new byte[origem.getInt(inicio)];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = origem.get(inicio + 4 + i);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Visão do curso na posição informada.
+	 */
+	public Curso get(long indice) {
+		verificaIndice(indice);
+		return new CursoForaDoHeap(indice);
+	}
+
+	/**
+	 * Os cursos como visões, para os mesmos pipelines do StreamsTeste.
+	 */
+	public Stream<Curso> stream() {
+		verificaAberto();
+		return LongStream.range(0, tamanho).mapToObj(CursoForaDoHeap::new);
+	}
+
+	/**
+	 * A coluna de alunos como IntStream, página a página.
+	 */
+	public IntStream alunos() {
+		verificaAberto();
+		int paginas = (int) ((tamanho + MASCARA_DA_PAGINA) >>> BITS_DA_PAGINA);
+		return IntStream.range(0, paginas).flatMap(pagina -> {
+			IntBuffer coluna = alunos[pagina];
+			int quantidade = (int) Math.min(PAGINA_DE_REGISTROS, tamanho - ((long) pagina << BITS_DA_PAGINA));
+			return IntStream.range(0, quantidade).map(coluna::get);
+		});
+	}
+
+	/**
+	 * Libera a memória nativa na hora. Se a JVM não permitir, as páginas ficam
+	 * para o GC liberar quando não houver mais referências para elas.
+	 */
+	@Override
+	public void close() {
+		if (fechado)
+			return;
+		fechado = true;
+		alunos = new IntBuffer[0];
+		nomes = new LongBuffer[0];
+		arena = new ByteBuffer[0];
+		ultimaDeAlunos = null;
+		ultimaDeNomes = null;
+		buffers.forEach(Liberador::libera);
+		buffers.clear();
+		tamanho = 0;
+		bytesAlocados = 0;
+	}
+
+	/*
+	 * Curso que lê os dados da memória nativa em vez de guardá-los.
+	 */
+	private class CursoForaDoHeap extends Curso {
+
+		private final long indice;
+
+		CursoForaDoHeap(long indice) {
+			super(null, 0);
+			this.indice = indice;
+		}
+
+		@Override
+		public String getNome() {
+			return CatalogoForaDoHeap.this.getNome(indice);
+		}
+
+		@Override
+		public int getAlunos() {
+			return CatalogoForaDoHeap.this.getAlunos(indice);
+		}
+
+		@Override
+		public String toString() {
+			return getNome();
+		}
+	}
+
+	/*
+	 * Libera um ByteBuffer direto. No Java 9 ou mais novo usa
+	 * Unsafe.invokeCleaner; no Java 8, o Cleaner do próprio buffer. Os dois são
+	 * acessados por reflection porque nenhum faz parte da API pública.
+	 */
+	private static final class Liberador {
+
+		private static final Object UNSAFE;
+		private static final Method INVOKE_CLEANER;
+
+		static {
+			Object unsafe = null;
+			Method invokeCleaner = null;
+			try {
+				Class<?> classe = Class.forName("sun.misc.Unsafe");
+				Field campo = classe.getDeclaredField("theUnsafe");
+				campo.setAccessible(true);
+				unsafe = campo.get(null);
+				invokeCleaner = classe.getMethod("invokeCleaner", ByteBuffer.class);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				// Java 8: usamos o cleaner do buffer
+			}
+			UNSAFE = unsafe;
+			INVOKE_CLEANER = invokeCleaner;
+		}
+
+		static void libera(ByteBuffer buffer) {
+			try {
+				if (INVOKE_CLEANER != null) {
+					INVOKE_CLEANER.invoke(UNSAFE, buffer);
+					return;
+				}
+				Method cleaner = buffer.getClass().getMethod("cleaner");
+				cleaner.setAccessible(true);
+				Object limpador = cleaner.invoke(buffer);
+				if (limpador != null)
+					limpador.getClass().getMethod("clean").invoke(limpador);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				// Fica para o GC
+			}
+		}
+	}
+}
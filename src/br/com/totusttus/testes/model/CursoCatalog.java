@@ -0,0 +1,258 @@
+package br.com.totusttus.testes.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import br.com.totusttus.testes.util.DicionarioDeNomes;
+import br.com.totusttus.testes.util.TopK;
+import br.com.totusttus.testes.util.Versionado;
+
+/**
+ * Catálogo de cursos guardado em colunas.
+ *
+ * Em vez de um objeto Curso por elemento, guardamos a quantidade de alunos em
+ * um int[] e o nome como um id de um DicionarioDeNomes, também em um int[].
+ * Cada nome distinto é guardado uma única vez, e o mesmo dicionário pode ser
+ * compartilhado por vários catálogos.
+ *
+ * Os métodos stream() e alunos() permitem que os mesmos pipelines do
+ * StreamsTeste (filter, mapToInt, sum, toMap...) rodem sobre o catálogo.
+ *
+ * @author thiag
+ *
+ */
+public class CursoCatalog implements Iterable<Curso>, Versionado {
+
+	private static final int CAPACIDADE_INICIAL = 16;
+
+	private int[] nomes;
+	private int[] alunos;
+	private int tamanho;
+	private long versao;
+
+	private final DicionarioDeNomes dicionario;
+
+	public CursoCatalog() {
+		this(CAPACIDADE_INICIAL);
+	}
+
+	public CursoCatalog(int capacidade) {
+		this(capacidade, new DicionarioDeNomes());
+	}
+
+	public CursoCatalog(int capacidade, DicionarioDeNomes dicionario) {
+		if (capacidade < 0)
+			throw new IllegalArgumentException("Capacidade negativa: " + capacidade);
+		this.nomes = new int[Math.max(capacidade, 1)];
+		this.alunos = new int[Math.max(capacidade, 1)];
+		this.dicionario = Objects.requireNonNull(dicionario);
+	}
+
+	public static CursoCatalog of(Collection<Curso> cursos) {
+		CursoCatalog catalogo = new CursoCatalog(cursos.size());
+		cursos.forEach(catalogo::add);
+		return catalogo;
+	}
+
+	public void add(Curso curso) {
+		if (curso instanceof CursoDoDicionario && ((CursoDoDicionario) curso).getDicionario() == dicionario)
+			addId(((CursoDoDicionario) curso).getIdDoNome(), curso.getAlunos());
+		else
+			add(curso.getNome(), curso.getAlunos());
+	}
+
+	public void add(String nome, int quantidadeDeAlunos) {
+		addId(dicionario.id(nome), quantidadeDeAlunos);
+	}
+
+	private void addId(int idDoNome, int quantidadeDeAlunos) {
+		if (tamanho == alunos.length) {
+			int novaCapacidade = alunos.length + (alunos.length >> 1) + 1;
+			nomes = Arrays.copyOf(nomes, novaCapacidade);
+			alunos = Arrays.copyOf(alunos, novaCapacidade);
+		}
+		nomes[tamanho] = idDoNome;
+		alunos[tamanho] = quantidadeDeAlunos;
+		tamanho++;
+		versao++;
+	}
+
+	public int size() {
+		return tamanho;
+	}
+
+	/**
+	 * Aumenta a cada curso adicionado.
+	 */
+	@Override
+	public long getVersao() {
+		return versao;
+	}
+
+	public boolean isEmpty() {
+		return tamanho == 0;
+	}
+
+	/**
+	 * Quantidade de nomes distintos guardados no dicionário (de todos os
+	 * catálogos que o compartilham).
+	 */
+	public int nomesDistintos() {
+		return dicionario.size();
+	}
+
+	public DicionarioDeNomes dicionario() {
+		return dicionario;
+	}
+
+	public String getNome(int indice) {
+		return dicionario.nome(nomes[verificaIndice(indice)]);
+	}
+
+	public int getIdDoNome(int indice) {
+		return nomes[verificaIndice(indice)];
+	}
+
+	public int getAlunos(int indice) {
+		return alunos[verificaIndice(indice)];
+	}
+
+	/**
+	 * Cria um Curso para a posição informada. O objeto é de vida curta e não é
+	 * guardado pelo catálogo; o nome só é decodificado se for pedido.
+	 */
+	public CursoDoDicionario get(int indice) {
+		verificaIndice(indice);
+		return new CursoDoDicionario(dicionario, nomes[indice], alunos[indice]);
+	}
+
+	private int verificaIndice(int indice) {
+		if (indice < 0 || indice >= tamanho)
+			throw new IndexOutOfBoundsException("Indice: " + indice + ", tamanho: " + tamanho);
+		return indice;
+	}
+
+	/**
+	 * IntStream direto sobre a coluna de alunos, sem boxing e sem criar Cursos.
+	 */
+	public IntStream alunos() {
+		return Arrays.stream(alunos, 0, tamanho);
+	}
+
+	/**
+	 * Stream com as posições dos cursos. Útil para filtrar pela coluna e só
+	 * depois buscar o nome.
+	 */
+	public IntStream indices() {
+		return IntStream.range(0, tamanho);
+	}
+
+	/**
+	 * Visão Stream<Curso> do catálogo, para que os pipelines já existentes
+	 * continuem funcionando sem alterações.
+	 */
+	public Stream<Curso> stream() {
+		return indices().mapToObj(this::get);
+	}
+
+	public Stream<Curso> parallelStream() {
+		return stream().parallel();
+	}
+
+	/**
+	 * Como o stream(), mas com o tipo que expõe o id do nome, para os coletores
+	 * que agrupam pelo id.
+	 */
+	public Stream<CursoDoDicionario> streamComIds() {
+		return indices().mapToObj(this::get);
+	}
+
+	/**
+	 * Soma dos alunos por nome, indexada pelo id do nome: percorre as duas
+	 * colunas de int, sem criar Cursos e sem olhar para os nomes.
+	 */
+	public long[] alunosPorIdDoNome() {
+		long[] somas = new long[dicionario.size()];
+		for (int i = 0; i < tamanho; i++)
+			somas[nomes[i]] += alunos[i];
+		return somas;
+	}
+
+	/**
+	 * As posições dos cursos em ordem alfabética de nome (e, no empate, pela
+	 * posição). A ordem dos nomes é calculada uma vez no dicionário; depois
+	 * cada posição vira um long com a ordem do nome nos 32 bits altos e a
+	 * posição nos baixos, ordenado com Arrays.sort, sem Comparator e sem
+	 * boxing.
+	 */
+	public int[] indicesOrdenadosPorNome() {
+		int[] ordem = dicionario.ordemAlfabetica();
+		long[] chaves = new long[tamanho];
+		for (int i = 0; i < tamanho; i++)
+			chaves[i] = (long) ordem[nomes[i]] << 32 | i;
+		Arrays.sort(chaves);
+		int[] indices = new int[tamanho];
+		for (int i = 0; i < tamanho; i++)
+			indices[i] = (int) chaves[i];
+		return indices;
+	}
+
+	/**
+	 * Os k cursos com mais alunos, do maior para o menor, sem ordenar o
+	 * catálogo inteiro.
+	 */
+	public List<Curso> maioresPorAlunos(int k) {
+		return cursosNasPosicoes(TopK.indicesDosMaiores(alunos, 0, tamanho, k));
+	}
+
+	/**
+	 * Os k cursos com menos alunos, do menor para o maior.
+	 */
+	public List<Curso> menoresPorAlunos(int k) {
+		return cursosNasPosicoes(TopK.indicesDosMenores(alunos, 0, tamanho, k));
+	}
+
+	private List<Curso> cursosNasPosicoes(int[] posicoes) {
+		List<Curso> cursos = new ArrayList<>(posicoes.length);
+		for (int posicao : posicoes)
+			cursos.add(get(posicao));
+		return cursos;
+	}
+
+	public List<Curso> toList() {
+		return stream().collect(Collectors.toList());
+	}
+
+	@Override
+	public Iterator<Curso> iterator() {
+		return new Iterator<Curso>() {
+
+			private int atual;
+
+			@Override
+			public boolean hasNext() {
+				return atual < tamanho;
+			}
+
+			@Override
+			public Curso next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return get(atual++);
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return stream().map(Curso::toString).collect(Collectors.joining(", ", "[", "]"));
+	}
+}
@@ -0,0 +1,54 @@
+package br.com.totusttus.testes.model;
+
+import java.util.Objects;
+
+import br.com.totusttus.testes.util.DicionarioDeNomes;
+
+/**
+ * Um Curso que guarda o id do nome em um DicionarioDeNomes, calculado uma vez
+ * quando o curso é criado.
+ *
+ * Agrupar, contar ou ordenar por nome pode então usar o id, um int, sem
+ * calcular o hash da String nem comparar Strings (veja o
+ * CursoCollectors.alunosPorIdDoNome). O nome só é decodificado do dicionário
+ * quando alguém chama getNome().
+ *
+ * @author thiag
+ *
+ */
+public class CursoDoDicionario extends Curso {
+
+	private final DicionarioDeNomes dicionario;
+	private final int idDoNome;
+
+	public CursoDoDicionario(DicionarioDeNomes dicionario, String nome, int alunos) {
+		this(dicionario, dicionario.id(nome), alunos);
+	}
+
+	/*
+	 * Para quem já tem o id, como o CursoCatalog.
+	 */
+	CursoDoDicionario(DicionarioDeNomes dicionario, int idDoNome, int alunos) {
+		super(null, alunos);
+		this.dicionario = Objects.requireNonNull(dicionario);
+		this.idDoNome = idDoNome;
+	}
+
+	public DicionarioDeNomes getDicionario() {
+		return dicionario;
+	}
+
+	public int getIdDoNome() {
+		return idDoNome;
+	}
+
+	@Override
+	public String getNome() {
+		return dicionario.nome(idDoNome);
+	}
+
+	@Override
+	public String toString() {
+		return getNome();
+	}
+}
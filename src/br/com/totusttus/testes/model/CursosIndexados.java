@@ -0,0 +1,248 @@
+package br.com.totusttus.testes.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import br.com.totusttus.testes.util.Versionado;
+
+/**
+ * Coleção de cursos com dois índices: um ordenado pela quantidade de alunos e
+ * um hash pelo nome.
+ *
+ * No StreamsTeste toda consulta do tipo filter(c -> c.getAlunos() > 100)
+ * percorre a lista inteira. Aqui o índice de alunos é um TreeMap que agrupa
+ * os cursos com a mesma quantidade, então uma faixa de alunos é respondida em
+ * O(log n + k), onde k é o tamanho da resposta, e o findAny em O(log n). A
+ * busca pelo nome é O(1).
+ *
+ * Os dois índices são atualizados juntos no add e no remove. Os cursos são
+ * comparados por identidade, como no AgregadorDeCursos, já que Curso não
+ * implementa equals, e cada grupo de empatados guarda a quantidade de cada
+ * instância em um LinkedHashMap: add e remove custam O(log n) no índice de
+ * alunos e O(1) no de nomes, mesmo com muitos cursos empatados. As consultas devolvem cópias, então podem ser usadas
+ * enquanto outras threads alteram a coleção.
+ *
+ * <pre>
+ * CursosIndexados indexados = CursosIndexados.of(cursos);
+ * List&lt;Curso&gt; grandes = indexados.comAlunosAcimaDe(100);
+ * Optional&lt;Curso&gt; qualquer = indexados.qualquerComAlunosAcimaDe(100);
+ * </pre>
+ *
+ * @author thiag
+ *
+ */
+public class CursosIndexados implements Versionado {
+
+	private final NavigableMap<Integer, Grupo> porAlunos = new TreeMap<>();
+	private final Map<String, Grupo> porNome = new HashMap<>();
+	private int tamanho;
+	private long versao;
+
+	public static CursosIndexados of(Collection<Curso> cursos) {
+		CursosIndexados indexados = new CursosIndexados();
+		indexados.addTodos(cursos);
+		return indexados;
+	}
+
+	public synchronized void add(Curso curso) {
+		porAlunos.computeIfAbsent(curso.getAlunos(), alunos -> new Grupo()).add(curso);
+		porNome.computeIfAbsent(curso.getNome(), nome -> new Grupo()).add(curso);
+		tamanho++;
+		versao++;
+	}
+
+	public synchronized void addTodos(Collection<Curso> cursos) {
+		cursos.forEach(this::add);
+	}
+
+	/**
+	 * Remove o curso (o mesmo objeto que foi adicionado) dos dois índices.
+	 * Devolve false se ele não estava na coleção.
+	 */
+	public synchronized boolean remove(Curso curso) {
+		if (!removeDoGrupo(porAlunos, curso.getAlunos(), curso))
+			return false;
+		removeDoGrupo(porNome, curso.getNome(), curso);
+		tamanho--;
+		versao++;
+		return true;
+	}
+
+	private static <K> boolean removeDoGrupo(Map<K, Grupo> indice, K chave, Curso curso) {
+		Grupo grupo = indice.get(chave);
+		if (grupo == null || !grupo.remove(curso))
+			return false;
+		if (grupo.tamanho == 0)
+			indice.remove(chave);
+		return true;
+	}
+
+	public synchronized int size() {
+		return tamanho;
+	}
+
+	public synchronized boolean isEmpty() {
+		return tamanho == 0;
+	}
+
+	/**
+	 * Aumenta a cada curso adicionado ou removido.
+	 */
+	@Override
+	public synchronized long getVersao() {
+		return versao;
+	}
+
+	/**
+	 * Os cursos com esse nome, na ordem em que foram adicionados. Uma instância
+	 * adicionada mais de uma vez aparece repetida na posição da primeira vez.
+	 */
+	public synchronized List<Curso> porNome(String nome) {
+		Grupo grupo = porNome.get(nome);
+		if (grupo == null)
+			return Collections.emptyList();
+		List<Curso> cursos = new ArrayList<>(grupo.tamanho);
+		grupo.copiaPara(cursos);
+		return cursos;
+	}
+
+	public synchronized Optional<Curso> primeiroPorNome(String nome) {
+		Grupo grupo = porNome.get(nome);
+		return grupo == null ? Optional.empty() : Optional.of(grupo.primeiro());
+	}
+
+	public synchronized boolean contemNome(String nome) {
+		return porNome.containsKey(nome);
+	}
+
+	/**
+	 * Cursos com mais de minimo alunos (o mesmo que getAlunos() > minimo), em
+	 * ordem crescente de alunos.
+	 */
+	public List<Curso> comAlunosAcimaDe(int minimo) {
+		return minimo == Integer.MAX_VALUE ? Collections.emptyList() : comAlunosEntre(minimo + 1, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Cursos com menos de maximo alunos, em ordem crescente de alunos.
+	 */
+	public synchronized List<Curso> comAlunosAbaixoDe(int maximo) {
+		return copia(porAlunos.headMap(maximo, false));
+	}
+
+	/**
+	 * Cursos com alunos entre de e ate, os dois inclusive, em ordem crescente
+	 * de alunos.
+	 */
+	public synchronized List<Curso> comAlunosEntre(int de, int ate) {
+		if (de > ate)
+			return Collections.emptyList();
+		return copia(porAlunos.subMap(de, true, ate, true));
+	}
+
+	private static List<Curso> copia(NavigableMap<Integer, Grupo> faixa) {
+		List<Curso> cursos = new ArrayList<>();
+		for (Grupo grupo : faixa.values())
+			grupo.copiaPara(cursos);
+		return cursos;
+	}
+
+	/**
+	 * O equivalente indexado de filter(c -> c.getAlunos() > minimo).findAny():
+	 * devolve o curso com menos alunos acima do mínimo, em O(log n).
+	 */
+	public synchronized Optional<Curso> qualquerComAlunosAcimaDe(int minimo) {
+		Map.Entry<Integer, Grupo> grupo = porAlunos.higherEntry(minimo);
+		return grupo == null ? Optional.empty() : Optional.of(grupo.getValue().primeiro());
+	}
+
+	public synchronized boolean existeComAlunosAcimaDe(int minimo) {
+		return porAlunos.higherKey(minimo) != null;
+	}
+
+	public synchronized int contaComAlunosAcimaDe(int minimo) {
+		int quantidade = 0;
+		for (Grupo grupo : porAlunos.tailMap(minimo, false).values())
+			quantidade += grupo.tamanho;
+		return quantidade;
+	}
+
+	/**
+	 * O equivalente de filter(c -> c.getAlunos() > minimo).mapToInt(...).sum(),
+	 * visitando só os grupos da faixa.
+	 */
+	public synchronized long somaDeAlunosAcimaDe(int minimo) {
+		long soma = 0;
+		for (Map.Entry<Integer, Grupo> grupo : porAlunos.tailMap(minimo, false).entrySet())
+			soma += (long) grupo.getKey() * grupo.getValue().tamanho;
+		return soma;
+	}
+
+	public synchronized Optional<Curso> maiorPorAlunos() {
+		return porAlunos.isEmpty() ? Optional.empty() : Optional.of(porAlunos.lastEntry().getValue().primeiro());
+	}
+
+	public synchronized Optional<Curso> menorPorAlunos() {
+		return porAlunos.isEmpty() ? Optional.empty() : Optional.of(porAlunos.firstEntry().getValue().primeiro());
+	}
+
+	/**
+	 * Todos os cursos em ordem crescente de alunos, para os demais pipelines.
+	 */
+	public Stream<Curso> stream() {
+		return comAlunosEntre(Integer.MIN_VALUE, Integer.MAX_VALUE).stream();
+	}
+
+	@Override
+	public String toString() {
+		return stream().map(Curso::toString).collect(Collectors.joining(", ", "[", "]"));
+	}
+
+	/*
+	 * Cursos que empatam na chave de um índice, como os grupos do top N do
+	 * AgregadorDeCursos: a quantidade de cada instância em um LinkedHashMap
+	 * (a chave é a própria instância), e o total do grupo para as contagens.
+	 */
+	private static final class Grupo {
+
+		final Map<Curso, Integer> quantidades = new LinkedHashMap<>(2);
+		int tamanho;
+
+		void add(Curso curso) {
+			quantidades.merge(curso, 1, Integer::sum);
+			tamanho++;
+		}
+
+		boolean remove(Curso curso) {
+			Integer quantidade = quantidades.get(curso);
+			if (quantidade == null)
+				return false;
+			if (quantidade == 1)
+				quantidades.remove(curso);
+			else
+				quantidades.put(curso, quantidade - 1);
+			tamanho--;
+			return true;
+		}
+
+		Curso primeiro() {
+			return quantidades.keySet().iterator().next();
+		}
+
+		void copiaPara(List<Curso> destino) {
+			for (Map.Entry<Curso, Integer> curso : quantidades.entrySet())
+				for (int i = 0; i < curso.getValue(); i++)
+					destino.add(curso.getKey());
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package br.com.totusttus.testes.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Contadores de matrículas por curso, para muitas threads matriculando ao
+ * mesmo tempo.
+ *
+ * Um Map<String, Integer> protegido por synchronized faz todas as threads
+ * disputarem o mesmo lock. Aqui cada curso tem um LongAdder, que espalha os
+ * incrementos em células separadas (e afastadas na memória para não dividirem
+ * a mesma linha de cache), e só soma as células na leitura.
+ *
+ * Há dois tipos de leitura:
+ * <ul>
+ * <li>alunos(nome) é rápida e aproximada: soma as células sem parar os
+ * incrementos que estão acontecendo;</li>
+ * <li>snapshot() é exata: pausa os incrementos por um instante e devolve a
+ * contagem de todos os cursos no mesmo momento, como Cursos comuns, para que
+ * as consultas do StreamsTeste rodem sobre eles.</li>
+ * </ul>
+ *
+ * Os contadores são long, mas o Curso guarda os alunos em um int. No
+ * snapshot() a contagem satura em Integer.MAX_VALUE (ou Integer.MIN_VALUE);
+ * totais() devolve os valores exatos.
+ *
+ * <pre>
+ * RegistroDeMatriculas registro = new RegistroDeMatriculas();
+ * registro.registra(new Curso("Java 8", 113));
+ * registro.matricula("Java 8");
+ * int soma = registro.snapshot().stream().filter(c -> c.getAlunos() > 100).mapToInt(c -> c.getAlunos()).sum();
+ * </pre>
+ *
+ * @author thiag
+ *
+ */
+public class RegistroDeMatriculas {
+
+	private final ConcurrentHashMap<String, LongAdder> contadores = new ConcurrentHashMap<>();
+	private final Portao portao = new Portao();
+
+	/**
+	 * Cadastra o curso com os alunos que ele já tem. Se o curso já estiver
+	 * cadastrado, os alunos são somados aos existentes.
+	 */
+	public void registra(Curso curso) {
+		matricula(curso.getNome(), curso.getAlunos());
+	}
+
+	public void matricula(String nome) {
+		matricula(nome, 1);
+	}
+
+	/**
+	 * Soma quantidade (que pode ser negativa, para cancelamentos) às matrículas
+	 * do curso, cadastrando-o se ainda não existir.
+	 */
+	public void matricula(String nome, int quantidade) {
+		LongAdder contador = contadores.get(nome);
+		if (contador == null)
+			contador = contadores.computeIfAbsent(nome, n -> new LongAdder());
+		int faixa = portao.entra();
+		try {
+			contador.add(quantidade);
+		} finally {
+			portao.sai(faixa);
+		}
+	}
+
+	public boolean contem(String nome) {
+		return contadores.containsKey(nome);
+	}
+
+	public int size() {
+		return contadores.size();
+	}
+
+	/**
+	 * Leitura rápida: pode não incluir incrementos que estão acontecendo agora.
+	 * Devolve zero para cursos não cadastrados.
+	 */
+	public long alunos(String nome) {
+		LongAdder contador = contadores.get(nome);
+		return contador == null ? 0 : contador.sum();
+	}
+
+	/**
+	 * Leitura exata de todos os cursos no mesmo instante. Os incrementos ficam
+	 * parados enquanto as células são somadas. Contagens fora do int aparecem
+	 * saturadas.
+	 */
+	public synchronized List<Curso> snapshot() {
+		portao.fecha();
+		try {
+			List<Curso> cursos = new ArrayList<>(contadores.size());
+			contadores.forEach((nome, contador) -> cursos.add(new Curso(nome, satura(contador.sum()))));
+			return cursos;
+		} finally {
+			portao.abre();
+		}
+	}
+
+	/**
+	 * Como o snapshot(), mas com as contagens em long, sem saturar.
+	 */
+	public synchronized Map<String, Long> totais() {
+		portao.fecha();
+		try {
+			Map<String, Long> totais = new HashMap<>(contadores.size() * 4 / 3 + 1);
+			contadores.forEach((nome, contador) -> totais.put(nome, contador.sum()));
+			return totais;
+		} finally {
+			portao.abre();
+		}
+	}
+
+	private static int satura(long total) {
+		return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, total));
+	}
+
+	public Stream<Curso> stream() {
+		return snapshot().stream();
+	}
+
+	/*
+	 * Deixa os incrementos passarem em paralelo e permite que o snapshot espere
+	 * todos terminarem e barre os próximos.
+	 *
+	 * Cada thread entra por uma faixa, escolhida pelo id da thread, e conta a
+	 * sua entrada nela. As faixas ficam a 128 bytes umas das outras para que
+	 * threads em faixas diferentes não disputem a mesma linha de cache. A thread
+	 * conta a entrada e só então olha se o portão está fechado; o snapshot
+	 * fecha o portão e só então olha as faixas. Assim pelo menos um dos dois vê
+	 * o outro.
+	 */
+	private static final class Portao {
+
+		private static final int PASSO = 16;
+
+		private final int mascara;
+		private final AtomicLongArray emAndamento;
+		private volatile boolean fechado;
+
+		Portao() {
+			int faixas = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4 - 1) << 1;
+			this.mascara = faixas - 1;
+			this.emAndamento = new AtomicLongArray(faixas * PASSO);
+		}
+
+		int entra() {
+			long id = Thread.currentThread().getId();
+			int faixa = ((int) (id ^ (id >>> 16)) * 0x9E3779B9 >>> 16 & mascara) * PASSO;
+			for (;;) {
+				if (!fechado) {
+					emAndamento.incrementAndGet(faixa);
+					if (!fechado)
+						return faixa;
+					emAndamento.decrementAndGet(faixa);
+				}
+				aguardaAbertura();
+			}
+		}
+
+		void sai(int faixa) {
+			emAndamento.decrementAndGet(faixa);
+		}
+
+		private synchronized void aguardaAbertura() {
+			boolean interrompida = false;
+			while (fechado) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrompida = true;
+				}
+			}
+			if (interrompida)
+				Thread.currentThread().interrupt();
+		}
+
+		void fecha() {
+			fechado = true;
+			for (int i = 0; i < emAndamento.length(); i += PASSO)
+				while (emAndamento.get(i) != 0)
+					Thread.yield();
+		}
+
+		synchronized void abre() {
+			fechado = false;
+			notifyAll();
+		}
+	}
+}
@@ -0,0 +1,258 @@
+package br.com.totusttus.testes.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collector.Characteristics;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import br.com.totusttus.testes.util.IntList;
+
+/**
+ * Agrupa elementos por uma chave e calcula, para cada chave, quantidade,
+ * soma, mínimo, máximo e percentis de um valor int.
+ *
+ * É o que faríamos com Collectors.groupingBy(chave, summarizingInt(valor)),
+ * mais percentis, mas sem um objeto por acumulador: cada grupo é uma posição
+ * em arrays de primitivos. A chave e o valor são passados como no
+ * Collectors.toMap:
+ *
+ * <pre>
+ * TabelaDeAgregados&lt;String&gt; tabela = AgregacaoPorChave
+ * 		.de((Curso c) -> c.getNome().substring(0, 1), c -> c.getAlunos())
+ * 		.comPercentis(50, 90)
+ * 		.executa(cursos);
+ * </pre>
+ *
+ * O executa() divide a coleção em um pedaço por núcleo e acumula cada pedaço
+ * em uma tabela local, sem sincronização. Depois as chaves são repartidas
+ * pelo hash: cada núcleo junta, de todas as tabelas locais, só as chaves da
+ * sua partição, e já calcula os percentis delas. Como as partições têm chaves
+ * disjuntas, o resultado é só a cópia das colunas de cada partição, uma
+ * depois da outra, com System.arraycopy. Também é possível usar o coletor()
+ * em um stream.
+ *
+ * @author thiag
+ *
+ */
+public class AgregacaoPorChave<T, K> {
+
+	private final Function<? super T, ? extends K> funcaoChave;
+	private final ToIntFunction<? super T> funcaoValor;
+	private final double[] percentis;
+
+	private AgregacaoPorChave(Function<? super T, ? extends K> funcaoChave, ToIntFunction<? super T> funcaoValor,
+			double[] percentis) {
+		this.funcaoChave = Objects.requireNonNull(funcaoChave);
+		this.funcaoValor = Objects.requireNonNull(funcaoValor);
+		this.percentis = percentis;
+	}
+
+	public static <T, K> AgregacaoPorChave<T, K> de(Function<? super T, ? extends K> funcaoChave,
+			ToIntFunction<? super T> funcaoValor) {
+		return new AgregacaoPorChave<>(funcaoChave, funcaoValor, new double[0]);
+	}
+
+	/**
+	 * Calcula também os percentis informados (de 0 a 100). Para isso os valores
+	 * de cada grupo são guardados e ordenados no final.
+	 */
+	public AgregacaoPorChave<T, K> comPercentis(double... percentis) {
+		for (double percentil : percentis)
+			if (percentil < 0 || percentil > 100)
+				throw new IllegalArgumentException("Percentil inválido: " + percentil);
+		return new AgregacaoPorChave<>(funcaoChave, funcaoValor, percentis.clone());
+	}
+
+	/**
+	 * Agrega em paralelo no ForkJoinPool comum.
+	 */
+	@SuppressWarnings("unchecked")
+	public TabelaDeAgregados<K> executa(Collection<? extends T> elementos) {
+		List<? extends T> lista = elementos instanceof List && elementos instanceof RandomAccess
+				? (List<? extends T>) elementos
+				: (List<T>) Arrays.asList(elementos.toArray());
+		int partes = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), lista.size() / 1024));
+
+		List<Acumuladores<K>> locais = IntStream.range(0, partes).parallel().mapToObj(parte -> {
+			Acumuladores<K> acumuladores = new Acumuladores<>(percentis.length > 0);
+			int fim = (int) ((long) lista.size() * (parte + 1) / partes);
+			for (int i = (int) ((long) lista.size() * parte / partes); i < fim; i++)
+				acumula(acumuladores, lista.get(i));
+			return acumuladores;
+		}).collect(Collectors.toList());
+
+		if (partes == 1)
+			return locais.get(0).paraTabela(percentis);
+
+		List<Acumuladores<K>> particoes = IntStream.range(0, partes).parallel().mapToObj(particao -> {
+			Acumuladores<K> juntos = new Acumuladores<>(percentis.length > 0);
+			for (Acumuladores<K> local : locais)
+				juntos.junta(local, particao, partes);
+			juntos.calculaPercentis(percentis);
+			return juntos;
+		}).collect(Collectors.toList());
+
+		return emenda(particoes, percentis);
+	}
+
+	/*
+	 * As partições têm chaves disjuntas: a tabela final é a concatenação das
+	 * colunas de cada uma, sem passar as chaves por um HashMap de novo.
+	 */
+	private static <K> TabelaDeAgregados<K> emenda(List<Acumuladores<K>> particoes, double[] percentis) {
+		int total = 0;
+		for (Acumuladores<K> particao : particoes)
+			total += particao.chaves.size();
+		List<K> chaves = new ArrayList<>(total);
+		long[] quantidades = new long[total];
+		long[] somas = new long[total];
+		int[] minimos = new int[total];
+		int[] maximos = new int[total];
+		int[][] valoresDosPercentis = new int[percentis.length][total];
+		int inicio = 0;
+		for (Acumuladores<K> particao : particoes) {
+			int tamanho = particao.chaves.size();
+			chaves.addAll(particao.chaves);
+			System.arraycopy(particao.quantidades, 0, quantidades, inicio, tamanho);
+			System.arraycopy(particao.somas, 0, somas, inicio, tamanho);
+			System.arraycopy(particao.minimos, 0, minimos, inicio, tamanho);
+			System.arraycopy(particao.maximos, 0, maximos, inicio, tamanho);
+			for (int p = 0; p < percentis.length; p++)
+				System.arraycopy(particao.valoresDosPercentis[p], 0, valoresDosPercentis[p], inicio, tamanho);
+			inicio += tamanho;
+		}
+		return new TabelaDeAgregados<>(chaves, quantidades, somas, minimos, maximos, percentis.clone(),
+				valoresDosPercentis);
+	}
+
+	/**
+	 * A mesma agregação como Collector, para stream() ou parallelStream().
+	 */
+	public Collector<T, ?, TabelaDeAgregados<K>> coletor() {
+		return Collector.of(() -> new Acumuladores<K>(percentis.length > 0), this::acumula,
+				(acumuladores1, acumuladores2) -> {
+					acumuladores1.junta(acumuladores2, 0, 1);
+					return acumuladores1;
+				}, acumuladores -> acumuladores.paraTabela(percentis), Characteristics.UNORDERED);
+	}
+
+	private void acumula(Acumuladores<K> acumuladores, T elemento) {
+		acumuladores.add(funcaoChave.apply(elemento), funcaoValor.applyAsInt(elemento));
+	}
+
+	/*
+	 * Um grupo por posição: a chave em um Map para a posição, e as estatísticas
+	 * em arrays paralelos.
+	 */
+	private static final class Acumuladores<K> {
+
+		private final Map<K, Integer> posicoes = new HashMap<>();
+		private final List<K> chaves = new ArrayList<>();
+		private long[] quantidades = new long[16];
+		private long[] somas = new long[16];
+		private int[] minimos = new int[16];
+		private int[] maximos = new int[16];
+		private IntList[] valores;
+		private int[][] valoresDosPercentis;
+
+		Acumuladores(boolean guardaValores) {
+			if (guardaValores)
+				valores = new IntList[16];
+		}
+
+		private int posicao(K chave) {
+			Integer posicao = posicoes.get(chave);
+			if (posicao != null)
+				return posicao;
+			int nova = chaves.size();
+			if (nova == quantidades.length) {
+				int capacidade = nova * 2;
+				quantidades = Arrays.copyOf(quantidades, capacidade);
+				somas = Arrays.copyOf(somas, capacidade);
+				minimos = Arrays.copyOf(minimos, capacidade);
+				maximos = Arrays.copyOf(maximos, capacidade);
+				if (valores != null)
+					valores = Arrays.copyOf(valores, capacidade);
+			}
+			chaves.add(chave);
+			posicoes.put(chave, nova);
+			minimos[nova] = Integer.MAX_VALUE;
+			maximos[nova] = Integer.MIN_VALUE;
+			if (valores != null)
+				valores[nova] = new IntList(4);
+			return nova;
+		}
+
+		void add(K chave, int valor) {
+			int i = posicao(chave);
+			quantidades[i]++;
+			somas[i] += valor;
+			if (valor < minimos[i])
+				minimos[i] = valor;
+			if (valor > maximos[i])
+				maximos[i] = valor;
+			if (valores != null)
+				valores[i].add(valor);
+		}
+
+		/*
+		 * Junta os grupos do outro cujo hash cai na partição informada.
+		 */
+		void junta(Acumuladores<K> outro, int particao, int particoes) {
+			for (int j = 0; j < outro.chaves.size(); j++) {
+				K chave = outro.chaves.get(j);
+				if (particoes > 1 && Math.floorMod(espalha(Objects.hashCode(chave)), particoes) != particao)
+					continue;
+				int i = posicao(chave);
+				quantidades[i] += outro.quantidades[j];
+				somas[i] += outro.somas[j];
+				minimos[i] = Math.min(minimos[i], outro.minimos[j]);
+				maximos[i] = Math.max(maximos[i], outro.maximos[j]);
+				if (valores != null)
+					valores[i].addAll(outro.valores[j]);
+			}
+		}
+
+		private static int espalha(int hash) {
+			int h = hash * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+
+		/*
+		 * Ordena os valores de cada grupo e guarda os percentis, uma coluna por
+		 * percentil. Os valores não são mais necessários depois disso.
+		 */
+		void calculaPercentis(double[] percentis) {
+			int tamanho = chaves.size();
+			valoresDosPercentis = new int[percentis.length][tamanho];
+			for (int i = 0; i < tamanho && valores != null; i++) {
+				int[] ordenados = valores[i].toArray();
+				Arrays.sort(ordenados);
+				for (int p = 0; p < percentis.length; p++) {
+					int posicao = (int) Math.max(1, Math.ceil(percentis[p] / 100 * ordenados.length)) - 1;
+					valoresDosPercentis[p][i] = ordenados[posicao];
+				}
+			}
+			valores = null;
+		}
+
+		TabelaDeAgregados<K> paraTabela(double[] percentis) {
+			int tamanho = chaves.size();
+			calculaPercentis(percentis);
+			return new TabelaDeAgregados<>(new ArrayList<>(chaves), Arrays.copyOf(quantidades, tamanho),
+					Arrays.copyOf(somas, tamanho), Arrays.copyOf(minimos, tamanho), Arrays.copyOf(maximos, tamanho),
+					percentis.clone(), valoresDosPercentis);
+		}
+	}
+}
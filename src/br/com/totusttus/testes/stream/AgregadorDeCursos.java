@@ -0,0 +1,303 @@
+package br.com.totusttus.testes.stream;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import br.com.totusttus.testes.model.Curso;
+
+/**
+ * Agregação incremental sobre eventos de cursos.
+ *
+ * No StreamsTeste, cada soma ou findAny percorre a lista inteira de novo. Aqui
+ * registramos consultas "permanentes", com o mesmo par de lambdas que usamos
+ * no stream (o predicado do filter e a função do mapToInt), e cada evento de
+ * adição, remoção ou atualização só ajusta o resultado de cada consulta:
+ *
+ * <pre>
+ * AgregadorDeCursos agregador = new AgregadorDeCursos();
+ * ConsultaSoma soma = agregador.registraSoma(c -> c.getAlunos() > 100, c -> c.getAlunos());
+ * agregador.adiciona(new Curso("Java 8", 113));
+ * soma.getSoma(); // 113
+ * </pre>
+ *
+ * Soma, contagem e findAny custam O(1) por evento; o top-N custa O(log n).
+ *
+ * Os cursos são identificados pela instância (Curso não sobrescreve equals),
+ * então a remoção deve receber o mesmo objeto que foi adicionado.
+ *
+ * @author thiag
+ *
+ */
+public class AgregadorDeCursos {
+
+	/*
+	 * Cursos atuais e quantas vezes cada instância foi adicionada. É usado
+	 * apenas para preencher consultas registradas depois que já existem dados.
+	 */
+	private final Map<Curso, Integer> cursos = new IdentityHashMap<>();
+	private final List<Consulta> consultas = new ArrayList<>();
+	private int tamanho;
+
+	public synchronized void adiciona(Curso curso) {
+		cursos.merge(curso, 1, Integer::sum);
+		tamanho++;
+		for (Consulta consulta : consultas)
+			consulta.adiciona(curso);
+	}
+
+	public void adicionaTodos(Collection<Curso> novos) {
+		novos.forEach(this::adiciona);
+	}
+
+	/**
+	 * Remove uma instância de curso. Devolve false se ela não estava no
+	 * agregador.
+	 */
+	public synchronized boolean remove(Curso curso) {
+		Integer quantidade = cursos.get(curso);
+		if (quantidade == null)
+			return false;
+
+		if (quantidade == 1)
+			cursos.remove(curso);
+		else
+			cursos.put(curso, quantidade - 1);
+		tamanho--;
+		for (Consulta consulta : consultas)
+			consulta.remove(curso);
+		return true;
+	}
+
+	/**
+	 * Troca um curso por outro. Como o Curso é imutável, uma atualização de
+	 * alunos é a remoção da versão antiga seguida da adição da nova.
+	 */
+	public synchronized boolean atualiza(Curso antigo, Curso novo) {
+		if (!remove(antigo))
+			return false;
+		adiciona(novo);
+		return true;
+	}
+
+	public synchronized int size() {
+		return tamanho;
+	}
+
+	/**
+	 * Equivalente a filter(filtro).mapToInt(valor).sum(), mantendo também a
+	 * contagem equivalente ao filter(filtro).count().
+	 */
+	public synchronized ConsultaSoma registraSoma(Predicate<? super Curso> filtro,
+			ToIntFunction<? super Curso> valor) {
+		return registra(new ConsultaSoma(filtro, valor));
+	}
+
+	/**
+	 * Equivalente a filter(filtro).count().
+	 */
+	public synchronized ConsultaSoma registraContagem(Predicate<? super Curso> filtro) {
+		return registra(new ConsultaSoma(filtro, c -> 0));
+	}
+
+	/**
+	 * Equivalente a filter(filtro).findAny().
+	 */
+	public synchronized ConsultaBusca registraBusca(Predicate<? super Curso> filtro) {
+		return registra(new ConsultaBusca(filtro));
+	}
+
+	/**
+	 * Os n maiores cursos segundo o comparador, por exemplo
+	 * Comparator.comparingInt(Curso::getAlunos).
+	 */
+	public synchronized ConsultaTopN registraTopN(Predicate<? super Curso> filtro, Comparator<? super Curso> comparador,
+			int n) {
+		if (n < 0)
+			throw new IllegalArgumentException("N negativo: " + n);
+		return registra(new ConsultaTopN(filtro, comparador, n));
+	}
+
+	public synchronized ConsultaTopN registraTopN(Comparator<? super Curso> comparador, int n) {
+		return registraTopN(c -> true, comparador, n);
+	}
+
+	/**
+	 * Para de atualizar a consulta. Ela continua com o último resultado.
+	 */
+	public synchronized void cancela(Consulta consulta) {
+		consultas.remove(consulta);
+	}
+
+	private <C extends Consulta> C registra(C consulta) {
+		cursos.forEach((curso, quantidade) -> {
+			for (int i = 0; i < quantidade; i++)
+				consulta.adiciona(curso);
+		});
+		consultas.add(consulta);
+		return consulta;
+	}
+
+	public abstract class Consulta {
+
+		private final Predicate<? super Curso> filtro;
+
+		Consulta(Predicate<? super Curso> filtro) {
+			this.filtro = filtro;
+		}
+
+		void adiciona(Curso curso) {
+			if (filtro.test(curso))
+				entrou(curso);
+		}
+
+		void remove(Curso curso) {
+			if (filtro.test(curso))
+				saiu(curso);
+		}
+
+		abstract void entrou(Curso curso);
+
+		abstract void saiu(Curso curso);
+	}
+
+	public class ConsultaSoma extends Consulta {
+
+		private final ToIntFunction<? super Curso> valor;
+		private long soma;
+		private long quantidade;
+
+		ConsultaSoma(Predicate<? super Curso> filtro, ToIntFunction<? super Curso> valor) {
+			super(filtro);
+			this.valor = valor;
+		}
+
+		@Override
+		void entrou(Curso curso) {
+			soma += valor.applyAsInt(curso);
+			quantidade++;
+		}
+
+		@Override
+		void saiu(Curso curso) {
+			soma -= valor.applyAsInt(curso);
+			quantidade--;
+		}
+
+		public long getSoma() {
+			synchronized (AgregadorDeCursos.this) {
+				return soma;
+			}
+		}
+
+		public long getQuantidade() {
+			synchronized (AgregadorDeCursos.this) {
+				return quantidade;
+			}
+		}
+	}
+
+	public class ConsultaBusca extends Consulta {
+
+		/*
+		 * Os cursos que passam no filtro, com a quantidade de cada instância. É
+		 * um LinkedHashMap, como os empatados do top-N, e não um
+		 * IdentityHashMap: a tabela do IdentityHashMap nunca diminui, e o
+		 * iterator() dele percorre as posições vazias até achar a primeira
+		 * chave, então o findAny ficava O(maior tamanho que o mapa já teve)
+		 * depois de muitas remoções. O LinkedHashMap começa a iteração direto
+		 * no primeiro curso que ainda está lá.
+		 */
+		private final Map<Curso, Integer> encontrados = new LinkedHashMap<>();
+
+		ConsultaBusca(Predicate<? super Curso> filtro) {
+			super(filtro);
+		}
+
+		@Override
+		void entrou(Curso curso) {
+			encontrados.merge(curso, 1, Integer::sum);
+		}
+
+		@Override
+		void saiu(Curso curso) {
+			encontrados.computeIfPresent(curso, (c, quantidade) -> quantidade == 1 ? null : quantidade - 1);
+		}
+
+		public Optional<Curso> findAny() {
+			synchronized (AgregadorDeCursos.this) {
+				Iterator<Curso> iterator = encontrados.keySet().iterator();
+				return iterator.hasNext() ? Optional.of(iterator.next()) : Optional.empty();
+			}
+		}
+
+		public boolean anyMatch() {
+			synchronized (AgregadorDeCursos.this) {
+				return !encontrados.isEmpty();
+			}
+		}
+	}
+
+	public class ConsultaTopN extends Consulta {
+
+		/*
+		 * Árvore ordenada pelo comparador. Cursos que empatam no comparador
+		 * ficam no mesmo LinkedHashMap, com a quantidade de cada instância (Curso
+		 * não sobrescreve equals, então a chave é a própria instância). Assim a
+		 * remoção não percorre os empatados, e o custo continua O(log n) mesmo
+		 * com muitos cursos com a mesma quantidade de alunos.
+		 */
+		private final TreeMap<Curso, Map<Curso, Integer>> arvore;
+		private final int n;
+
+		ConsultaTopN(Predicate<? super Curso> filtro, Comparator<? super Curso> comparador, int n) {
+			super(filtro);
+			this.arvore = new TreeMap<>(comparador);
+			this.n = n;
+		}
+
+		@Override
+		void entrou(Curso curso) {
+			arvore.computeIfAbsent(curso, c -> new LinkedHashMap<>(2)).merge(curso, 1, Integer::sum);
+		}
+
+		@Override
+		void saiu(Curso curso) {
+			Map<Curso, Integer> empatados = arvore.get(curso);
+			if (empatados == null)
+				return;
+			empatados.computeIfPresent(curso, (c, quantidade) -> quantidade == 1 ? null : quantidade - 1);
+			if (empatados.isEmpty())
+				arvore.remove(curso);
+		}
+
+		/**
+		 * Os n maiores cursos, do maior para o menor.
+		 */
+		public List<Curso> getTop() {
+			synchronized (AgregadorDeCursos.this) {
+				List<Curso> top = new ArrayList<>(n);
+				for (Map<Curso, Integer> empatados : arvore.descendingMap().values()) {
+					for (Map.Entry<Curso, Integer> curso : empatados.entrySet()) {
+						for (int i = 0; i < curso.getValue(); i++) {
+							if (top.size() == n)
+								return Collections.unmodifiableList(top);
+							top.add(curso.getKey());
+						}
+					}
+				}
+				return Collections.unmodifiableList(top);
+			}
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package br.com.totusttus.testes.stream;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import br.com.totusttus.testes.model.Curso;
+
+/**
+ * Lista imutável de cursos guardada em um array, feita para parallelStream.
+ *
+ * Um LinkedList ou um Stream.concat se dividem mal: o primeiro precisa copiar
+ * um pedaço para um array a cada divisão, e o segundo só divide na emenda. Aqui
+ * o Spliterator é SIZED | SUBSIZED | IMMUTABLE | NONNULL | ORDERED e sempre
+ * divide o intervalo exatamente ao meio, até chegar no limite de divisão.
+ *
+ * O limite é o tamanho abaixo do qual um pedaço não é mais dividido. Com um
+ * predicado barato como c.getAlunos() > 100, pedaços pequenos demais gastam
+ * mais tempo criando tarefas do que filtrando; com predicados caros vale a pena
+ * baixar o limite. Passando um MetricasDeDivisao é possível ver como ficou a
+ * divisão e quanto tempo levou cada folha.
+ *
+ * <pre>
+ * ArrayDeCursos array = ArrayDeCursos.of(cursos);
+ * MetricasDeDivisao metricas = new MetricasDeDivisao();
+ * int soma = array.parallelStream(4096, metricas).filter(c -> c.getAlunos() > 100)
+ * 		.mapToInt(c -> c.getAlunos()).sum();
+ * System.out.println(metricas);
+ * </pre>
+ *
+ * @author thiag
+ *
+ */
+public final class ArrayDeCursos extends AbstractList<Curso> implements RandomAccess {
+
+	/**
+	 * Pedaços com até essa quantidade de cursos não são mais divididos.
+	 */
+	public static final int LIMITE_PADRAO = 1024;
+
+	private final Curso[] cursos;
+
+	private ArrayDeCursos(Curso[] cursos) {
+		for (Curso curso : cursos)
+			Objects.requireNonNull(curso, "Curso nulo");
+		this.cursos = cursos;
+	}
+
+	public static ArrayDeCursos of(Collection<? extends Curso> cursos) {
+		return new ArrayDeCursos(cursos.toArray(new Curso[0]));
+	}
+
+	public static ArrayDeCursos of(Curso... cursos) {
+		return new ArrayDeCursos(cursos.clone());
+	}
+
+	/**
+	 * Junta várias coleções em um único array, no lugar de Stream.concat.
+	 */
+	@SafeVarargs
+	public static ArrayDeCursos concat(Collection<? extends Curso>... partes) {
+		int tamanho = 0;
+		for (Collection<? extends Curso> parte : partes)
+			tamanho += parte.size();
+		Curso[] cursos = new Curso[tamanho];
+		int posicao = 0;
+		for (Collection<? extends Curso> parte : partes)
+			for (Curso curso : parte)
+				cursos[posicao++] = curso;
+		return new ArrayDeCursos(cursos);
+	}
+
+	@Override
+	public Curso get(int indice) {
+		return cursos[indice];
+	}
+
+	@Override
+	public int size() {
+		return cursos.length;
+	}
+
+	@Override
+	public Object[] toArray() {
+		return cursos.clone();
+	}
+
+	@Override
+	public void forEach(Consumer<? super Curso> acao) {
+		for (Curso curso : cursos)
+			acao.accept(curso);
+	}
+
+	@Override
+	public void sort(Comparator<? super Curso> c) {
+		throw new UnsupportedOperationException("ArrayDeCursos é imutável");
+	}
+
+	@Override
+	public Spliterator<Curso> spliterator() {
+		return spliterator(LIMITE_PADRAO, null);
+	}
+
+	/**
+	 * @param limite
+	 *            pedaços com até essa quantidade de cursos não são divididos
+	 * @param metricas
+	 *            onde registrar divisões e tempos; pode ser null
+	 */
+	public Spliterator<Curso> spliterator(int limite, MetricasDeDivisao metricas) {
+		if (limite < 1)
+			throw new IllegalArgumentException("Limite de divisão inválido: " + limite);
+		return new Metades(cursos, 0, cursos.length, limite, 0, metricas);
+	}
+
+	public Stream<Curso> parallelStream(int limite) {
+		return parallelStream(limite, null);
+	}
+
+	public Stream<Curso> parallelStream(int limite, MetricasDeDivisao metricas) {
+		return StreamSupport.stream(spliterator(limite, metricas), true);
+	}
+
+	/*
+	 * Spliterator que divide [inicio, fim) ao meio. Cada metade guarda a sua
+	 * profundidade para as métricas.
+	 */
+	private static final class Metades implements Spliterator<Curso> {
+
+		private final Curso[] cursos;
+		private int inicio;
+		private final int fim;
+		private final int limite;
+		private int profundidade;
+		private final MetricasDeDivisao metricas;
+
+		Metades(Curso[] cursos, int inicio, int fim, int limite, int profundidade, MetricasDeDivisao metricas) {
+			this.cursos = cursos;
+			this.inicio = inicio;
+			this.fim = fim;
+			this.limite = limite;
+			this.profundidade = profundidade;
+			this.metricas = metricas;
+		}
+
+		@Override
+		public Spliterator<Curso> trySplit() {
+			if (fim - inicio <= limite)
+				return null;
+			int meio = (inicio + fim) >>> 1;
+			Spliterator<Curso> prefixo = new Metades(cursos, inicio, meio, limite, ++profundidade, metricas);
+			inicio = meio;
+			if (metricas != null)
+				metricas.registraDivisao();
+			return prefixo;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Curso> acao) {
+			if (inicio >= fim)
+				return false;
+			acao.accept(cursos[inicio++]);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Curso> acao) {
+			int de = inicio;
+			int ate = fim;
+			inicio = fim;
+			if (metricas == null) {
+				for (int i = de; i < ate; i++)
+					acao.accept(cursos[i]);
+				return;
+			}
+			long comeco = System.nanoTime();
+			for (int i = de; i < ate; i++)
+				acao.accept(cursos[i]);
+			metricas.registraFolha(profundidade, ate - de, System.nanoTime() - comeco);
+		}
+
+		@Override
+		public long estimateSize() {
+			return fim - inicio;
+		}
+
+		@Override
+		public int characteristics() {
+			return SIZED | SUBSIZED | IMMUTABLE | NONNULL | ORDERED;
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package br.com.totusttus.testes.stream;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * findAny, findFirst, anyMatch, allMatch e noneMatch paralelos que param
+ * todos os workers assim que a resposta é conhecida.
+ *
+ * O parallelStream().filter(...).findAny() também para, mas só confere o
+ * cancelamento entre pedaços, e um pedaço já começado é avaliado até o fim.
+ * Com predicados caros isso pesa. Aqui a coleção é dividida em blocos
+ * executados no ForkJoinPool, e todos compartilham a posição do melhor
+ * elemento encontrado até agora, que é conferida antes de cada avaliação:
+ * <ul>
+ * <li>no findAny, o primeiro elemento encontrado interrompe todos os blocos;</li>
+ * <li>no findFirst, um elemento encontrado interrompe só os blocos que estão
+ * depois dele, pois algum bloco anterior ainda pode ter um elemento que vem
+ * antes.</li>
+ * </ul>
+ *
+ * O Resultado informa quantos elementos foram avaliados de verdade, para
+ * conferir que a parada antecipada funcionou.
+ *
+ * <pre>
+ * BuscaParalela busca = new BuscaParalela();
+ * BuscaParalela.Resultado&lt;Curso&gt; resultado = busca.qualquer(cursos, c -> c.getAlunos() > 100);
+ * resultado.getElemento().ifPresent(c -> System.out.println(c.getNome()));
+ * System.out.println(resultado.getAvaliados());
+ * </pre>
+ *
+ * @author thiag
+ *
+ */
+public class BuscaParalela {
+
+	/**
+	 * Quantidade de elementos de cada bloco. Pensado para predicados caros;
+	 * para predicados baratos o parallelStream já é suficiente.
+	 */
+	public static final int BLOCO_PADRAO = 256;
+
+	private static final int NENHUMA = Integer.MAX_VALUE;
+
+	private final ForkJoinPool pool;
+	private final int tamanhoDoBloco;
+
+	public BuscaParalela() {
+		this(ForkJoinPool.commonPool(), BLOCO_PADRAO);
+	}
+
+	public BuscaParalela(ForkJoinPool pool, int tamanhoDoBloco) {
+		if (tamanhoDoBloco < 1)
+			throw new IllegalArgumentException("Tamanho do bloco inválido: " + tamanhoDoBloco);
+		this.pool = pool;
+		this.tamanhoDoBloco = tamanhoDoBloco;
+	}
+
+	/**
+	 * Resultado de uma busca: o elemento encontrado, a sua posição e quantos
+	 * elementos foram avaliados pelo predicado.
+	 */
+	public static class Resultado<T> {
+
+		private final T elemento;
+		private final int posicao;
+		private final long avaliados;
+
+		Resultado(T elemento, int posicao, long avaliados) {
+			this.elemento = elemento;
+			this.posicao = posicao;
+			this.avaliados = avaliados;
+		}
+
+		public Optional<T> getElemento() {
+			return Optional.ofNullable(elemento);
+		}
+
+		public boolean isEncontrado() {
+			return posicao >= 0;
+		}
+
+		/**
+		 * Posição do elemento na coleção, ou -1 se não encontrado.
+		 */
+		public int getPosicao() {
+			return posicao;
+		}
+
+		public long getAvaliados() {
+			return avaliados;
+		}
+
+		@Override
+		public String toString() {
+			return "Resultado [elemento=" + elemento + ", posicao=" + posicao + ", avaliados=" + avaliados + "]";
+		}
+	}
+
+	/**
+	 * Qualquer elemento que satisfaça o predicado, não necessariamente o
+	 * primeiro.
+	 */
+	public <T> Resultado<T> qualquer(Collection<? extends T> elementos, Predicate<? super T> predicado) {
+		return busca(elementos, predicado, false);
+	}
+
+	/**
+	 * O primeiro elemento, na ordem da coleção, que satisfaça o predicado.
+	 */
+	public <T> Resultado<T> primeiro(Collection<? extends T> elementos, Predicate<? super T> predicado) {
+		return busca(elementos, predicado, true);
+	}
+
+	public <T> Optional<T> findAny(Collection<? extends T> elementos, Predicate<? super T> predicado) {
+		return this.<T> qualquer(elementos, predicado).getElemento();
+	}
+
+	public <T> Optional<T> findFirst(Collection<? extends T> elementos, Predicate<? super T> predicado) {
+		return this.<T> primeiro(elementos, predicado).getElemento();
+	}
+
+	public <T> boolean anyMatch(Collection<? extends T> elementos, Predicate<? super T> predicado) {
+		return qualquer(elementos, predicado).isEncontrado();
+	}
+
+	/**
+	 * Para no primeiro elemento que não satisfaça o predicado.
+	 */
+	public <T> boolean allMatch(Collection<? extends T> elementos, Predicate<? super T> predicado) {
+		return !qualquer(elementos, predicado.negate()).isEncontrado();
+	}
+
+	public <T> boolean noneMatch(Collection<? extends T> elementos, Predicate<? super T> predicado) {
+		return !anyMatch(elementos, predicado);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> Resultado<T> busca(Collection<? extends T> elementos, Predicate<? super T> predicado,
+			boolean ordenada) {
+		List<? extends T> lista = elementos instanceof List && elementos instanceof RandomAccess
+				? (List<? extends T>) elementos
+				: (List<T>) Arrays.asList(elementos.toArray());
+		Busca<T> busca = new Busca<>(lista, predicado, ordenada);
+		if (!lista.isEmpty())
+			pool.invoke(new Bloco<>(busca, 0, lista.size()));
+		int posicao = busca.posicao.get();
+		return posicao == NENHUMA ? new Resultado<>(null, -1, busca.avaliados.sum())
+				: new Resultado<>(lista.get(posicao), posicao, busca.avaliados.sum());
+	}
+
+	/*
+	 * Estado compartilhado por todos os blocos de uma busca.
+	 */
+	private static class Busca<T> {
+
+		final List<? extends T> elementos;
+		final Predicate<? super T> predicado;
+		final boolean ordenada;
+		final AtomicInteger posicao = new AtomicInteger(NENHUMA);
+		final LongAdder avaliados = new LongAdder();
+
+		Busca(List<? extends T> elementos, Predicate<? super T> predicado, boolean ordenada) {
+			this.elementos = elementos;
+			this.predicado = predicado;
+			this.ordenada = ordenada;
+		}
+
+		/*
+		 * Ainda vale a pena avaliar a posição i? No findAny só enquanto nada foi
+		 * encontrado; no findFirst só se i vem antes do melhor encontrado.
+		 */
+		boolean continua(int i) {
+			int encontrada = posicao.get();
+			return ordenada ? i < encontrada : encontrada == NENHUMA;
+		}
+
+		void encontrou(int i) {
+			if (!ordenada) {
+				posicao.compareAndSet(NENHUMA, i);
+				return;
+			}
+			int atual;
+			while (i < (atual = posicao.get()) && !posicao.compareAndSet(atual, i))
+				;
+		}
+
+		/*
+		 * Uma exceção no predicado para todos os blocos; ela é relançada pelo
+		 * invoke.
+		 */
+		void interrompe() {
+			posicao.set(-1);
+		}
+	}
+
+	private class Bloco<T> extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Busca<T> busca;
+		private final int inicio;
+		private final int fim;
+
+		Bloco(Busca<T> busca, int inicio, int fim) {
+			this.busca = busca;
+			this.inicio = inicio;
+			this.fim = fim;
+		}
+
+		@Override
+		protected void compute() {
+			if (!busca.continua(inicio))
+				return;
+			if (fim - inicio > tamanhoDoBloco) {
+				int meio = (inicio + fim) >>> 1;
+				invokeAll(new Bloco<>(busca, inicio, meio), new Bloco<>(busca, meio, fim));
+				return;
+			}
+
+			int i = inicio;
+			try {
+				for (; i < fim && busca.continua(i); i++) {
+					if (busca.predicado.test(busca.elementos.get(i))) {
+						busca.encontrou(i);
+						i++;
+						break;
+					}
+				}
+			} catch (RuntimeException | Error e) {
+				busca.interrompe();
+				throw e;
+			} finally {
+				busca.avaliados.add(i - inicio);
+			}
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package br.com.totusttus.testes.stream;
+
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collector.Characteristics;
+
+import br.com.totusttus.testes.util.IntHistogram;
+import br.com.totusttus.testes.util.IntList;
+import br.com.totusttus.testes.util.LongList;
+
+/**
+ * Collectors que guardam os valores em arrays de primitivos.
+ *
+ * No StreamsTeste, map(c -> Long.valueOf(c.getAlunos())).collect(toList())
+ * cria um Long por curso e guarda uma referência para ele: com 10 milhões de
+ * cursos são uns 200 MB. Com toLongList(Curso::getAlunos) cada valor ocupa 8
+ * bytes dentro de um long[], e nenhum objeto é criado por elemento.
+ *
+ * <pre>
+ * LongList alunos = cursos.stream().collect(ColetoresPrimitivos.toLongList(Curso::getAlunos));
+ * </pre>
+ *
+ * @author thiag
+ *
+ */
+public final class ColetoresPrimitivos {
+
+	private ColetoresPrimitivos() {
+	}
+
+	public static <T> Collector<T, ?, IntList> toIntList(ToIntFunction<? super T> funcaoValor) {
+		return Collector.of(IntList::new, (lista, elemento) -> lista.add(funcaoValor.applyAsInt(elemento)),
+				(lista1, lista2) -> {
+					lista1.addAll(lista2);
+					return lista1;
+				}, Characteristics.IDENTITY_FINISH);
+	}
+
+	public static <T> Collector<T, ?, int[]> toIntArray(ToIntFunction<? super T> funcaoValor) {
+		return Collector.of(IntList::new, (IntList lista, T elemento) -> lista.add(funcaoValor.applyAsInt(elemento)),
+				(lista1, lista2) -> {
+					lista1.addAll(lista2);
+					return lista1;
+				}, IntList::toArray);
+	}
+
+	public static <T> Collector<T, ?, LongList> toLongList(ToLongFunction<? super T> funcaoValor) {
+		return Collector.of(LongList::new, (lista, elemento) -> lista.add(funcaoValor.applyAsLong(elemento)),
+				(lista1, lista2) -> {
+					lista1.addAll(lista2);
+					return lista1;
+				}, Characteristics.IDENTITY_FINISH);
+	}
+
+	public static <T> Collector<T, ?, long[]> toLongArray(ToLongFunction<? super T> funcaoValor) {
+		return Collector.of(LongList::new,
+				(LongList lista, T elemento) -> lista.add(funcaoValor.applyAsLong(elemento)), (lista1, lista2) -> {
+					lista1.addAll(lista2);
+					return lista1;
+				}, LongList::toArray);
+	}
+
+	/**
+	 * Quantas vezes cada valor aparece, como um groupingBy(..., counting())
+	 * sem boxing.
+	 */
+	public static <T> Collector<T, ?, IntHistogram> toIntHistogram(ToIntFunction<? super T> funcaoValor) {
+		return Collector.of(IntHistogram::new,
+				(histograma, elemento) -> histograma.add(funcaoValor.applyAsInt(elemento)),
+				(histograma1, histograma2) -> {
+					histograma1.merge(histograma2);
+					return histograma1;
+				}, Characteristics.UNORDERED, Characteristics.IDENTITY_FINISH);
+	}
+}
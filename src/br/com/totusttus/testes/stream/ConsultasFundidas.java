@@ -0,0 +1,223 @@
+package br.com.totusttus.testes.stream;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Executa várias consultas sobre a mesma fonte em uma única passada.
+ *
+ * No StreamsTeste a lista de cursos é percorrida uma vez para cada pipeline:
+ * um para imprimir, outro para somar, outro para o findAny, outro para o
+ * toMap, quase todos com o mesmo filter(c -> c.getAlunos() > 100). Aqui cada
+ * consulta é um filtro mais um Collector, e todas são montadas em um único
+ * Collector. Cada elemento é lido uma vez, cada filtro distinto é avaliado uma
+ * vez por elemento, e o elemento segue para todas as consultas que ele
+ * satisfaz.
+ *
+ * Filtros são considerados iguais quando são o mesmo objeto, então para
+ * compartilhar um filtro guarde-o em uma variável:
+ *
+ * <pre>
+ * Predicate&lt;Curso&gt; maisDe100 = c -> c.getAlunos() > 100;
+ * ConsultasFundidas&lt;Curso&gt; consultas = new ConsultasFundidas&lt;&gt;();
+ * ConsultasFundidas.Consulta&lt;Integer&gt; soma = consultas.soma(maisDe100, Curso::getAlunos);
+ * ConsultasFundidas.Consulta&lt;Optional&lt;Curso&gt;&gt; qualquer = consultas.qualquer(maisDe100);
+ * ConsultasFundidas.Resultados resultados = consultas.executa(cursos.parallelStream());
+ * System.out.println(resultados.get(soma));
+ * </pre>
+ *
+ * Nenhuma consulta para antes do fim: um qualquer() junto com uma soma ainda
+ * lê a fonte inteira, pois a soma precisa de todos os elementos.
+ *
+ * @author thiag
+ *
+ */
+public class ConsultasFundidas<T> {
+
+	private final Map<Predicate<? super T>, Integer> posicoesDosFiltros = new IdentityHashMap<>();
+	private final List<Predicate<? super T>> filtros = new ArrayList<>();
+	private final List<Definicao<T>> definicoes = new ArrayList<>();
+
+	/**
+	 * Identifica uma consulta para buscar o seu resultado nos Resultados.
+	 */
+	public static final class Consulta<R> {
+
+		private final Object dono;
+		private final int posicao;
+
+		private Consulta(Object dono, int posicao) {
+			this.dono = dono;
+			this.posicao = posicao;
+		}
+	}
+
+	/**
+	 * Os resultados de todas as consultas de uma execução.
+	 */
+	public static final class Resultados {
+
+		private final Object dono;
+		private final Object[] valores;
+
+		private Resultados(Object dono, Object[] valores) {
+			this.dono = dono;
+			this.valores = valores;
+		}
+
+		@SuppressWarnings("unchecked")
+		public <R> R get(Consulta<R> consulta) {
+			if (consulta.dono != dono || consulta.posicao >= valores.length)
+				throw new IllegalArgumentException("A consulta não fazia parte desta execução");
+			return (R) valores[consulta.posicao];
+		}
+	}
+
+	/*
+	 * Filtro (ou -1 para nenhum) e Collector de uma consulta, com os tipos
+	 * apagados para ficarem na mesma lista.
+	 */
+	private static final class Definicao<T> {
+
+		final int filtro;
+		final Supplier<Object> fornecedor;
+		final BiConsumer<Object, T> acumulador;
+		final BinaryOperator<Object> combinador;
+		final Function<Object, Object> finalizador;
+
+		@SuppressWarnings("unchecked")
+		Definicao(int filtro, Collector<? super T, ?, ?> coletor) {
+			Collector<T, Object, Object> apagado = (Collector<T, Object, Object>) coletor;
+			this.filtro = filtro;
+			this.fornecedor = apagado.supplier();
+			this.acumulador = apagado.accumulator();
+			this.combinador = apagado.combiner();
+			this.finalizador = apagado.finisher();
+		}
+	}
+
+	/**
+	 * Acrescenta uma consulta: os elementos que passam no filtro vão para o
+	 * coletor. O filtro pode ser null para receber todos os elementos.
+	 */
+	public <R> Consulta<R> adiciona(Predicate<? super T> filtro, Collector<? super T, ?, R> coletor) {
+		int posicaoDoFiltro = -1;
+		if (filtro != null) {
+			posicaoDoFiltro = posicoesDosFiltros.computeIfAbsent(filtro, f -> {
+				filtros.add(f);
+				return filtros.size() - 1;
+			});
+		}
+		definicoes.add(new Definicao<>(posicaoDoFiltro, coletor));
+		return new Consulta<>(this, definicoes.size() - 1);
+	}
+
+	public Consulta<Long> conta(Predicate<? super T> filtro) {
+		return adiciona(filtro, Collectors.counting());
+	}
+
+	public Consulta<Integer> soma(Predicate<? super T> filtro, ToIntFunction<? super T> funcaoValor) {
+		return adiciona(filtro, Collectors.summingInt(funcaoValor));
+	}
+
+	public <R> Consulta<List<R>> lista(Predicate<? super T> filtro, Function<? super T, ? extends R> funcao) {
+		return adiciona(filtro, Collectors.mapping(funcao, Collectors.toList()));
+	}
+
+	public <K, V> Consulta<Map<K, V>> mapa(Predicate<? super T> filtro, Function<? super T, ? extends K> funcaoChave,
+			Function<? super T, ? extends V> funcaoValor) {
+		return adiciona(filtro, Collectors.toMap(funcaoChave, funcaoValor));
+	}
+
+	/**
+	 * O primeiro elemento que passa no filtro, na ordem da fonte. Equivale ao
+	 * findFirst, e serve de findAny.
+	 */
+	public Consulta<Optional<T>> qualquer(Predicate<? super T> filtro) {
+		return adiciona(filtro, Collector.<T, Object[], Optional<T>> of(() -> new Object[1], (primeiro, elemento) -> {
+			if (primeiro[0] == null)
+				primeiro[0] = elemento;
+		}, (primeiro1, primeiro2) -> primeiro1[0] != null ? primeiro1 : primeiro2, primeiro -> {
+			@SuppressWarnings("unchecked")
+			T elemento = (T) primeiro[0];
+			return Optional.ofNullable(elemento);
+		}));
+	}
+
+	public Resultados executa(Collection<? extends T> fonte) {
+		return executa(fonte.stream());
+	}
+
+	/**
+	 * Executa todas as consultas em uma passada pelo stream, que pode ser
+	 * paralelo.
+	 */
+	public Resultados executa(Stream<? extends T> fonte) {
+		return fonte.collect(coletor());
+	}
+
+	/**
+	 * Todas as consultas juntas em um único Collector.
+	 */
+	public Collector<T, ?, Resultados> coletor() {
+		List<Predicate<? super T>> filtros = new ArrayList<>(this.filtros);
+		List<Definicao<T>> definicoes = new ArrayList<>(this.definicoes);
+		return Collector.of(() -> new Estado<>(filtros.size(), definicoes),
+				(estado, elemento) -> estado.acumula(filtros, definicoes, elemento),
+				(estado1, estado2) -> estado1.combina(definicoes, estado2),
+				estado -> new Resultados(this, estado.finaliza(definicoes)));
+	}
+
+	/*
+	 * O container de cada consulta, mais espaço para o resultado dos filtros
+	 * do elemento atual.
+	 */
+	private static final class Estado<T> {
+
+		final boolean[] passou;
+		final Object[] containers;
+
+		Estado(int filtros, List<Definicao<T>> definicoes) {
+			this.passou = new boolean[filtros];
+			this.containers = new Object[definicoes.size()];
+			for (int i = 0; i < containers.length; i++)
+				containers[i] = definicoes.get(i).fornecedor.get();
+		}
+
+		void acumula(List<Predicate<? super T>> filtros, List<Definicao<T>> definicoes, T elemento) {
+			for (int i = 0; i < passou.length; i++)
+				passou[i] = filtros.get(i).test(elemento);
+			for (int i = 0; i < containers.length; i++) {
+				Definicao<T> definicao = definicoes.get(i);
+				if (definicao.filtro < 0 || passou[definicao.filtro])
+					definicao.acumulador.accept(containers[i], elemento);
+			}
+		}
+
+		Estado<T> combina(List<Definicao<T>> definicoes, Estado<T> outro) {
+			for (int i = 0; i < containers.length; i++)
+				containers[i] = definicoes.get(i).combinador.apply(containers[i], outro.containers[i]);
+			return this;
+		}
+
+		Object[] finaliza(List<Definicao<T>> definicoes) {
+			Object[] resultados = new Object[containers.length];
+			for (int i = 0; i < containers.length; i++)
+				resultados[i] = definicoes.get(i).finalizador.apply(containers[i]);
+			return resultados;
+		}
+	}
+}
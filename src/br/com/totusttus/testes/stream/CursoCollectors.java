@@ -0,0 +1,154 @@
+package br.com.totusttus.testes.stream;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collector.Characteristics;
+import java.util.stream.Collectors;
+
+import br.com.totusttus.testes.model.Curso;
+import br.com.totusttus.testes.model.CursoDoDicionario;
+import br.com.totusttus.testes.util.DicionarioDeNomes;
+import br.com.totusttus.testes.util.StringIntMap;
+import br.com.totusttus.testes.util.TopK;
+
+/**
+ * Fábrica de Collectors para cursos, no mesmo espírito da classe Collectors.
+ *
+ * O Collectors.toMap usado no StreamsTeste tem dois problemas em listas
+ * grandes: lança IllegalStateException quando encontra um nome repetido, e em
+ * um parallelStream cria um HashMap por worker que depois precisam ser
+ * juntados um a um.
+ *
+ * @author thiag
+ *
+ */
+public class CursoCollectors {
+
+	/**
+	 * Função de merge que soma os alunos de cursos com o mesmo nome.
+	 */
+	public static final IntBinaryOperator SOMA_ALUNOS = Integer::sum;
+
+	private CursoCollectors() {
+	}
+
+	/**
+	 * Mapa nome -> alunos, somando os alunos de nomes repetidos.
+	 */
+	public static Collector<Curso, ?, ConcurrentMap<String, Integer>> alunosPorNome() {
+		return alunosPorNome(Integer::sum);
+	}
+
+	/**
+	 * Mapa nome -> alunos com função de merge configurável.
+	 *
+	 * O Collector devolvido é CONCURRENT e UNORDERED: em um parallelStream
+	 * todos os workers escrevem no mesmo ConcurrentHashMap em uma única
+	 * passada, sem a fase de junção de mapas intermediários.
+	 */
+	public static Collector<Curso, ?, ConcurrentMap<String, Integer>> alunosPorNome(
+			BinaryOperator<Integer> funcaoDeMerge) {
+		return Collectors.toConcurrentMap(Curso::getNome, Curso::getAlunos, funcaoDeMerge);
+	}
+
+	/**
+	 * Mapa nome -> alunos sem boxing, somando os alunos de nomes repetidos.
+	 */
+	public static Collector<Curso, ?, StringIntMap> alunosPorNomePrimitivo() {
+		return alunosPorNomePrimitivo(SOMA_ALUNOS);
+	}
+
+	/**
+	 * Mapa nome -> alunos sem boxing, com função de merge configurável.
+	 */
+	public static Collector<Curso, ?, StringIntMap> alunosPorNomePrimitivo(IntBinaryOperator funcaoDeMerge) {
+		return toStringIntMap(Curso::getNome, Curso::getAlunos, funcaoDeMerge);
+	}
+
+	/**
+	 * Soma dos alunos por nome, em um long[] indexado pelo id do nome no
+	 * dicionário. O id já vem calculado no CursoDoDicionario, então cada curso
+	 * custa um acesso a array: sem hash de String, sem comparar nomes e sem
+	 * Map. Os cursos precisam ser do dicionário informado.
+	 */
+	public static Collector<CursoDoDicionario, ?, long[]> alunosPorIdDoNome(DicionarioDeNomes dicionario) {
+		return Collector.of(() -> new SomasPorId(dicionario.size()), (somas, curso) -> {
+			if (curso.getDicionario() != dicionario)
+				throw new IllegalArgumentException("Curso de outro dicionário: " + curso);
+			somas.add(curso.getIdDoNome(), curso.getAlunos());
+		}, SomasPorId::junta, somas -> somas.toArray(dicionario.size()), Characteristics.UNORDERED);
+	}
+
+	/*
+	 * long[] indexado pelo id, criado com o tamanho do dicionário e dobrado se
+	 * aparecer um id cadastrado depois.
+	 */
+	private static final class SomasPorId {
+
+		private long[] somas;
+
+		SomasPorId(int ids) {
+			this.somas = new long[Math.max(ids, 1)];
+		}
+
+		void add(int id, long valor) {
+			if (id >= somas.length)
+				somas = Arrays.copyOf(somas, Math.max(id + 1, somas.length * 2));
+			somas[id] += valor;
+		}
+
+		SomasPorId junta(SomasPorId outras) {
+			if (outras.somas.length > somas.length)
+				somas = Arrays.copyOf(somas, outras.somas.length);
+			for (int id = 0; id < outras.somas.length; id++)
+				somas[id] += outras.somas[id];
+			return this;
+		}
+
+		/*
+		 * No fim, o dicionário já tem todos os ids que foram somados.
+		 */
+		long[] toArray(int ids) {
+			return Arrays.copyOf(somas, ids);
+		}
+	}
+
+	/**
+	 * Os k cursos com mais alunos, do maior para o menor. Substitui o
+	 * sort(Comparator.comparingInt(Curso::getAlunos)) quando só interessa o
+	 * topo do ranking.
+	 */
+	public static Collector<Curso, ?, List<Curso>> maioresPorAlunos(int k) {
+		return TopK.maiores(k, Curso::getAlunos);
+	}
+
+	/**
+	 * Os k cursos com menos alunos, do menor para o maior.
+	 */
+	public static Collector<Curso, ?, List<Curso>> menoresPorAlunos(int k) {
+		return TopK.menores(k, Curso::getAlunos);
+	}
+
+	/**
+	 * Versão genérica do alunosPorNomePrimitivo, recebendo as mesmas funções de
+	 * chave e valor que o Collectors.toMap.
+	 *
+	 * Cada worker acumula no seu próprio StringIntMap, e só no final os mapas
+	 * são juntados, sem criar nenhum Integer.
+	 */
+	public static <T> Collector<T, ?, StringIntMap> toStringIntMap(Function<? super T, String> funcaoChave,
+			ToIntFunction<? super T> funcaoValor, IntBinaryOperator funcaoDeMerge) {
+		return Collector.of(StringIntMap::new,
+				(mapa, elemento) -> mapa.merge(funcaoChave.apply(elemento), funcaoValor.applyAsInt(elemento),
+						funcaoDeMerge),
+				(mapa1, mapa2) -> mapa1.size() >= mapa2.size() ? mapa1.mergeAll(mapa2, funcaoDeMerge)
+						: mapa2.mergeAll(mapa1, (valor2, valor1) -> funcaoDeMerge.applyAsInt(valor1, valor2)),
+				Characteristics.UNORDERED, Characteristics.IDENTITY_FINISH);
+	}
+}
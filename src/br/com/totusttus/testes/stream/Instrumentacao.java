@@ -0,0 +1,293 @@
+package br.com.totusttus.testes.stream;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Instrumentação opcional dos pipelines de stream: quantos elementos entram e
+ * saem de cada etapa, quanto tempo cada etapa gasta e quantos bytes o pipeline
+ * inteiro aloca.
+ *
+ * Em vez de reimplementar a interface Stream, embrulhamos os lambdas de cada
+ * etapa. O pipeline continua o mesmo, só muda o que é passado para o filter,
+ * o map, etc.:
+ *
+ * <pre>
+ * Instrumentacao medidor = new Instrumentacao(true);
+ * int soma = medidor.pipeline("soma", () -> medidor.fonte("cursos", cursos.stream())
+ * 		.filter(medidor.filter("alunos > 100", c -> c.getAlunos() > 100))
+ * 		.mapToInt(medidor.mapToInt("getAlunos", c -> c.getAlunos()))
+ * 		.sum());
+ * System.out.println(medidor.metricas());
+ * </pre>
+ *
+ * Desativada, cada método devolve o próprio lambda ou stream recebido, então
+ * o pipeline é exatamente o original e o custo é só o de uma chamada na
+ * montagem. Ativada, cada elemento paga duas chamadas a System.nanoTime por
+ * etapa medida; é para descobrir onde está o tempo, não para ficar ligada o
+ * tempo todo.
+ *
+ * Os bytes alocados são medidos só no pipeline inteiro, na thread que chama o
+ * pipeline(), e só em JVMs que implementam com.sun.management.ThreadMXBean.
+ * Em streams paralelos as alocações dos workers não entram na conta.
+ *
+ * @author thiag
+ *
+ */
+public class Instrumentacao {
+
+	/**
+	 * Instrumentação ligada se a JVM foi iniciada com -Dinstrumentacao=true.
+	 */
+	public static final Instrumentacao PADRAO = new Instrumentacao(Boolean.getBoolean("instrumentacao"));
+
+	private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+	private final boolean ativa;
+	private final Map<String, Contadores> etapas = new ConcurrentHashMap<>();
+
+	public Instrumentacao(boolean ativa) {
+		this.ativa = ativa;
+	}
+
+	private static com.sun.management.ThreadMXBean threads() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+			if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled())
+				return sun;
+		}
+		return null;
+	}
+
+	public boolean isAtiva() {
+		return ativa;
+	}
+
+	private static final class Contadores {
+
+		final LongAdder execucoes = new LongAdder();
+		final LongAdder entradas = new LongAdder();
+		final LongAdder saidas = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+		final LongAccumulator maximoDeNanos = new LongAccumulator(Math::max, 0);
+		final LongAdder bytesAlocados = new LongAdder();
+	}
+
+	private Contadores contadores(String etapa) {
+		return etapas.computeIfAbsent(etapa, nome -> new Contadores());
+	}
+
+	/**
+	 * Conta os elementos que saem da fonte.
+	 */
+	public <T> Stream<T> fonte(String etapa, Stream<T> stream) {
+		if (!ativa)
+			return stream;
+		LongAdder saidas = contadores(etapa).saidas;
+		return stream.peek(elemento -> saidas.increment());
+	}
+
+	public IntStream fonte(String etapa, IntStream stream) {
+		if (!ativa)
+			return stream;
+		LongAdder saidas = contadores(etapa).saidas;
+		return stream.peek(elemento -> saidas.increment());
+	}
+
+	public <T> Predicate<T> filter(String etapa, Predicate<T> filtro) {
+		if (!ativa)
+			return filtro;
+		Contadores contadores = contadores(etapa);
+		return elemento -> {
+			long inicio = System.nanoTime();
+			boolean passou = filtro.test(elemento);
+			contadores.nanos.add(System.nanoTime() - inicio);
+			contadores.entradas.increment();
+			if (passou)
+				contadores.saidas.increment();
+			return passou;
+		};
+	}
+
+	public IntPredicate filterInt(String etapa, IntPredicate filtro) {
+		if (!ativa)
+			return filtro;
+		Contadores contadores = contadores(etapa);
+		return valor -> {
+			long inicio = System.nanoTime();
+			boolean passou = filtro.test(valor);
+			contadores.nanos.add(System.nanoTime() - inicio);
+			contadores.entradas.increment();
+			if (passou)
+				contadores.saidas.increment();
+			return passou;
+		};
+	}
+
+	public <T, R> Function<T, R> map(String etapa, Function<T, R> funcao) {
+		if (!ativa)
+			return funcao;
+		Contadores contadores = contadores(etapa);
+		return elemento -> {
+			long inicio = System.nanoTime();
+			R resultado = funcao.apply(elemento);
+			contadores.nanos.add(System.nanoTime() - inicio);
+			contadores.entradas.increment();
+			contadores.saidas.increment();
+			return resultado;
+		};
+	}
+
+	public <T> ToIntFunction<T> mapToInt(String etapa, ToIntFunction<T> funcao) {
+		if (!ativa)
+			return funcao;
+		Contadores contadores = contadores(etapa);
+		return elemento -> {
+			long inicio = System.nanoTime();
+			int resultado = funcao.applyAsInt(elemento);
+			contadores.nanos.add(System.nanoTime() - inicio);
+			contadores.entradas.increment();
+			contadores.saidas.increment();
+			return resultado;
+		};
+	}
+
+	public <T> Consumer<T> forEach(String etapa, Consumer<T> acao) {
+		if (!ativa)
+			return acao;
+		Contadores contadores = contadores(etapa);
+		return elemento -> {
+			long inicio = System.nanoTime();
+			acao.accept(elemento);
+			contadores.nanos.add(System.nanoTime() - inicio);
+			contadores.entradas.increment();
+		};
+	}
+
+	/**
+	 * Executa o pipeline inteiro, medindo o tempo total e os bytes alocados na
+	 * thread atual.
+	 */
+	public <R> R pipeline(String nome, Supplier<R> pipeline) {
+		if (!ativa)
+			return pipeline.get();
+		Contadores contadores = contadores(nome);
+		long thread = Thread.currentThread().getId();
+		long bytesAntes = THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(thread);
+		long inicio = System.nanoTime();
+		try {
+			return pipeline.get();
+		} finally {
+			long nanos = System.nanoTime() - inicio;
+			if (THREADS != null)
+				contadores.bytesAlocados.add(THREADS.getThreadAllocatedBytes(thread) - bytesAntes);
+			contadores.nanos.add(nanos);
+			contadores.maximoDeNanos.accumulate(nanos);
+			contadores.execucoes.increment();
+		}
+	}
+
+	/**
+	 * O mesmo que pipeline(), para pipelines que terminam em forEach.
+	 */
+	public void executa(String nome, Runnable pipeline) {
+		pipeline(nome, () -> {
+			pipeline.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Métricas de uma etapa ou de um pipeline, copiadas no momento da chamada a
+	 * metricas().
+	 */
+	public static final class Metricas {
+
+		private final String nome;
+		private final long execucoes;
+		private final long entradas;
+		private final long saidas;
+		private final long nanos;
+		private final long maximoDeNanos;
+		private final long bytesAlocados;
+
+		Metricas(String nome, Contadores contadores) {
+			this.nome = nome;
+			this.execucoes = contadores.execucoes.sum();
+			this.entradas = contadores.entradas.sum();
+			this.saidas = contadores.saidas.sum();
+			this.nanos = contadores.nanos.sum();
+			this.maximoDeNanos = contadores.maximoDeNanos.get();
+			this.bytesAlocados = contadores.bytesAlocados.sum();
+		}
+
+		public String getNome() {
+			return nome;
+		}
+
+		/**
+		 * Quantas vezes o pipeline rodou; zero para etapas.
+		 */
+		public long getExecucoes() {
+			return execucoes;
+		}
+
+		public long getEntradas() {
+			return entradas;
+		}
+
+		public long getSaidas() {
+			return saidas;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		public long getMaximoDeNanos() {
+			return maximoDeNanos;
+		}
+
+		public long getBytesAlocados() {
+			return bytesAlocados;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder texto = new StringBuilder(nome).append(':');
+			if (execucoes > 0)
+				texto.append(" execucoes=").append(execucoes).append(", maximo=").append(maximoDeNanos / 1000)
+						.append(" us, bytes=").append(bytesAlocados).append(',');
+			else
+				texto.append(" entradas=").append(entradas).append(", saidas=").append(saidas).append(',');
+			return texto.append(" tempo=").append(nanos / 1000).append(" us").toString();
+		}
+	}
+
+	/**
+	 * Cópia das métricas de todas as etapas e pipelines, em ordem de nome.
+	 */
+	public Map<String, Metricas> metricas() {
+		Map<String, Metricas> copia = new TreeMap<>();
+		etapas.forEach((nome, contadores) -> copia.put(nome, new Metricas(nome, contadores)));
+		return Collections.unmodifiableMap(copia);
+	}
+
+	public void zera() {
+		etapas.clear();
+	}
+}
@@ -0,0 +1,112 @@
+package br.com.totusttus.testes.stream;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de como um Spliterator foi dividido em um stream paralelo: quantas
+ * divisões houve, a profundidade das folhas (os pedaços que não foram mais
+ * divididos) e quanto tempo cada folha levou.
+ *
+ * Servem para ajustar o limite de divisão do ArrayDeCursos:
+ * <ul>
+ * <li>muitas folhas com tempo médio de poucos microssegundos indicam que o
+ * limite está baixo demais e o custo das tarefas domina;</li>
+ * <li>menos folhas do que núcleos, ou um desequilíbrio alto (a folha mais lenta
+ * muito acima da média), indicam que o limite está alto demais.</li>
+ * </ul>
+ *
+ * Pode ser compartilhada entre threads. Só as folhas percorridas com
+ * forEachRemaining têm o tempo medido; operações que param no meio, como o
+ * findAny, usam tryAdvance.
+ *
+ * @author thiag
+ *
+ */
+public class MetricasDeDivisao {
+
+	private final LongAdder divisoes = new LongAdder();
+	private final LongAdder folhas = new LongAdder();
+	private final LongAdder elementos = new LongAdder();
+	private final LongAdder tempoTotal = new LongAdder();
+	private final LongAccumulator tempoMaximo = new LongAccumulator(Math::max, 0);
+	private final LongAccumulator tempoMinimo = new LongAccumulator(Math::min, Long.MAX_VALUE);
+	private final LongAccumulator profundidadeMaxima = new LongAccumulator(Math::max, 0);
+	private final LongAccumulator profundidadeMinima = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+	void registraDivisao() {
+		divisoes.increment();
+	}
+
+	void registraFolha(int profundidade, long quantidade, long nanos) {
+		folhas.increment();
+		elementos.add(quantidade);
+		tempoTotal.add(nanos);
+		tempoMaximo.accumulate(nanos);
+		tempoMinimo.accumulate(nanos);
+		profundidadeMaxima.accumulate(profundidade);
+		profundidadeMinima.accumulate(profundidade);
+	}
+
+	public long getDivisoes() {
+		return divisoes.sum();
+	}
+
+	public long getFolhas() {
+		return folhas.sum();
+	}
+
+	public long getElementos() {
+		return elementos.sum();
+	}
+
+	public int getProfundidadeMaxima() {
+		return (int) profundidadeMaxima.get();
+	}
+
+	public int getProfundidadeMinima() {
+		return getFolhas() == 0 ? 0 : (int) profundidadeMinima.get();
+	}
+
+	public long getTempoMedioPorFolhaEmNanos() {
+		long quantidade = getFolhas();
+		return quantidade == 0 ? 0 : tempoTotal.sum() / quantidade;
+	}
+
+	public long getTempoMaximoDeFolhaEmNanos() {
+		return tempoMaximo.get();
+	}
+
+	public long getTempoMinimoDeFolhaEmNanos() {
+		return getFolhas() == 0 ? 0 : tempoMinimo.get();
+	}
+
+	/**
+	 * Tempo da folha mais lenta dividido pelo tempo médio. Perto de 1 quer dizer
+	 * que o trabalho ficou bem distribuído.
+	 */
+	public double getDesequilibrio() {
+		long medio = getTempoMedioPorFolhaEmNanos();
+		return medio == 0 ? 0 : (double) getTempoMaximoDeFolhaEmNanos() / medio;
+	}
+
+	public void zera() {
+		divisoes.reset();
+		folhas.reset();
+		elementos.reset();
+		tempoTotal.reset();
+		tempoMaximo.reset();
+		tempoMinimo.reset();
+		profundidadeMaxima.reset();
+		profundidadeMinima.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"divisoes=%d, folhas=%d, elementos=%d, profundidade=%d..%d, tempo por folha=%.1f/%.1f/%.1f us (min/medio/max), desequilibrio=%.2f",
+				getDivisoes(), getFolhas(), getElementos(), getProfundidadeMinima(), getProfundidadeMaxima(),
+				getTempoMinimoDeFolhaEmNanos() / 1e3, getTempoMedioPorFolhaEmNanos() / 1e3,
+				getTempoMaximoDeFolhaEmNanos() / 1e3, getDesequilibrio());
+	}
+}
@@ -0,0 +1,116 @@
+package br.com.totusttus.testes.stream;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Resultado da AgregacaoPorChave: uma linha por chave, com as estatísticas
+ * guardadas em arrays (uma coluna por estatística).
+ *
+ * As linhas não têm ordem definida; use indiceDe(chave) para achar uma chave
+ * e linhas() para percorrer todas.
+ *
+ * @author thiag
+ *
+ */
+public class TabelaDeAgregados<K> {
+
+	private final List<K> chaves;
+	private final long[] quantidades;
+	private final long[] somas;
+	private final int[] minimos;
+	private final int[] maximos;
+	private final double[] percentis;
+	private final int[][] valoresDosPercentis;
+	private Map<K, Integer> indices;
+
+	TabelaDeAgregados(List<K> chaves, long[] quantidades, long[] somas, int[] minimos, int[] maximos,
+			double[] percentis, int[][] valoresDosPercentis) {
+		this.chaves = chaves;
+		this.quantidades = quantidades;
+		this.somas = somas;
+		this.minimos = minimos;
+		this.maximos = maximos;
+		this.percentis = percentis;
+		this.valoresDosPercentis = valoresDosPercentis;
+	}
+
+	public int size() {
+		return chaves.size();
+	}
+
+	public List<K> chaves() {
+		return Collections.unmodifiableList(chaves);
+	}
+
+	/**
+	 * As posições das linhas, para filtrar e ordenar pelas colunas.
+	 */
+	public IntStream linhas() {
+		return IntStream.range(0, chaves.size());
+	}
+
+	/**
+	 * Linha da chave, ou -1 se ela não existe.
+	 */
+	public synchronized int indiceDe(K chave) {
+		if (indices == null) {
+			indices = new HashMap<>();
+			for (int i = 0; i < chaves.size(); i++)
+				indices.put(chaves.get(i), i);
+		}
+		return indices.getOrDefault(chave, -1);
+	}
+
+	public K getChave(int linha) {
+		return chaves.get(linha);
+	}
+
+	public long getQuantidade(int linha) {
+		return quantidades[linha];
+	}
+
+	public long getSoma(int linha) {
+		return somas[linha];
+	}
+
+	public int getMinimo(int linha) {
+		return minimos[linha];
+	}
+
+	public int getMaximo(int linha) {
+		return maximos[linha];
+	}
+
+	public double getMedia(int linha) {
+		return (double) somas[linha] / quantidades[linha];
+	}
+
+	/**
+	 * Valor do percentil na posição informada em comPercentis(...). Por exemplo,
+	 * com comPercentis(50, 90), getPercentil(linha, 1) é o percentil 90.
+	 */
+	public int getPercentil(int linha, int qualPercentil) {
+		return valoresDosPercentis[qualPercentil][linha];
+	}
+
+	public double[] percentis() {
+		return percentis.clone();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder texto = new StringBuilder();
+		for (int i = 0; i < chaves.size(); i++) {
+			texto.append(chaves.get(i)).append(": quantidade=").append(quantidades[i]).append(", soma=")
+					.append(somas[i]).append(", min=").append(minimos[i]).append(", max=").append(maximos[i]);
+			for (int p = 0; p < percentis.length; p++)
+				texto.append(", p").append(percentis[p]).append('=').append(valoresDosPercentis[p][i]);
+			texto.append('\n');
+		}
+		return texto.toString();
+	}
+}
@@ -0,0 +1,219 @@
+package br.com.totusttus.testes.util;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache de resultados de pipelines sobre coleções que mudam pouco.
+ *
+ * Cada resultado é guardado pela coleção de origem (comparada por identidade)
+ * e por uma chave que identifica o pipeline, como "soma acima de 100". Lambdas
+ * não têm equals, por isso a chave é escolhida por quem chama. Junto com o
+ * resultado fica a versão da coleção em que ele foi calculado; se a coleção
+ * mudou, o resultado é descartado e calculado de novo, então nunca é devolvido
+ * um resultado antigo.
+ *
+ * O cache tem dois limites, a quantidade de entradas e o peso total, e remove
+ * as entradas usadas há mais tempo (LRU) quando passa de algum deles. O peso
+ * padrão de uma coleção ou mapa é o seu tamanho, e de qualquer outro resultado
+ * é 1.
+ *
+ * <pre>
+ * CacheDeResultados cache = new CacheDeResultados(1000, 1_000_000);
+ * int soma = cache.obtem(catalogo, "soma acima de 100",
+ * 		() -> catalogo.alunos().filter(a -> a > 100).sum());
+ * </pre>
+ *
+ * @author thiag
+ *
+ */
+public class CacheDeResultados {
+
+	private final int maximoDeEntradas;
+	private final long pesoMaximo;
+	private final ToLongFunction<Object> pesador;
+
+	private final LinkedHashMap<Chave, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+	private long pesoTotal;
+
+	private long acertos;
+	private long falhas;
+	private long remocoes;
+	private long invalidacoes;
+
+	public CacheDeResultados(int maximoDeEntradas, long pesoMaximo) {
+		this(maximoDeEntradas, pesoMaximo, CacheDeResultados::pesoEstimado);
+	}
+
+	public CacheDeResultados(int maximoDeEntradas, long pesoMaximo, ToLongFunction<Object> pesador) {
+		if (maximoDeEntradas < 1 || pesoMaximo < 1)
+			throw new IllegalArgumentException("Limites inválidos: " + maximoDeEntradas + ", " + pesoMaximo);
+		this.maximoDeEntradas = maximoDeEntradas;
+		this.pesoMaximo = pesoMaximo;
+		this.pesador = pesador;
+	}
+
+	/**
+	 * Peso padrão: o tamanho de coleções e mapas, 1 para o resto.
+	 */
+	public static long pesoEstimado(Object resultado) {
+		if (resultado instanceof Collection)
+			return ((Collection<?>) resultado).size() + 1L;
+		if (resultado instanceof Map)
+			return ((Map<?, ?>) resultado).size() + 1L;
+		return 1;
+	}
+
+	private static final class Chave {
+
+		final Object origem;
+		final Object consulta;
+
+		Chave(Object origem, Object consulta) {
+			this.origem = origem;
+			this.consulta = consulta;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(origem) + consulta.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Chave))
+				return false;
+			Chave outra = (Chave) obj;
+			return origem == outra.origem && consulta.equals(outra.consulta);
+		}
+	}
+
+	private static final class Entrada {
+
+		final long versao;
+		final Object resultado;
+		final long peso;
+
+		Entrada(long versao, Object resultado, long peso) {
+			this.versao = versao;
+			this.resultado = resultado;
+			this.peso = peso;
+		}
+	}
+
+	/**
+	 * Devolve o resultado guardado para a consulta na versão atual da origem,
+	 * ou executa o calculo e guarda o resultado.
+	 *
+	 * O cálculo roda fora do lock, então duas threads podem calcular a mesma
+	 * consulta ao mesmo tempo. Se a origem mudar durante o cálculo, o resultado
+	 * é devolvido mas não é guardado.
+	 */
+	@SuppressWarnings("unchecked")
+	public <R> R obtem(Versionado origem, Object consulta, Supplier<R> calculo) {
+		Objects.requireNonNull(consulta, "consulta");
+		Chave chave = new Chave(origem, consulta);
+		long versao = origem.getVersao();
+		synchronized (this) {
+			Entrada entrada = entradas.get(chave);
+			if (entrada != null) {
+				if (entrada.versao == versao) {
+					acertos++;
+					return (R) entrada.resultado;
+				}
+				remove(chave, entrada);
+				invalidacoes++;
+			}
+			falhas++;
+		}
+
+		R resultado = calculo.get();
+		long peso = pesador.applyAsLong(resultado);
+		if (peso > pesoMaximo || origem.getVersao() != versao)
+			return resultado;
+
+		synchronized (this) {
+			Entrada anterior = entradas.put(chave, new Entrada(versao, resultado, peso));
+			if (anterior != null)
+				pesoTotal -= anterior.peso;
+			pesoTotal += peso;
+			limita();
+		}
+		return resultado;
+	}
+
+	private void limita() {
+		Iterator<Entrada> maisAntigas = entradas.values().iterator();
+		while ((entradas.size() > maximoDeEntradas || pesoTotal > pesoMaximo) && maisAntigas.hasNext()) {
+			pesoTotal -= maisAntigas.next().peso;
+			maisAntigas.remove();
+			remocoes++;
+		}
+	}
+
+	private void remove(Chave chave, Entrada entrada) {
+		entradas.remove(chave);
+		pesoTotal -= entrada.peso;
+	}
+
+	/**
+	 * Descarta todos os resultados da origem informada.
+	 */
+	public synchronized void invalida(Versionado origem) {
+		Iterator<Map.Entry<Chave, Entrada>> iterador = entradas.entrySet().iterator();
+		while (iterador.hasNext()) {
+			Map.Entry<Chave, Entrada> entrada = iterador.next();
+			if (entrada.getKey().origem == origem) {
+				pesoTotal -= entrada.getValue().peso;
+				iterador.remove();
+				invalidacoes++;
+			}
+		}
+	}
+
+	public synchronized void limpa() {
+		entradas.clear();
+		pesoTotal = 0;
+	}
+
+	public synchronized int size() {
+		return entradas.size();
+	}
+
+	public synchronized long getPesoTotal() {
+		return pesoTotal;
+	}
+
+	public synchronized long getAcertos() {
+		return acertos;
+	}
+
+	public synchronized long getFalhas() {
+		return falhas;
+	}
+
+	/**
+	 * Entradas removidas por falta de espaço.
+	 */
+	public synchronized long getRemocoes() {
+		return remocoes;
+	}
+
+	/**
+	 * Entradas descartadas porque a origem mudou.
+	 */
+	public synchronized long getInvalidacoes() {
+		return invalidacoes;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "CacheDeResultados [entradas=" + entradas.size() + ", peso=" + pesoTotal + ", acertos=" + acertos
+				+ ", falhas=" + falhas + ", remocoes=" + remocoes + ", invalidacoes=" + invalidacoes + "]";
+	}
+}
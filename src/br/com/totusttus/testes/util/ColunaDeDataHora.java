@@ -0,0 +1,108 @@
+package br.com.totusttus.testes.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Coluna de data e hora guardadas como segundos desde 01/01/1970 00:00:00 em
+ * um long[], sem fuso horário (o mesmo que um LocalDateTime).
+ *
+ * É a versão com horas da ColunaDeDatas.
+ *
+ * @author thiag
+ *
+ */
+public class ColunaDeDataHora {
+
+	private static final int SEGUNDOS_POR_DIA = 86400;
+
+	private long[] segundos;
+	private int tamanho;
+
+	public ColunaDeDataHora() {
+		this(16);
+	}
+
+	public ColunaDeDataHora(int capacidade) {
+		this.segundos = new long[Math.max(capacidade, 1)];
+	}
+
+	private ColunaDeDataHora(long[] segundos) {
+		this.segundos = segundos;
+		this.tamanho = segundos.length;
+	}
+
+	public void add(LocalDateTime dataHora) {
+		addSegundoEpoch(dataHora.toEpochSecond(ZoneOffset.UTC));
+	}
+
+	public void addSegundoEpoch(long segundoEpoch) {
+		if (tamanho == segundos.length)
+			segundos = Arrays.copyOf(segundos, segundos.length + (segundos.length >> 1) + 1);
+		segundos[tamanho++] = segundoEpoch;
+	}
+
+	public int size() {
+		return tamanho;
+	}
+
+	public long getSegundoEpoch(int indice) {
+		if (indice < 0 || indice >= tamanho)
+			throw new IndexOutOfBoundsException("Indice: " + indice + ", tamanho: " + tamanho);
+		return segundos[indice];
+	}
+
+	public LocalDateTime get(int indice) {
+		return LocalDateTime.ofEpochSecond(getSegundoEpoch(indice), 0, ZoneOffset.UTC);
+	}
+
+	public LongStream segundosEpoch() {
+		return Arrays.stream(segundos, 0, tamanho);
+	}
+
+	/**
+	 * Dia de cada posição, no mesmo formato da ColunaDeDatas.
+	 */
+	public ColunaDeDatas datas() {
+		ColunaDeDatas datas = new ColunaDeDatas(tamanho);
+		for (int i = 0; i < tamanho; i++)
+			datas.addDiaEpoch(Math.floorDiv(segundos[i], SEGUNDOS_POR_DIA));
+		return datas;
+	}
+
+	public IntStream indicesAntesDe(LocalDateTime limite) {
+		long fim = limite.toEpochSecond(ZoneOffset.UTC);
+		return IntStream.range(0, tamanho).filter(i -> segundos[i] < fim);
+	}
+
+	/**
+	 * Posições entre inicio (inclusive) e fim (exclusive).
+	 */
+	public IntStream indicesEntre(LocalDateTime inicio, LocalDateTime fim) {
+		long de = inicio.toEpochSecond(ZoneOffset.UTC);
+		long ate = fim.toEpochSecond(ZoneOffset.UTC);
+		return IntStream.range(0, tamanho).filter(i -> segundos[i] >= de && segundos[i] < ate);
+	}
+
+	public int contaAntesDe(LocalDateTime limite) {
+		long fim = limite.toEpochSecond(ZoneOffset.UTC);
+		int quantidade = 0;
+		for (int i = 0; i < tamanho; i++)
+			quantidade += segundos[i] < fim ? 1 : 0;
+		return quantidade;
+	}
+
+	public ColunaDeDataHora plusSeconds(long quantidade) {
+		long[] novos = new long[tamanho];
+		for (int i = 0; i < tamanho; i++)
+			novos[i] = Math.addExact(segundos[i], quantidade);
+		return new ColunaDeDataHora(novos);
+	}
+
+	public ColunaDeDataHora plusDays(int quantidade) {
+		return plusSeconds((long) quantidade * SEGUNDOS_POR_DIA);
+	}
+}
@@ -0,0 +1,230 @@
+package br.com.totusttus.testes.util;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Coluna de datas guardadas como dias desde 01/01/1970 em um int[].
+ *
+ * Cada LocalDate custa um objeto com referência; aqui cada data custa 4
+ * bytes, e as operações em lote (filtro por intervalo, plusDays, plusMonths,
+ * agrupamento por mês) são laços simples sobre o array, sem criar LocalDate.
+ *
+ * Um int cobre datas de sobra (cerca de 5,8 milhões de anos para cada lado de
+ * 1970).
+ *
+ * @author thiag
+ *
+ */
+public class ColunaDeDatas {
+
+	private int[] dias;
+	private int tamanho;
+
+	public ColunaDeDatas() {
+		this(16);
+	}
+
+	public ColunaDeDatas(int capacidade) {
+		this.dias = new int[Math.max(capacidade, 1)];
+	}
+
+	private ColunaDeDatas(int[] dias) {
+		this.dias = dias;
+		this.tamanho = dias.length;
+	}
+
+	public static ColunaDeDatas of(LocalDate... datas) {
+		ColunaDeDatas coluna = new ColunaDeDatas(datas.length);
+		for (LocalDate data : datas)
+			coluna.add(data);
+		return coluna;
+	}
+
+	public void add(LocalDate data) {
+		addDiaEpoch(data.toEpochDay());
+	}
+
+	public void addDiaEpoch(long diaEpoch) {
+		if (diaEpoch < Integer.MIN_VALUE || diaEpoch > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Data fora do intervalo suportado: " + diaEpoch);
+		if (tamanho == dias.length)
+			dias = Arrays.copyOf(dias, dias.length + (dias.length >> 1) + 1);
+		dias[tamanho++] = (int) diaEpoch;
+	}
+
+	public int size() {
+		return tamanho;
+	}
+
+	public int getDiaEpoch(int indice) {
+		if (indice < 0 || indice >= tamanho)
+			throw new IndexOutOfBoundsException("Indice: " + indice + ", tamanho: " + tamanho);
+		return dias[indice];
+	}
+
+	/**
+	 * Cria o LocalDate da posição informada. Use só quando precisar do objeto.
+	 */
+	public LocalDate get(int indice) {
+		return LocalDate.ofEpochDay(getDiaEpoch(indice));
+	}
+
+	public IntStream diasEpoch() {
+		return Arrays.stream(dias, 0, tamanho);
+	}
+
+	// ---- Filtros por intervalo ----
+
+	/*
+	 * Os limites ficam em long: LocalDate.MIN e LocalDate.MAX, usados como
+	 * intervalo aberto, caem fora do int, e truncá-los inverteria a comparação.
+	 * Comparar o int da coluna com um long custa o mesmo.
+	 */
+
+	/**
+	 * Posições das datas anteriores ao limite, por exemplo as datas antes da
+	 * proximaCopa.
+	 */
+	public IntStream indicesAntesDe(LocalDate limite) {
+		long fim = limite.toEpochDay();
+		return IntStream.range(0, tamanho).filter(i -> dias[i] < fim);
+	}
+
+	public IntStream indicesDepoisDe(LocalDate limite) {
+		long inicio = limite.toEpochDay();
+		return IntStream.range(0, tamanho).filter(i -> dias[i] > inicio);
+	}
+
+	/**
+	 * Posições das datas entre inicio (inclusive) e fim (exclusive).
+	 */
+	public IntStream indicesEntre(LocalDate inicio, LocalDate fim) {
+		long de = inicio.toEpochDay();
+		long ate = fim.toEpochDay();
+		return IntStream.range(0, tamanho).filter(i -> dias[i] >= de && dias[i] < ate);
+	}
+
+	public int contaAntesDe(LocalDate limite) {
+		long fim = limite.toEpochDay();
+		int quantidade = 0;
+		for (int i = 0; i < tamanho; i++)
+			quantidade += dias[i] < fim ? 1 : 0;
+		return quantidade;
+	}
+
+	public int contaEntre(LocalDate inicio, LocalDate fim) {
+		long de = inicio.toEpochDay();
+		long ate = fim.toEpochDay();
+		int quantidade = 0;
+		for (int i = 0; i < tamanho; i++)
+			quantidade += dias[i] >= de && dias[i] < ate ? 1 : 0;
+		return quantidade;
+	}
+
+	/**
+	 * Dias de cada data até a data informada, o equivalente ao
+	 * ChronoUnit.DAYS.between(data, limite) de cada posição. Lança
+	 * ArithmeticException se alguma diferença não couber em um int.
+	 */
+	public IntStream diasAte(LocalDate limite) {
+		long fim = limite.toEpochDay();
+		return diasEpoch().map(dia -> Math.toIntExact(fim - dia));
+	}
+
+	// ---- Deslocamentos em lote ----
+
+	/**
+	 * Nova coluna com todas as datas somadas de dias, como um plusDays em cada
+	 * posição.
+	 */
+	public ColunaDeDatas plusDays(int quantidade) {
+		int[] novos = new int[tamanho];
+		for (int i = 0; i < tamanho; i++)
+			novos[i] = Math.addExact(dias[i], quantidade);
+		return new ColunaDeDatas(novos);
+	}
+
+	/**
+	 * Nova coluna com todas as datas somadas de meses. Assim como o
+	 * LocalDate.plusMonths, o dia é ajustado para o último dia do mês quando
+	 * não existe (31/01 + 1 mês = 28/02 ou 29/02).
+	 */
+	public ColunaDeDatas plusMonths(int quantidade) {
+		int[] novos = new int[tamanho];
+		for (int i = 0; i < tamanho; i++) {
+			long civil = FormatadorDeDatas.civilDoDiaEpoch(dias[i]);
+			int mesProleptico = Math.addExact(FormatadorDeDatas.ano(civil) * 12 + FormatadorDeDatas.mes(civil) - 1,
+					quantidade);
+			int ano = Math.floorDiv(mesProleptico, 12);
+			int mes = Math.floorMod(mesProleptico, 12) + 1;
+			int dia = Math.min(FormatadorDeDatas.dia(civil), FormatadorDeDatas.diasNoMes(ano, mes));
+			novos[i] = Math.toIntExact(FormatadorDeDatas.diaEpoch(ano, mes, dia));
+		}
+		return new ColunaDeDatas(novos);
+	}
+
+	// ---- Agrupamento por mês ----
+
+	/**
+	 * O mês de cada data como "mês proléptico" (ano * 12 + mês - 1), o mesmo
+	 * número que o YearMonth usa internamente.
+	 */
+	public IntStream mesesProlepticos() {
+		return diasEpoch().map(dia -> {
+			long civil = FormatadorDeDatas.civilDoDiaEpoch(dia);
+			return FormatadorDeDatas.ano(civil) * 12 + FormatadorDeDatas.mes(civil) - 1;
+		});
+	}
+
+	/**
+	 * Quantidade de datas em cada mês. A contagem é feita em um int[] indexado
+	 * pelo mês; só os meses com alguma data viram YearMonth no resultado.
+	 */
+	public Map<YearMonth, Integer> contagemPorAnoMes() {
+		Map<YearMonth, Integer> resultado = new TreeMap<>();
+		if (tamanho == 0)
+			return resultado;
+
+		int[] meses = mesesProlepticos().toArray();
+		int menor = Integer.MAX_VALUE;
+		int maior = Integer.MIN_VALUE;
+		for (int mes : meses) {
+			menor = Math.min(menor, mes);
+			maior = Math.max(maior, mes);
+		}
+
+		/*
+		 * Se as datas estiverem espalhadas demais, um array por mês seria
+		 * grande e quase vazio; nesse caso ordenamos e contamos as repetições.
+		 */
+		if ((long) maior - menor > 2L * tamanho + 1200) {
+			Arrays.sort(meses);
+			for (int i = 0; i < meses.length;) {
+				int j = i;
+				while (j < meses.length && meses[j] == meses[i])
+					j++;
+				resultado.put(anoMes(meses[i]), j - i);
+				i = j;
+			}
+			return resultado;
+		}
+
+		int[] contagem = new int[maior - menor + 1];
+		for (int mes : meses)
+			contagem[mes - menor]++;
+
+		for (int i = 0; i < contagem.length; i++)
+			if (contagem[i] > 0)
+				resultado.put(anoMes(menor + i), contagem[i]);
+		return resultado;
+	}
+
+	private static YearMonth anoMes(int mesProleptico) {
+		return YearMonth.of(Math.floorDiv(mesProleptico, 12), Math.floorMod(mesProleptico, 12) + 1);
+	}
+}
@@ -0,0 +1,356 @@
+package br.com.totusttus.testes.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Dicionário de nomes: dá a cada String distinta um id int, de 0 em diante,
+ * e guarda cada nome uma única vez.
+ *
+ * Quando poucos milhares de nomes se repetem em milhões de cursos, guardar o
+ * id no lugar da String economiza memória, e comparar ou usar como chave de
+ * mapa um int é bem mais barato do que uma String. Como os ids são densos, um
+ * array indexado pelo id substitui um Map<String, ...>.
+ *
+ * Os nomes ficam em um único byte[]: em Latin-1 (um byte por caractere)
+ * quando todos os caracteres cabem, e em UTF-8 quando não (ou em UTF-16, só
+ * para o caso raro de nomes com surrogates sem par, que o UTF-8 não
+ * representa). Por isso nome(id)
+ * cria uma String nova a cada chamada; nos laços, prefira trabalhar com os
+ * ids.
+ *
+ * Pode ser usado por várias threads. Buscar um nome já cadastrado não usa
+ * lock; só o cadastro de nomes novos é sincronizado.
+ *
+ * @author thiag
+ *
+ */
+public class DicionarioDeNomes {
+
+	/*
+	 * Bits mais altos do tamanho: o nome está em UTF-8 ou em UTF-16; sem
+	 * nenhum dos dois, em Latin-1.
+	 */
+	private static final int UTF8 = 1 << 31;
+	private static final int UTF16 = 1 << 30;
+	private static final int BYTES = ~(UTF8 | UTF16);
+
+	/*
+	 * Tudo o que uma busca sem lock precisa enxergar. Quando algum array
+	 * cresce, um Estado novo é publicado com todos eles; enquanto não cresce, o
+	 * cadastro escreve os dados do id novo e só então publica o id na tabela,
+	 * que é um AtomicIntegerArray, então quem encontra o id na tabela enxerga
+	 * os dados.
+	 */
+	private static final class Estado {
+
+		final byte[] bytes;
+		final int[] inicios;
+		final int[] tamanhos;
+		final int[] hashes;
+		final AtomicIntegerArray tabela;
+
+		Estado(byte[] bytes, int[] inicios, int[] tamanhos, int[] hashes, AtomicIntegerArray tabela) {
+			this.bytes = bytes;
+			this.inicios = inicios;
+			this.tamanhos = tamanhos;
+			this.hashes = hashes;
+			this.tabela = tabela;
+		}
+	}
+
+	private volatile Estado estado = new Estado(new byte[1024], new int[64], new int[64], new int[64],
+			new AtomicIntegerArray(128));
+	private volatile int tamanho;
+	private int bytesUsados;
+
+	/**
+	 * Id do nome, cadastrando-o se ainda não existir.
+	 */
+	public int id(String nome) {
+		int hash = nome.hashCode();
+		int id = busca(estado, nome, hash);
+		return id >= 0 ? id : cadastra(nome, hash);
+	}
+
+	/**
+	 * Id do nome, ou -1 se ele não foi cadastrado.
+	 */
+	public int idSeExistir(String nome) {
+		return busca(estado, nome, nome.hashCode());
+	}
+
+	private static int espalha(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static int busca(Estado estado, String nome, int hash) {
+		AtomicIntegerArray tabela = estado.tabela;
+		int mascara = tabela.length() - 1;
+		for (int i = espalha(hash) & mascara;; i = (i + 1) & mascara) {
+			int id = tabela.get(i) - 1;
+			if (id < 0)
+				return -1;
+			if (estado.hashes[id] == hash && igual(estado, id, nome))
+				return id;
+		}
+	}
+
+	private static boolean igual(Estado estado, int id, String nome) {
+		int inicio = estado.inicios[id];
+		int tamanho = estado.tamanhos[id];
+		if ((tamanho & UTF8) != 0)
+			return igualUtf8(estado.bytes, inicio, inicio + (tamanho & BYTES), nome);
+		if ((tamanho & UTF16) != 0) {
+			if ((tamanho & BYTES) != nome.length() * 2)
+				return false;
+			for (int i = 0; i < nome.length(); i++)
+				if (utf16(estado.bytes, inicio + i * 2) != nome.charAt(i))
+					return false;
+			return true;
+		}
+		if (tamanho != nome.length())
+			return false;
+		for (int i = 0; i < tamanho; i++)
+			if ((estado.bytes[inicio + i] & 0xFF) != nome.charAt(i))
+				return false;
+		return true;
+	}
+
+	/*
+	 * Codifica o nome em UTF-8 caractere a caractere, comparando com os bytes
+	 * guardados, sem criar uma String nem um byte[]. Nomes com surrogates sem
+	 * par não são guardados em UTF-8, então aqui nunca são iguais.
+	 */
+	private static boolean igualUtf8(byte[] bytes, int posicao, int fim, String nome) {
+		for (int i = 0; i < nome.length(); i++) {
+			int c = nome.charAt(i);
+			if (Character.isHighSurrogate((char) c) && i + 1 < nome.length()
+					&& Character.isLowSurrogate(nome.charAt(i + 1)))
+				c = Character.toCodePoint((char) c, nome.charAt(++i));
+			else if (Character.isSurrogate((char) c))
+				return false;
+
+			int quantidade = c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+			if (fim - posicao < quantidade)
+				return false;
+			if (quantidade == 1) {
+				if (bytes[posicao++] != c)
+					return false;
+				continue;
+			}
+			int primeiro = (0xF00 >> quantidade) & 0xFF | c >> (6 * (quantidade - 1));
+			if ((bytes[posicao++] & 0xFF) != primeiro)
+				return false;
+			for (int deslocamento = 6 * (quantidade - 2); deslocamento >= 0; deslocamento -= 6)
+				if ((bytes[posicao++] & 0xFF) != (0x80 | (c >> deslocamento) & 0x3F))
+					return false;
+		}
+		return posicao == fim;
+	}
+
+	private synchronized int cadastra(String nome, int hash) {
+		Estado atual = estado;
+		int existente = busca(atual, nome, hash);
+		if (existente >= 0)
+			return existente;
+
+		byte[] codificado = codifica(nome);
+		int id = tamanho;
+		atual = garanteEspaco(atual, id + 1, codificado.length);
+		System.arraycopy(codificado, 0, atual.bytes, bytesUsados, codificado.length);
+		atual.inicios[id] = bytesUsados;
+		atual.tamanhos[id] = codificado.length | codificacao(nome);
+		atual.hashes[id] = hash;
+		bytesUsados += codificado.length;
+		/*
+		 * O tamanho é escrito antes de o id aparecer na tabela: quem encontrar o
+		 * id pela busca sem lock já passa no verificaId do nome(id).
+		 */
+		tamanho = id + 1;
+		insere(atual.tabela, id, hash);
+		return id;
+	}
+
+	private static boolean latin1(String nome) {
+		for (int i = 0; i < nome.length(); i++)
+			if (nome.charAt(i) > 0xFF)
+				return false;
+		return true;
+	}
+
+	private static boolean surrogatesEmPar(String nome) {
+		for (int i = 0; i < nome.length(); i++) {
+			char c = nome.charAt(i);
+			if (Character.isHighSurrogate(c) && i + 1 < nome.length() && Character.isLowSurrogate(nome.charAt(i + 1)))
+				i++;
+			else if (Character.isSurrogate(c))
+				return false;
+		}
+		return true;
+	}
+
+	private static int codificacao(String nome) {
+		return latin1(nome) ? 0 : surrogatesEmPar(nome) ? UTF8 : UTF16;
+	}
+
+	private static byte[] codifica(String nome) {
+		int codificacao = codificacao(nome);
+		if (codificacao == 0)
+			return nome.getBytes(StandardCharsets.ISO_8859_1);
+		if (codificacao == UTF8)
+			return nome.getBytes(StandardCharsets.UTF_8);
+		/*
+		 * Sem o getBytes de UTF-16, que trocaria o surrogate sem par por outro
+		 * caractere.
+		 */
+		byte[] bytes = new byte[nome.length() * 2];
+		for (int i = 0; i < nome.length(); i++) {
+			bytes[i * 2] = (byte) (nome.charAt(i) >> 8);
+			bytes[i * 2 + 1] = (byte) nome.charAt(i);
+		}
+		return bytes;
+	}
+
+	private static char utf16(byte[] bytes, int posicao) {
+		return (char) ((bytes[posicao] & 0xFF) << 8 | bytes[posicao + 1] & 0xFF);
+	}
+
+	private static void insere(AtomicIntegerArray tabela, int id, int hash) {
+		int mascara = tabela.length() - 1;
+		int i = espalha(hash) & mascara;
+		while (tabela.get(i) != 0)
+			i = (i + 1) & mascara;
+		tabela.set(i, id + 1);
+	}
+
+	/*
+	 * Cresce os arrays que não comportam mais um id ou os bytes do nome,
+	 * publicando um Estado novo. A tabela é mantida com no máximo metade das
+	 * posições ocupadas.
+	 */
+	private Estado garanteEspaco(Estado atual, int ids, int bytesNovos) {
+		boolean cabeIds = ids <= atual.inicios.length;
+		boolean cabeBytes = bytesUsados + bytesNovos <= atual.bytes.length;
+		boolean cabeTabela = ids * 2 <= atual.tabela.length();
+		if (cabeIds && cabeBytes && cabeTabela)
+			return atual;
+
+		byte[] bytes = cabeBytes ? atual.bytes
+				: Arrays.copyOf(atual.bytes, Math.max(bytesUsados + bytesNovos, atual.bytes.length * 2));
+		int capacidade = cabeIds ? atual.inicios.length : atual.inicios.length * 2;
+		int[] inicios = cabeIds ? atual.inicios : Arrays.copyOf(atual.inicios, capacidade);
+		int[] tamanhos = cabeIds ? atual.tamanhos : Arrays.copyOf(atual.tamanhos, capacidade);
+		int[] hashes = cabeIds ? atual.hashes : Arrays.copyOf(atual.hashes, capacidade);
+		/*
+		 * A tabela é sempre refeita: uma busca que ainda usa o Estado antigo não
+		 * pode encontrar um id cujos dados só existem nos arrays novos.
+		 */
+		AtomicIntegerArray tabela = new AtomicIntegerArray(
+				cabeTabela ? atual.tabela.length() : atual.tabela.length() * 2);
+		for (int id = 0; id < tamanho; id++)
+			insere(tabela, id, hashes[id]);
+		Estado novo = new Estado(bytes, inicios, tamanhos, hashes, tabela);
+		estado = novo;
+		return novo;
+	}
+
+	/**
+	 * O nome do id. Cria uma String nova a cada chamada.
+	 */
+	public String nome(int id) {
+		verificaId(id);
+		Estado atual = estado;
+		int tamanho = atual.tamanhos[id];
+		int inicio = atual.inicios[id];
+		if ((tamanho & UTF8) != 0)
+			return new String(atual.bytes, inicio, tamanho & BYTES, StandardCharsets.UTF_8);
+		if ((tamanho & UTF16) != 0) {
+			char[] caracteres = new char[(tamanho & BYTES) / 2];
+			for (int i = 0; i < caracteres.length; i++)
+				caracteres[i] = utf16(atual.bytes, inicio + i * 2);
+			return new String(caracteres);
+		}
+		return new String(atual.bytes, inicio, tamanho, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Compara o nome do id com a String sem criar outra String (quando o nome
+	 * está em Latin-1).
+	 */
+	public boolean nomeIgual(int id, String nome) {
+		verificaId(id);
+		return igual(estado, id, nome);
+	}
+
+	private void verificaId(int id) {
+		if (id < 0 || id >= tamanho)
+			throw new IndexOutOfBoundsException("Id: " + id + ", tamanho: " + tamanho);
+	}
+
+	/**
+	 * Quantidade de nomes distintos; os ids vão de 0 a size() - 1.
+	 */
+	public int size() {
+		return tamanho;
+	}
+
+	/**
+	 * Bytes ocupados pelos nomes.
+	 */
+	public synchronized int bytesDosNomes() {
+		return bytesUsados;
+	}
+
+	/**
+	 * A posição de cada id na ordem alfabética dos nomes (ordem de
+	 * String.compareTo). Depois de calculada uma vez, ordenar por nome é
+	 * comparar ordem[id1] com ordem[id2], dois ints.
+	 */
+	public int[] ordemAlfabetica() {
+		int quantidade = tamanho;
+		String[] nomes = new String[quantidade];
+		Integer[] ids = new Integer[quantidade];
+		for (int id = 0; id < quantidade; id++) {
+			nomes[id] = nome(id);
+			ids[id] = id;
+		}
+		/*
+		 * Ordenamos os ids pelos nomes em vez de ordenar os nomes e procurar o
+		 * id de cada um: o cadastra publica o tamanho antes de colocar o id na
+		 * tabela, então outra thread cadastrando ao mesmo tempo pode deixar um
+		 * id visível aqui que o idSeExistir ainda não encontra.
+		 */
+		Arrays.sort(ids, (id1, id2) -> nomes[id1].compareTo(nomes[id2]));
+		int[] ordem = new int[quantidade];
+		for (int posicao = 0; posicao < quantidade; posicao++)
+			ordem[ids[posicao]] = posicao;
+		return ordem;
+	}
+
+	/**
+	 * Os ids ordenados pelos seus nomes, sem boxing: cada id vira um long com a
+	 * posição alfabética nos 32 bits altos e o id nos baixos, e o long[] é
+	 * ordenado com Arrays.sort.
+	 */
+	public int[] ordenaPorNome(int[] ids) {
+		return ordenaPorNome(ids, ordemAlfabetica());
+	}
+
+	/**
+	 * Como ordenaPorNome(ids), reaproveitando uma ordemAlfabetica() já
+	 * calculada.
+	 */
+	public static int[] ordenaPorNome(int[] ids, int[] ordem) {
+		long[] chaves = new long[ids.length];
+		for (int i = 0; i < ids.length; i++)
+			chaves[i] = (long) ordem[ids[i]] << 32 | ids[i];
+		Arrays.sort(chaves);
+		int[] ordenados = new int[ids.length];
+		for (int i = 0; i < chaves.length; i++)
+			ordenados[i] = (int) chaves[i];
+		return ordenados;
+	}
+}
@@ -0,0 +1,340 @@
+package br.com.totusttus.testes.util;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executa tarefas (os mesmos lambdas que passaríamos para um new Thread) sem
+ * criar uma thread de plataforma por tarefa.
+ *
+ * Se a JVM tiver virtual threads (Java 21+), cada tarefa roda em uma virtual
+ * thread. Caso contrário, usamos um pool limitado de threads com uma fila
+ * limitada; quando a fila enche, quem submeteu a tarefa a executa (o
+ * CallerRunsPolicy), o que segura quem está produzindo tarefas rápido demais.
+ *
+ * Também mantém métricas simples: tarefas aguardando, ativas, concluídas,
+ * com falha e os tempos de espera e execução.
+ *
+ * @author thiag
+ *
+ */
+public class ExecutorDeTarefas implements AutoCloseable {
+
+	private final ExecutorService executor;
+	private final boolean threadsVirtuais;
+
+	private final AtomicInteger aguardando = new AtomicInteger();
+	private final AtomicInteger ativas = new AtomicInteger();
+	private final LongAdder concluidas = new LongAdder();
+	private final LongAdder falhas = new LongAdder();
+	private final LongAdder tempoTotalDeEspera = new LongAdder();
+	private final LongAdder tempoTotalDeExecucao = new LongAdder();
+	private final LongAccumulator maiorTempoDeExecucao = new LongAccumulator(Math::max, 0);
+
+	private ExecutorDeTarefas(ExecutorService executor, boolean threadsVirtuais) {
+		this.executor = executor;
+		this.threadsVirtuais = threadsVirtuais;
+	}
+
+	/**
+	 * Virtual threads quando disponíveis; senão, um pool com duas threads por
+	 * processador.
+	 */
+	public static ExecutorDeTarefas novo() {
+		ExecutorService virtual = executorDeThreadsVirtuais();
+		if (virtual != null)
+			return new ExecutorDeTarefas(virtual, true);
+		int threads = Runtime.getRuntime().availableProcessors() * 2;
+		return comPoolLimitado(threads, threads * 1024);
+	}
+
+	/**
+	 * Sempre usa um pool de threads de plataforma, com o número de threads e
+	 * o tamanho da fila informados.
+	 */
+	public static ExecutorDeTarefas comPoolLimitado(int threads, int capacidadeDaFila) {
+		AtomicInteger contador = new AtomicInteger();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(capacidadeDaFila), tarefa -> {
+					Thread thread = new Thread(tarefa, "tarefa-" + contador.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		pool.allowCoreThreadTimeOut(true);
+		return new ExecutorDeTarefas(pool, false);
+	}
+
+	/*
+	 * O código compila para Java 8, então procuramos o
+	 * Executors.newVirtualThreadPerTaskExecutor por reflection.
+	 */
+	private static ExecutorService executorDeThreadsVirtuais() {
+		try {
+			Method fabrica = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) fabrica.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			/*
+			 * Método inexistente, ou existente como preview mas desabilitado
+			 * (Java 19 e 20).
+			 */
+			return null;
+		}
+	}
+
+	public boolean usaThreadsVirtuais() {
+		return threadsVirtuais;
+	}
+
+	public CompletableFuture<Void> executa(Runnable tarefa) {
+		return submete(() -> {
+			tarefa.run();
+			return null;
+		});
+	}
+
+	public <T> CompletableFuture<T> submete(Callable<T> tarefa) {
+		return inicia(tarefa).resultado;
+	}
+
+	private <T> Execucao<T> inicia(Callable<T> tarefa) {
+		Execucao<T> execucao = new Execucao<>(tarefa);
+		aguardando.incrementAndGet();
+		try {
+			executor.execute(execucao);
+		} catch (RejectedExecutionException e) {
+			aguardando.decrementAndGet();
+			throw e;
+		}
+		return execucao;
+	}
+
+	/**
+	 * Executa todas as tarefas e espera todas terminarem, devolvendo os
+	 * resultados na mesma ordem. Se alguma falhar, as outras são canceladas e
+	 * a falha é lançada.
+	 */
+	public <T> List<T> executaTodas(Collection<? extends Callable<T>> tarefas)
+			throws InterruptedException, ExecutionException {
+		List<Execucao<T>> execucoes = new ArrayList<>(tarefas.size());
+		CompletableFuture<Void> falha = new CompletableFuture<>();
+		for (Callable<T> tarefa : tarefas) {
+			if (falha.isDone())
+				break;
+			Execucao<T> execucao = inicia(tarefa);
+			execucao.resultado.whenComplete((valor, erro) -> {
+				if (erro != null)
+					falha.completeExceptionally(erro);
+			});
+			execucoes.add(execucao);
+		}
+
+		try {
+			List<T> valores = new ArrayList<>(execucoes.size());
+			for (Execucao<T> execucao : execucoes) {
+				/*
+				 * Espera esta tarefa ou a primeira falha, o que vier antes.
+				 */
+				CompletableFuture.anyOf(execucao.resultado, falha).get();
+				valores.add(execucao.resultado.get());
+			}
+			return valores;
+		} finally {
+			execucoes.forEach(Execucao::cancela);
+		}
+	}
+
+	/**
+	 * Executa as tarefas e devolve o resultado da primeira que terminar com
+	 * sucesso, cancelando as demais. Se todas falharem, lança a última falha.
+	 */
+	public <T> T executaQualquer(Collection<? extends Callable<T>> tarefas)
+			throws InterruptedException, ExecutionException {
+		if (tarefas.isEmpty())
+			throw new IllegalArgumentException("Nenhuma tarefa informada");
+
+		CompletableFuture<T> primeiro = new CompletableFuture<>();
+		AtomicInteger restantes = new AtomicInteger(tarefas.size());
+		List<Execucao<T>> execucoes = new ArrayList<>(tarefas.size());
+		for (Callable<T> tarefa : tarefas) {
+			if (primeiro.isDone())
+				break;
+			Execucao<T> execucao = inicia(tarefa);
+			execucao.resultado.whenComplete((valor, erro) -> {
+				if (erro == null)
+					primeiro.complete(valor);
+				else if (restantes.decrementAndGet() == 0)
+					primeiro.completeExceptionally(erro);
+			});
+			execucoes.add(execucao);
+		}
+
+		try {
+			return primeiro.get();
+		} finally {
+			execucoes.forEach(Execucao::cancela);
+		}
+	}
+
+	/*
+	 * Uma tarefa submetida. Guarda a thread que a está executando para que o
+	 * cancelamento possa interrompê-la; tarefas canceladas antes de começar
+	 * apenas são descartadas quando chega a vez delas.
+	 */
+	private class Execucao<T> implements Runnable {
+
+		private final Callable<T> tarefa;
+		private final CompletableFuture<T> resultado = new CompletableFuture<>();
+		private final long criada = System.nanoTime();
+		private Thread thread;
+		private boolean interrompeu;
+
+		Execucao(Callable<T> tarefa) {
+			this.tarefa = tarefa;
+		}
+
+		@Override
+		public void run() {
+			long inicio = System.nanoTime();
+			aguardando.decrementAndGet();
+			if (resultado.isDone())
+				return;
+
+			boolean interrompidaAntes = Thread.currentThread().isInterrupted();
+			synchronized (this) {
+				thread = Thread.currentThread();
+			}
+			ativas.incrementAndGet();
+			tempoTotalDeEspera.add(inicio - criada);
+			try {
+				resultado.complete(tarefa.call());
+			} catch (Throwable e) {
+				if (!resultado.isCancelled())
+					falhas.increment();
+				resultado.completeExceptionally(e);
+			} finally {
+				synchronized (this) {
+					thread = null;
+					/*
+					 * Descarta a interrupção do cancela() que a tarefa não
+					 * consumiu, para não afetar a próxima tarefa desta thread.
+					 * Com o CallerRunsPolicy a thread é de quem submeteu, então
+					 * o estado que ela tinha antes da tarefa volta, e
+					 * interrupções que não vieram do cancela() ficam.
+					 */
+					if (interrompeu && Thread.interrupted() && interrompidaAntes)
+						Thread.currentThread().interrupt();
+				}
+				long duracao = System.nanoTime() - inicio;
+				tempoTotalDeExecucao.add(duracao);
+				maiorTempoDeExecucao.accumulate(duracao);
+				ativas.decrementAndGet();
+				concluidas.increment();
+			}
+		}
+
+		synchronized void cancela() {
+			if (resultado.cancel(false) && thread != null) {
+				interrompeu = true;
+				thread.interrupt();
+			}
+		}
+	}
+
+	public Metricas getMetricas() {
+		return new Metricas(aguardando.get(), ativas.get(), concluidas.sum(), falhas.sum(), tempoTotalDeEspera.sum(),
+				tempoTotalDeExecucao.sum(), maiorTempoDeExecucao.get());
+	}
+
+	/**
+	 * Não aceita novas tarefas e espera as que já foram submetidas.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+				// continua esperando as tarefas em andamento
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Foto das métricas em um instante.
+	 */
+	public static class Metricas {
+
+		private final int aguardando;
+		private final int ativas;
+		private final long concluidas;
+		private final long falhas;
+		private final long tempoTotalDeEspera;
+		private final long tempoTotalDeExecucao;
+		private final long maiorTempoDeExecucao;
+
+		Metricas(int aguardando, int ativas, long concluidas, long falhas, long tempoTotalDeEspera,
+				long tempoTotalDeExecucao, long maiorTempoDeExecucao) {
+			this.aguardando = aguardando;
+			this.ativas = ativas;
+			this.concluidas = concluidas;
+			this.falhas = falhas;
+			this.tempoTotalDeEspera = tempoTotalDeEspera;
+			this.tempoTotalDeExecucao = tempoTotalDeExecucao;
+			this.maiorTempoDeExecucao = maiorTempoDeExecucao;
+		}
+
+		/**
+		 * Tarefas submetidas que ainda não começaram (tamanho da fila).
+		 */
+		public int getAguardando() {
+			return aguardando;
+		}
+
+		public int getAtivas() {
+			return ativas;
+		}
+
+		public long getConcluidas() {
+			return concluidas;
+		}
+
+		public long getFalhas() {
+			return falhas;
+		}
+
+		public long getTempoMedioDeEsperaNanos() {
+			return concluidas == 0 ? 0 : tempoTotalDeEspera / concluidas;
+		}
+
+		public long getTempoMedioDeExecucaoNanos() {
+			return concluidas == 0 ? 0 : tempoTotalDeExecucao / concluidas;
+		}
+
+		public long getMaiorTempoDeExecucaoNanos() {
+			return maiorTempoDeExecucao;
+		}
+
+		@Override
+		public String toString() {
+			return "aguardando=" + aguardando + ", ativas=" + ativas + ", concluidas=" + concluidas + ", falhas="
+					+ falhas + ", esperaMedia=" + getTempoMedioDeEsperaNanos() + "ns, execucaoMedia="
+					+ getTempoMedioDeExecucaoNanos() + "ns, maiorExecucao=" + maiorTempoDeExecucao + "ns";
+		}
+	}
+}
@@ -0,0 +1,327 @@
+package br.com.totusttus.testes.util;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Formatação e parse de datas sem recriar o DateTimeFormatter e sem criar
+ * Strings.
+ *
+ * O DatasTeste cria o formatador com DateTimeFormatter.ofPattern a cada uso,
+ * o que interpreta o padrão de novo toda vez. O método formatador guarda os
+ * formatadores já criados por padrão (o DateTimeFormatter é imutável e
+ * thread-safe, então pode ser compartilhado).
+ *
+ * Para os formatos fixos dd/MM/yyyy e dd/MM/yyyy HH:mm:ss há também um
+ * caminho rápido que escreve os dígitos direto em um char[], StringBuilder ou
+ * ByteBuffer informado por quem chama, e um parse que lê os dígitos direto do
+ * texto. Anos fora do intervalo 1 a 9999 caem para o DateTimeFormatter, para
+ * manter exatamente a mesma saída.
+ *
+ * O parse aceita o mesmo que o DateTimeFormatter.ofPattern, que resolve no
+ * modo ResolverStyle.SMART: um dia de 1 a 31 que não existe no mês vira o
+ * último dia do mês (31/02/2024 é lido como 29/02/2024), e 24:00:00 é a
+ * meia-noite do dia seguinte. Dia 32, mês 13 ou 23:60:00 continuam sendo
+ * erro.
+ *
+ * @author thiag
+ *
+ */
+public class FormatadorDeDatas {
+
+	public static final String PADRAO_DATA = "dd/MM/yyyy";
+	public static final String PADRAO_DATA_HORA = "dd/MM/yyyy HH:mm:ss";
+
+	public static final int TAMANHO_DATA = PADRAO_DATA.length();
+	public static final int TAMANHO_DATA_HORA = PADRAO_DATA_HORA.length();
+
+	private static final ConcurrentMap<String, DateTimeFormatter> FORMATADORES = new ConcurrentHashMap<>();
+
+	/*
+	 * Área de rascunho por thread, usada pelas versões que escrevem em
+	 * StringBuilder e ByteBuffer. Tem folga para anos com sinal e mais de
+	 * quatro dígitos, que passam pelo DateTimeFormatter.
+	 */
+	private static final ThreadLocal<char[]> RASCUNHO = ThreadLocal.withInitial(() -> new char[32]);
+
+	private static final int DIAS_DE_0000_ATE_1970 = 719468;
+	private static final int DIAS_POR_ERA = 146097;
+
+	private FormatadorDeDatas() {
+	}
+
+	/**
+	 * O mesmo que DateTimeFormatter.ofPattern(padrao), mas criado uma única vez
+	 * por padrão.
+	 */
+	public static DateTimeFormatter formatador(String padrao) {
+		return FORMATADORES.computeIfAbsent(padrao, DateTimeFormatter::ofPattern);
+	}
+
+	// ---- Formatação ----
+
+	/**
+	 * Escreve a data como dd/MM/yyyy a partir da posição informada e devolve a
+	 * posição seguinte ao último caractere escrito.
+	 */
+	public static int formataData(LocalDate data, char[] destino, int posicao) {
+		if (!anoSuportado(data.getYear()))
+			return copia(data.format(formatador(PADRAO_DATA)), destino, posicao);
+		return escreveData(data.getYear(), data.getMonthValue(), data.getDayOfMonth(), destino, posicao);
+	}
+
+	/**
+	 * Mesma coisa, recebendo a data como dias desde 01/01/1970 (o
+	 * LocalDate.toEpochDay), sem precisar criar um LocalDate.
+	 */
+	public static int formataData(long diaEpoch, char[] destino, int posicao) {
+		long civil = civilDoDiaEpoch(diaEpoch);
+		if (!anoSuportado(ano(civil)))
+			return copia(LocalDate.ofEpochDay(diaEpoch).format(formatador(PADRAO_DATA)), destino, posicao);
+		return escreveData(ano(civil), mes(civil), dia(civil), destino, posicao);
+	}
+
+	public static StringBuilder formataData(LocalDate data, StringBuilder destino) {
+		char[] rascunho = RASCUNHO.get();
+		return destino.append(rascunho, 0, formataData(data, rascunho, 0));
+	}
+
+	public static ByteBuffer formataData(LocalDate data, ByteBuffer destino) {
+		char[] rascunho = RASCUNHO.get();
+		return copiaAscii(rascunho, formataData(data, rascunho, 0), destino);
+	}
+
+	/**
+	 * Escreve a data e hora como dd/MM/yyyy HH:mm:ss e devolve a posição
+	 * seguinte ao último caractere escrito.
+	 */
+	public static int formataDataHora(LocalDateTime dataHora, char[] destino, int posicao) {
+		if (!anoSuportado(dataHora.getYear()))
+			return copia(dataHora.format(formatador(PADRAO_DATA_HORA)), destino, posicao);
+		int fim = escreveData(dataHora.getYear(), dataHora.getMonthValue(), dataHora.getDayOfMonth(), destino,
+				posicao);
+		return escreveHora(dataHora.getHour(), dataHora.getMinute(), dataHora.getSecond(), destino, fim);
+	}
+
+	/**
+	 * Mesma coisa, recebendo segundos desde 01/01/1970 00:00:00, sem fuso
+	 * horário (o LocalDateTime.toEpochSecond(ZoneOffset.UTC)).
+	 */
+	public static int formataDataHora(long segundoEpoch, char[] destino, int posicao) {
+		long diaEpoch = Math.floorDiv(segundoEpoch, 86400);
+		int segundoDoDia = Math.toIntExact(segundoEpoch - diaEpoch * 86400);
+		int fim = formataData(diaEpoch, destino, posicao);
+		return escreveHora(segundoDoDia / 3600, segundoDoDia / 60 % 60, segundoDoDia % 60, destino, fim);
+	}
+
+	public static StringBuilder formataDataHora(LocalDateTime dataHora, StringBuilder destino) {
+		char[] rascunho = RASCUNHO.get();
+		return destino.append(rascunho, 0, formataDataHora(dataHora, rascunho, 0));
+	}
+
+	public static ByteBuffer formataDataHora(LocalDateTime dataHora, ByteBuffer destino) {
+		char[] rascunho = RASCUNHO.get();
+		return copiaAscii(rascunho, formataDataHora(dataHora, rascunho, 0), destino);
+	}
+
+	/*
+	 * O yyyy é o ano da era: fora de 1 a 9999 o DateTimeFormatter escreve o
+	 * ano com sinal ou com mais dígitos, então deixamos com ele.
+	 */
+	private static boolean anoSuportado(int ano) {
+		return ano >= 1 && ano <= 9999;
+	}
+
+	private static int copia(String texto, char[] destino, int posicao) {
+		texto.getChars(0, texto.length(), destino, posicao);
+		return posicao + texto.length();
+	}
+
+	private static int escreveData(int ano, int mes, int dia, char[] destino, int posicao) {
+		doisDigitos(dia, destino, posicao);
+		destino[posicao + 2] = '/';
+		doisDigitos(mes, destino, posicao + 3);
+		destino[posicao + 5] = '/';
+		doisDigitos(ano / 100, destino, posicao + 6);
+		doisDigitos(ano % 100, destino, posicao + 8);
+		return posicao + TAMANHO_DATA;
+	}
+
+	private static int escreveHora(int hora, int minuto, int segundo, char[] destino, int posicao) {
+		destino[posicao] = ' ';
+		doisDigitos(hora, destino, posicao + 1);
+		destino[posicao + 3] = ':';
+		doisDigitos(minuto, destino, posicao + 4);
+		destino[posicao + 6] = ':';
+		doisDigitos(segundo, destino, posicao + 7);
+		return posicao + 9;
+	}
+
+	private static void doisDigitos(int valor, char[] destino, int posicao) {
+		destino[posicao] = (char) ('0' + valor / 10);
+		destino[posicao + 1] = (char) ('0' + valor % 10);
+	}
+
+	/*
+	 * Os formatos só têm dígitos, barras, espaço e dois pontos, então cada
+	 * caractere vira exatamente um byte.
+	 */
+	private static ByteBuffer copiaAscii(char[] origem, int tamanho, ByteBuffer destino) {
+		for (int i = 0; i < tamanho; i++)
+			destino.put((byte) origem[i]);
+		return destino;
+	}
+
+	// ---- Parse ----
+
+	/**
+	 * Lê uma data dd/MM/yyyy a partir da posição informada.
+	 */
+	public static LocalDate parseData(CharSequence texto, int posicao) {
+		return LocalDate.ofEpochDay(parseDiaEpoch(texto, posicao));
+	}
+
+	/**
+	 * Lê uma data dd/MM/yyyy e devolve os dias desde 01/01/1970, sem criar
+	 * nenhum objeto.
+	 */
+	public static long parseDiaEpoch(CharSequence texto, int posicao) {
+		verificaTamanho(texto, posicao, TAMANHO_DATA);
+		int dia = doisDigitos(texto, posicao);
+		separador(texto, posicao + 2, '/');
+		int mes = doisDigitos(texto, posicao + 3);
+		separador(texto, posicao + 5, '/');
+		int ano = doisDigitos(texto, posicao + 6) * 100 + doisDigitos(texto, posicao + 8);
+
+		if (mes < 1 || mes > 12)
+			throw erro(texto, posicao + 3, "Mês inválido: " + mes);
+		if (ano < 1 || dia < 1 || dia > 31)
+			throw erro(texto, posicao, "Data inválida: " + texto.subSequence(posicao, posicao + TAMANHO_DATA));
+		// Como no SMART: 30/02 e 31/04 viram o último dia do mês
+		return diaEpoch(ano, mes, Math.min(dia, diasNoMes(ano, mes)));
+	}
+
+	/**
+	 * Lê uma data e hora dd/MM/yyyy HH:mm:ss a partir da posição informada.
+	 */
+	public static LocalDateTime parseDataHora(CharSequence texto, int posicao) {
+		long segundo = parseSegundoEpoch(texto, posicao);
+		return LocalDateTime.of(LocalDate.ofEpochDay(Math.floorDiv(segundo, 86400)),
+				LocalTime.ofSecondOfDay(Math.floorMod(segundo, 86400)));
+	}
+
+	/**
+	 * Lê uma data e hora dd/MM/yyyy HH:mm:ss e devolve os segundos desde
+	 * 01/01/1970 00:00:00, sem criar nenhum objeto.
+	 */
+	public static long parseSegundoEpoch(CharSequence texto, int posicao) {
+		verificaTamanho(texto, posicao, TAMANHO_DATA_HORA);
+		long diaEpoch = parseDiaEpoch(texto, posicao);
+		separador(texto, posicao + 10, ' ');
+		int hora = doisDigitos(texto, posicao + 11);
+		separador(texto, posicao + 13, ':');
+		int minuto = doisDigitos(texto, posicao + 14);
+		separador(texto, posicao + 16, ':');
+		int segundo = doisDigitos(texto, posicao + 17);
+
+		// 24:00:00 é aceito, como no SMART, e dá a meia-noite do dia seguinte
+		if (hora > 24 || minuto > 59 || segundo > 59 || hora == 24 && minuto + segundo > 0)
+			throw erro(texto, posicao + 11,
+					"Hora inválida: " + texto.subSequence(posicao + 11, posicao + TAMANHO_DATA_HORA));
+		return diaEpoch * 86400 + hora * 3600 + minuto * 60 + segundo;
+	}
+
+	private static void verificaTamanho(CharSequence texto, int posicao, int tamanho) {
+		if (posicao < 0 || posicao + tamanho > texto.length())
+			throw erro(texto, Math.max(posicao, 0), "Texto curto demais para o formato");
+	}
+
+	private static int doisDigitos(CharSequence texto, int posicao) {
+		return digito(texto, posicao) * 10 + digito(texto, posicao + 1);
+	}
+
+	private static int digito(CharSequence texto, int posicao) {
+		char c = texto.charAt(posicao);
+		if (c < '0' || c > '9')
+			throw erro(texto, posicao, "Dígito esperado, encontrado '" + c + "'");
+		return c - '0';
+	}
+
+	private static void separador(CharSequence texto, int posicao, char esperado) {
+		if (texto.charAt(posicao) != esperado)
+			throw erro(texto, posicao, "Esperado '" + esperado + "', encontrado '" + texto.charAt(posicao) + "'");
+	}
+
+	private static DateTimeParseException erro(CharSequence texto, int posicao, String mensagem) {
+		return new DateTimeParseException(mensagem, texto, posicao);
+	}
+
+	// ---- Calendário ----
+
+	static int diasNoMes(int ano, int mes) {
+		switch (mes) {
+		case 2:
+			return bissexto(ano) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	static boolean bissexto(long ano) {
+		return (ano & 3) == 0 && (ano % 100 != 0 || ano % 400 == 0);
+	}
+
+	/**
+	 * Dias desde 01/01/1970 para a data informada, o mesmo valor do
+	 * LocalDate.of(ano, mes, dia).toEpochDay().
+	 */
+	public static long diaEpoch(int ano, int mes, int dia) {
+		long a = mes <= 2 ? ano - 1 : ano;
+		long era = Math.floorDiv(a, 400);
+		long anoDaEra = a - era * 400;
+		long diaDoAno = (153 * (mes > 2 ? mes - 3 : mes + 9) + 2) / 5 + dia - 1;
+		long diaDaEra = anoDaEra * 365 + anoDaEra / 4 - anoDaEra / 100 + diaDoAno;
+		return era * DIAS_POR_ERA + diaDaEra - DIAS_DE_0000_ATE_1970;
+	}
+
+	/*
+	 * Converte dias desde 01/01/1970 em ano, mês e dia, empacotados em um long
+	 * (ano << 16 | mes << 8 | dia) para não criar objetos. Algoritmo de
+	 * calendário civil com eras de 400 anos, começando o ano em março.
+	 */
+	static long civilDoDiaEpoch(long diaEpoch) {
+		long z = diaEpoch + DIAS_DE_0000_ATE_1970;
+		long era = Math.floorDiv(z, DIAS_POR_ERA);
+		long diaDaEra = z - era * DIAS_POR_ERA;
+		long anoDaEra = (diaDaEra - diaDaEra / 1460 + diaDaEra / 36524 - diaDaEra / 146096) / 365;
+		long diaDoAno = diaDaEra - (365 * anoDaEra + anoDaEra / 4 - anoDaEra / 100);
+		long mp = (5 * diaDoAno + 2) / 153;
+		long dia = diaDoAno - (153 * mp + 2) / 5 + 1;
+		long mes = mp < 10 ? mp + 3 : mp - 9;
+		long ano = anoDaEra + era * 400 + (mes <= 2 ? 1 : 0);
+		return ano << 16 | mes << 8 | dia;
+	}
+
+	static int ano(long civil) {
+		return (int) (civil >> 16);
+	}
+
+	static int mes(long civil) {
+		return (int) (civil >> 8) & 0xFF;
+	}
+
+	static int dia(long civil) {
+		return (int) civil & 0xFF;
+	}
+}
@@ -0,0 +1,257 @@
+package br.com.totusttus.testes.util;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Histograma de valores int: quantas vezes cada valor apareceu. É o
+ * equivalente a um groupingBy(..., counting()) sem Map<Integer, Long>.
+ *
+ * Enquanto a diferença entre o maior e o menor valor for pequena (como a
+ * quantidade de alunos de um curso), as contagens ficam em um long[] indexado
+ * pelo valor. Se os valores se espalharem demais, o histograma passa a usar
+ * uma tabela hash de int para long.
+ *
+ * @author thiag
+ *
+ */
+public class IntHistogram {
+
+	/*
+	 * Maior intervalo de valores guardado no array denso (8 MB de contagens).
+	 */
+	private static final int MAXIMO_DENSO = 1 << 20;
+
+	/*
+	 * Modo denso: contagens[valor - base].
+	 */
+	private long[] contagens;
+	private int base;
+
+	/*
+	 * Modo espalhado: tabela hash com sondagem linear; contagem zero marca
+	 * posição livre.
+	 */
+	private int[] chaves;
+	private long[] contagensEspalhadas;
+	private int distintosEspalhados;
+
+	private long total;
+	private int minimo = Integer.MAX_VALUE;
+	private int maximo = Integer.MIN_VALUE;
+
+	public void add(int valor) {
+		add(valor, 1);
+	}
+
+	public void add(int valor, long vezes) {
+		if (vezes < 0)
+			throw new IllegalArgumentException("Quantidade negativa: " + vezes);
+		if (vezes == 0)
+			return;
+		if (chaves != null)
+			addEspalhado(valor, vezes);
+		else if (cabeNoDenso(valor))
+			contagens[valor - base] += vezes;
+		else {
+			paraEspalhado();
+			addEspalhado(valor, vezes);
+		}
+		total += vezes;
+		minimo = Math.min(minimo, valor);
+		maximo = Math.max(maximo, valor);
+	}
+
+	/*
+	 * Garante que o array denso cubra o valor, crescendo se o intervalo total
+	 * continuar dentro do limite.
+	 */
+	private boolean cabeNoDenso(int valor) {
+		if (contagens == null) {
+			contagens = new long[64];
+			base = valor - 32 < valor ? valor - 32 : Integer.MIN_VALUE;
+		}
+		long deslocamento = (long) valor - base;
+		if (deslocamento >= 0 && deslocamento < contagens.length)
+			return true;
+
+		long novoMinimo = Math.min(base, (long) valor);
+		long novoMaximo = Math.max((long) base + contagens.length - 1, (long) valor);
+		long necessario = novoMaximo - novoMinimo + 1;
+		if (necessario > MAXIMO_DENSO)
+			return false;
+		long tamanho = Math.min(MAXIMO_DENSO, Math.max(necessario, 2L * contagens.length));
+		long novaBase = valor < base ? Math.max(novoMaximo - tamanho + 1, Integer.MIN_VALUE) : base;
+		long[] novas = new long[(int) tamanho];
+		System.arraycopy(contagens, 0, novas, (int) (base - novaBase), contagens.length);
+		contagens = novas;
+		base = (int) novaBase;
+		return true;
+	}
+
+	private void paraEspalhado() {
+		chaves = new int[64];
+		contagensEspalhadas = new long[64];
+		for (int i = 0; i < contagens.length; i++)
+			if (contagens[i] != 0)
+				addEspalhado(base + i, contagens[i]);
+		contagens = null;
+	}
+
+	private static int espalha(int valor) {
+		int h = valor * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private int posicao(int valor) {
+		int mascara = chaves.length - 1;
+		int i = espalha(valor) & mascara;
+		while (contagensEspalhadas[i] != 0 && chaves[i] != valor)
+			i = (i + 1) & mascara;
+		return i;
+	}
+
+	private void addEspalhado(int valor, long vezes) {
+		int i = posicao(valor);
+		if (contagensEspalhadas[i] == 0) {
+			chaves[i] = valor;
+			if (++distintosEspalhados * 2 > chaves.length) {
+				contagensEspalhadas[i] = vezes;
+				redimensiona();
+				return;
+			}
+		}
+		contagensEspalhadas[i] += vezes;
+	}
+
+	private void redimensiona() {
+		int[] chavesAntigas = chaves;
+		long[] contagensAntigas = contagensEspalhadas;
+		chaves = new int[chavesAntigas.length * 2];
+		contagensEspalhadas = new long[chavesAntigas.length * 2];
+		for (int i = 0; i < chavesAntigas.length; i++) {
+			if (contagensAntigas[i] != 0) {
+				int j = posicao(chavesAntigas[i]);
+				chaves[j] = chavesAntigas[i];
+				contagensEspalhadas[j] = contagensAntigas[i];
+			}
+		}
+	}
+
+	public void merge(IntHistogram outro) {
+		outro.forEach(this::add);
+	}
+
+	/**
+	 * Quantas vezes o valor foi adicionado.
+	 */
+	public long count(int valor) {
+		if (chaves != null) {
+			int i = posicao(valor);
+			return contagensEspalhadas[i];
+		}
+		if (contagens == null)
+			return 0;
+		long deslocamento = (long) valor - base;
+		return deslocamento >= 0 && deslocamento < contagens.length ? contagens[(int) deslocamento] : 0;
+	}
+
+	/**
+	 * Quantidade de valores adicionados, contando as repetições.
+	 */
+	public long total() {
+		return total;
+	}
+
+	public boolean isEmpty() {
+		return total == 0;
+	}
+
+	public int min() {
+		verificaVazio();
+		return minimo;
+	}
+
+	public int max() {
+		verificaVazio();
+		return maximo;
+	}
+
+	private void verificaVazio() {
+		if (total == 0)
+			throw new IllegalStateException("Histograma vazio");
+	}
+
+	public double mean() {
+		verificaVazio();
+		double soma = 0;
+		for (int valor : valores())
+			soma += (double) valor * count(valor);
+		return soma / total;
+	}
+
+	/**
+	 * O menor valor v tal que pelo menos percentil% dos valores são menores ou
+	 * iguais a v. percentile(50) é a mediana.
+	 */
+	public int percentile(double percentil) {
+		if (percentil < 0 || percentil > 100)
+			throw new IllegalArgumentException("Percentil inválido: " + percentil);
+		verificaVazio();
+		long alvo = Math.max(1, (long) Math.ceil(percentil / 100 * total));
+		long acumulado = 0;
+		for (int valor : valores()) {
+			acumulado += count(valor);
+			if (acumulado >= alvo)
+				return valor;
+		}
+		return maximo;
+	}
+
+	/**
+	 * Os valores distintos, em ordem crescente.
+	 */
+	public int[] valores() {
+		IntList valores = new IntList();
+		if (chaves != null) {
+			for (int i = 0; i < chaves.length; i++)
+				if (contagensEspalhadas[i] != 0)
+					valores.add(chaves[i]);
+			valores.sort();
+		} else if (contagens != null) {
+			for (int i = 0; i < contagens.length; i++)
+				if (contagens[i] != 0)
+					valores.add(base + i);
+		}
+		return valores.toArray();
+	}
+
+	public IntStream stream() {
+		return Arrays.stream(valores());
+	}
+
+	/**
+	 * Percorre os valores distintos em ordem crescente com as suas contagens.
+	 */
+	public void forEach(ContagemConsumer acao) {
+		for (int valor : valores())
+			acao.accept(valor, count(valor));
+	}
+
+	@FunctionalInterface
+	public interface ContagemConsumer {
+
+		void accept(int valor, long contagem);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder texto = new StringBuilder("{");
+		forEach((valor, contagem) -> {
+			if (texto.length() > 1)
+				texto.append(", ");
+			texto.append(valor).append('=').append(contagem);
+		});
+		return texto.append('}').toString();
+	}
+}
@@ -0,0 +1,136 @@
+package br.com.totusttus.testes.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Lista de int que cresce conforme a necessidade, como um ArrayList<Integer>
+ * sem o boxing: cada elemento ocupa 4 bytes em vez de uma referência mais um
+ * objeto Integer.
+ *
+ * @author thiag
+ *
+ */
+public class IntList {
+
+	private int[] elementos;
+	private int tamanho;
+
+	public IntList() {
+		this(16);
+	}
+
+	public IntList(int capacidade) {
+		if (capacidade < 0)
+			throw new IllegalArgumentException("Capacidade negativa: " + capacidade);
+		this.elementos = new int[Math.max(capacidade, 1)];
+	}
+
+	public static IntList of(int... valores) {
+		IntList lista = new IntList(valores.length);
+		lista.addAll(valores);
+		return lista;
+	}
+
+	/**
+	 * Coleta um IntStream, por exemplo cursos.stream().mapToInt(Curso::getAlunos).
+	 */
+	public static IntList of(IntStream stream) {
+		return stream.collect(IntList::new, IntList::add, IntList::addAll);
+	}
+
+	private void garanteCapacidade(int necessaria) {
+		if (necessaria > elementos.length)
+			elementos = Arrays.copyOf(elementos, Math.max(necessaria, elementos.length + (elementos.length >> 1) + 1));
+	}
+
+	public void add(int valor) {
+		if (tamanho == elementos.length)
+			garanteCapacidade(tamanho + 1);
+		elementos[tamanho++] = valor;
+	}
+
+	public void addAll(int... valores) {
+		garanteCapacidade(tamanho + valores.length);
+		System.arraycopy(valores, 0, elementos, tamanho, valores.length);
+		tamanho += valores.length;
+	}
+
+	public void addAll(IntList outra) {
+		garanteCapacidade(tamanho + outra.tamanho);
+		System.arraycopy(outra.elementos, 0, elementos, tamanho, outra.tamanho);
+		tamanho += outra.tamanho;
+	}
+
+	public int get(int indice) {
+		return elementos[verificaIndice(indice)];
+	}
+
+	public int set(int indice, int valor) {
+		int anterior = elementos[verificaIndice(indice)];
+		elementos[indice] = valor;
+		return anterior;
+	}
+
+	private int verificaIndice(int indice) {
+		if (indice < 0 || indice >= tamanho)
+			throw new IndexOutOfBoundsException("Indice: " + indice + ", tamanho: " + tamanho);
+		return indice;
+	}
+
+	public int size() {
+		return tamanho;
+	}
+
+	public boolean isEmpty() {
+		return tamanho == 0;
+	}
+
+	public void clear() {
+		tamanho = 0;
+	}
+
+	public void sort() {
+		Arrays.sort(elementos, 0, tamanho);
+	}
+
+	public void forEach(IntConsumer acao) {
+		for (int i = 0; i < tamanho; i++)
+			acao.accept(elementos[i]);
+	}
+
+	public IntStream stream() {
+		return Arrays.stream(elementos, 0, tamanho);
+	}
+
+	public int[] toArray() {
+		return Arrays.copyOf(elementos, tamanho);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof IntList))
+			return false;
+		IntList outra = (IntList) obj;
+		if (tamanho != outra.tamanho)
+			return false;
+		for (int i = 0; i < tamanho; i++)
+			if (elementos[i] != outra.elementos[i])
+				return false;
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for (int i = 0; i < tamanho; i++)
+			hash = 31 * hash + elementos[i];
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
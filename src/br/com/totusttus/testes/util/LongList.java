@@ -0,0 +1,136 @@
+package br.com.totusttus.testes.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Lista de long que cresce conforme a necessidade, como um ArrayList<Long>
+ * sem o boxing: cada elemento ocupa 8 bytes em vez de uma referência mais um
+ * objeto Long.
+ *
+ * @author thiag
+ *
+ */
+public class LongList {
+
+	private long[] elementos;
+	private int tamanho;
+
+	public LongList() {
+		this(16);
+	}
+
+	public LongList(int capacidade) {
+		if (capacidade < 0)
+			throw new IllegalArgumentException("Capacidade negativa: " + capacidade);
+		this.elementos = new long[Math.max(capacidade, 1)];
+	}
+
+	public static LongList of(long... valores) {
+		LongList lista = new LongList(valores.length);
+		lista.addAll(valores);
+		return lista;
+	}
+
+	/**
+	 * Coleta um LongStream, por exemplo cursos.stream().mapToLong(Curso::getAlunos).
+	 */
+	public static LongList of(LongStream stream) {
+		return stream.collect(LongList::new, LongList::add, LongList::addAll);
+	}
+
+	private void garanteCapacidade(int necessaria) {
+		if (necessaria > elementos.length)
+			elementos = Arrays.copyOf(elementos, Math.max(necessaria, elementos.length + (elementos.length >> 1) + 1));
+	}
+
+	public void add(long valor) {
+		if (tamanho == elementos.length)
+			garanteCapacidade(tamanho + 1);
+		elementos[tamanho++] = valor;
+	}
+
+	public void addAll(long... valores) {
+		garanteCapacidade(tamanho + valores.length);
+		System.arraycopy(valores, 0, elementos, tamanho, valores.length);
+		tamanho += valores.length;
+	}
+
+	public void addAll(LongList outra) {
+		garanteCapacidade(tamanho + outra.tamanho);
+		System.arraycopy(outra.elementos, 0, elementos, tamanho, outra.tamanho);
+		tamanho += outra.tamanho;
+	}
+
+	public long get(int indice) {
+		return elementos[verificaIndice(indice)];
+	}
+
+	public long set(int indice, long valor) {
+		long anterior = elementos[verificaIndice(indice)];
+		elementos[indice] = valor;
+		return anterior;
+	}
+
+	private int verificaIndice(int indice) {
+		if (indice < 0 || indice >= tamanho)
+			throw new IndexOutOfBoundsException("Indice: " + indice + ", tamanho: " + tamanho);
+		return indice;
+	}
+
+	public int size() {
+		return tamanho;
+	}
+
+	public boolean isEmpty() {
+		return tamanho == 0;
+	}
+
+	public void clear() {
+		tamanho = 0;
+	}
+
+	public void sort() {
+		Arrays.sort(elementos, 0, tamanho);
+	}
+
+	public void forEach(LongConsumer acao) {
+		for (int i = 0; i < tamanho; i++)
+			acao.accept(elementos[i]);
+	}
+
+	public LongStream stream() {
+		return Arrays.stream(elementos, 0, tamanho);
+	}
+
+	public long[] toArray() {
+		return Arrays.copyOf(elementos, tamanho);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof LongList))
+			return false;
+		LongList outra = (LongList) obj;
+		if (tamanho != outra.tamanho)
+			return false;
+		for (int i = 0; i < tamanho; i++)
+			if (elementos[i] != outra.elementos[i])
+				return false;
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for (int i = 0; i < tamanho; i++)
+			hash = 31 * hash + Long.hashCode(elementos[i]);
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
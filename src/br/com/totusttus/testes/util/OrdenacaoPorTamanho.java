@@ -0,0 +1,91 @@
+package br.com.totusttus.testes.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Ordenação de Strings pelo tamanho, calculando o length de cada elemento uma
+ * única vez.
+ *
+ * O Comparator.comparing(String::length) do DefaultMethodsTeste transforma o
+ * tamanho em Integer a cada comparação. Aqui os tamanhos vão para um int[] e,
+ * como costumam ser inteiros pequenos, usamos um counting sort: O(n + maior
+ * tamanho), sem comparações. Se houver Strings muito longas, caímos para um
+ * Arrays.sort de long[] com tamanho e posição juntos na mesma chave.
+ *
+ * As duas estratégias são estáveis, assim como o List.sort.
+ *
+ * @author thiag
+ *
+ */
+public class OrdenacaoPorTamanho {
+
+	/**
+	 * Comparator sem boxing, para quem precisa de um Comparator. Equivale ao
+	 * Comparator.comparingInt(String::length).
+	 */
+	public static final Comparator<String> COMPARADOR = (s1, s2) -> Integer.compare(s1.length(), s2.length());
+
+	private OrdenacaoPorTamanho() {
+	}
+
+	/**
+	 * Substituto para lista.sort(Comparator.comparing(String::length)).
+	 */
+	public static void ordena(List<String> lista) {
+		String[] ordenado = ordena(lista.toArray(new String[0]));
+		ListIterator<String> iterator = lista.listIterator();
+		for (String s : ordenado) {
+			iterator.next();
+			iterator.set(s);
+		}
+	}
+
+	/**
+	 * Devolve um novo array com as Strings ordenadas pelo tamanho.
+	 */
+	public static String[] ordena(String[] strings) {
+		int n = strings.length;
+		int[] tamanhos = new int[n];
+		int maiorTamanho = 0;
+		for (int i = 0; i < n; i++) {
+			tamanhos[i] = strings[i].length();
+			maiorTamanho = Math.max(maiorTamanho, tamanhos[i]);
+		}
+
+		if (maiorTamanho <= 2 * n + 1024)
+			return countingSort(strings, tamanhos, maiorTamanho);
+		return ordenaPorChave(strings, tamanhos);
+	}
+
+	private static String[] countingSort(String[] strings, int[] tamanhos, int maiorTamanho) {
+		int[] inicio = new int[maiorTamanho + 2];
+		for (int tamanho : tamanhos)
+			inicio[tamanho + 1]++;
+		for (int i = 1; i < inicio.length; i++)
+			inicio[i] += inicio[i - 1];
+
+		String[] ordenado = new String[strings.length];
+		for (int i = 0; i < strings.length; i++)
+			ordenado[inicio[tamanhos[i]]++] = strings[i];
+		return ordenado;
+	}
+
+	/*
+	 * Schwartzian transform com chave primitiva: tamanho nos 32 bits altos e
+	 * posição original nos baixos, o que também deixa a ordenação estável.
+	 */
+	private static String[] ordenaPorChave(String[] strings, int[] tamanhos) {
+		long[] chaves = new long[strings.length];
+		for (int i = 0; i < strings.length; i++)
+			chaves[i] = ((long) tamanhos[i] << 32) | i;
+		Arrays.sort(chaves);
+
+		String[] ordenado = new String[strings.length];
+		for (int i = 0; i < chaves.length; i++)
+			ordenado[i] = strings[(int) chaves[i]];
+		return ordenado;
+	}
+}
@@ -0,0 +1,34 @@
+package br.com.totusttus.testes.util;
+
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.util.TimeZone;
+
+/**
+ * Clock no fuso do sistema que não precisa do banco de fusos do java.time.
+ *
+ * Os now() sem argumentos usam o Clock.systemDefaultZone(), que converte o
+ * fuso padrão em ZoneId. Essa conversão inicia o ZoneRulesProvider, que
+ * procura provedores com o ServiceLoader e lê o tzdb.dat inteiro. Na primeira
+ * chamada isso custa dezenas de ms, mais que o resto de um main curto como o
+ * DatasTeste.
+ *
+ * Aqui o fuso vira um ZoneOffset fixo, com o deslocamento que o TimeZone
+ * padrão tem no momento da chamada. As datas e horas locais são as mesmas do
+ * now(). O que se perde são as regras do fuso: se o programa atravessar uma
+ * mudança de horário de verão, continua com o deslocamento antigo. Serve para
+ * programas curtos, não para servidores.
+ *
+ * @author thiag
+ *
+ */
+public final class RelogioLocal {
+
+	private RelogioLocal() {
+	}
+
+	public static Clock relogio() {
+		int deslocamento = TimeZone.getDefault().getOffset(System.currentTimeMillis()) / 1000;
+		return Clock.system(ZoneOffset.ofTotalSeconds(deslocamento));
+	}
+}
@@ -0,0 +1,279 @@
+package br.com.totusttus.testes.util;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Consumer que escreve cada elemento em uma linha, em lotes, a partir de uma
+ * thread própria.
+ *
+ * O forEach(System.out::println) pega o lock do PrintStream e faz flush a
+ * cada linha, o que serializa um parallelStream inteiro. Aqui o accept apenas
+ * coloca o texto em uma fila limitada; uma thread escritora retira vários
+ * elementos de uma vez, codifica o lote em um ByteBuffer direto reutilizado e
+ * escreve tudo no canal com uma única chamada.
+ *
+ * Quando a fila enche, o accept bloqueia até a escritora liberar espaço
+ * (backpressure), então a memória usada fica limitada.
+ *
+ * Pode ser usado de várias threads ao mesmo tempo, inclusive em
+ * parallelStream().forEach. Deve ser fechado no final, depois que nenhuma
+ * thread estiver mais enviando elementos, de preferência com
+ * try-with-resources:
+ *
+ * <pre>
+ * try (SaidaEmLote&lt;Curso&gt; saida = SaidaEmLote.saidaPadrao()) {
+ * 	cursos.parallelStream().filter(c -> c.getAlunos() > 100).forEach(saida);
+ * }
+ * </pre>
+ *
+ * @author thiag
+ *
+ */
+public class SaidaEmLote<T> implements Consumer<T>, AutoCloseable {
+
+	private static final int CAPACIDADE_DA_FILA = 8192;
+	private static final int TAMANHO_DO_LOTE = 1024;
+	private static final int TAMANHO_DO_BUFFER = 64 * 1024;
+
+	/*
+	 * Marcadores colocados na fila junto com as linhas.
+	 */
+	private static final Object FIM = new Object();
+
+	private static class PedidoDeFlush {
+		final CountDownLatch concluido = new CountDownLatch(1);
+	}
+
+	private final WritableByteChannel canal;
+	private final boolean fechaCanal;
+	private final CharsetEncoder encoder;
+	private final BlockingQueue<Object> fila;
+	private final Thread escritora;
+	private final String separador = System.lineSeparator();
+
+	/*
+	 * Threads dentro do enfileira. O close só coloca o FIM quando chega a zero.
+	 */
+	private final AtomicInteger enviando = new AtomicInteger();
+	private volatile boolean fechada;
+	private volatile IOException erro;
+
+	public SaidaEmLote(WritableByteChannel canal, boolean fechaCanal, Charset charset, int capacidadeDaFila) {
+		this.canal = canal;
+		this.fechaCanal = fechaCanal;
+		this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.fila = new ArrayBlockingQueue<>(capacidadeDaFila);
+		this.escritora = new Thread(this::escreve, "saida-em-lote");
+		this.escritora.setDaemon(true);
+		this.escritora.start();
+	}
+
+	/**
+	 * Saída padrão do processo, no charset padrão da plataforma. O close não
+	 * fecha o stdout.
+	 */
+	public static <T> SaidaEmLote<T> saidaPadrao() {
+		return new SaidaEmLote<>(Channels.newChannel(new FileOutputStream(FileDescriptor.out)), false,
+				Charset.defaultCharset(), CAPACIDADE_DA_FILA);
+	}
+
+	/**
+	 * Arquivo criado (ou sobrescrito) no caminho informado, escrito por um
+	 * FileChannel.
+	 */
+	public static <T> SaidaEmLote<T> arquivo(Path caminho, Charset charset) throws IOException {
+		FileChannel canal = FileChannel.open(caminho, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		return new SaidaEmLote<>(canal, true, charset, CAPACIDADE_DA_FILA);
+	}
+
+	@Override
+	public void accept(T elemento) {
+		enfileira(String.valueOf(elemento));
+	}
+
+	/*
+	 * A thread conta o envio e só então olha se a saída está fechada; o close
+	 * marca a saída como fechada e só então espera os envios terminarem. Assim
+	 * pelo menos um dos dois vê o outro, e nenhum item entra na fila depois do
+	 * FIM, onde a escritora não o veria: a linha se perderia e o flush ficaria
+	 * esperando para sempre.
+	 */
+	private void enfileira(Object item) {
+		verificaErro();
+		enviando.incrementAndGet();
+		try {
+			if (fechada)
+				throw new IllegalStateException("Saída já foi fechada");
+			fila.put(item);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrompido esperando espaço na fila", e);
+		} finally {
+			enviando.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Espera até que tudo o que foi enviado antes desta chamada tenha sido
+	 * escrito no canal.
+	 */
+	public void flush() {
+		PedidoDeFlush pedido = new PedidoDeFlush();
+		enfileira(pedido);
+		try {
+			pedido.concluido.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrompido esperando o flush", e);
+		}
+		verificaErro();
+	}
+
+	/**
+	 * Escreve o que ainda está na fila, encerra a thread escritora e, se for o
+	 * caso, fecha o canal. Chamadas repetidas não fazem nada. Um accept ou
+	 * flush que chegar durante o close ou é escrito antes do fim, ou lança
+	 * IllegalStateException.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (fechada)
+				return;
+			fechada = true;
+		}
+		/*
+		 * Quem já passou pela verificação pode estar bloqueado com a fila
+		 * cheia; a escritora continua esvaziando a fila até o FIM.
+		 */
+		while (enviando.get() != 0)
+			Thread.yield();
+		boolean interrompida = false;
+		for (;;) {
+			try {
+				fila.put(FIM);
+				break;
+			} catch (InterruptedException e) {
+				interrompida = true;
+			}
+		}
+		try {
+			escritora.join();
+		} catch (InterruptedException e) {
+			interrompida = true;
+		}
+		if (interrompida)
+			Thread.currentThread().interrupt();
+		if (fechaCanal) {
+			try {
+				canal.close();
+			} catch (IOException e) {
+				if (erro == null)
+					erro = e;
+			}
+		}
+		verificaErro();
+	}
+
+	private void verificaErro() {
+		IOException e = erro;
+		if (e != null)
+			throw new UncheckedIOException("Falha escrevendo a saída", e);
+	}
+
+	/*
+	 * Laço da thread escritora.
+	 */
+	private void escreve() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_DO_BUFFER);
+		StringBuilder texto = new StringBuilder();
+		List<Object> lote = new ArrayList<>(TAMANHO_DO_LOTE);
+		boolean terminou = false;
+
+		while (!terminou) {
+			try {
+				lote.add(fila.take());
+			} catch (InterruptedException e) {
+				/*
+				 * Só o close encerra a escritora; ignoramos interrupções para
+				 * não perder linhas.
+				 */
+				continue;
+			}
+			fila.drainTo(lote, TAMANHO_DO_LOTE - 1);
+
+			for (Object item : lote) {
+				if (item == FIM) {
+					terminou = true;
+				} else if (item instanceof PedidoDeFlush) {
+					descarrega(texto, buffer);
+					((PedidoDeFlush) item).concluido.countDown();
+				} else {
+					texto.append((String) item).append(separador);
+				}
+			}
+			lote.clear();
+			descarrega(texto, buffer);
+		}
+	}
+
+	/*
+	 * Codifica o texto acumulado no buffer direto e escreve no canal, quantas
+	 * vezes for necessário. Depois de um erro, só descarta o texto.
+	 */
+	private void descarrega(StringBuilder texto, ByteBuffer buffer) {
+		if (texto.length() == 0)
+			return;
+		try {
+			if (erro == null) {
+				CharBuffer caracteres = CharBuffer.wrap(texto);
+				encoder.reset();
+				CoderResult resultado;
+				do {
+					resultado = encoder.encode(caracteres, buffer, true);
+					if (resultado.isError())
+						resultado.throwException();
+					escreveBuffer(buffer);
+				} while (resultado.isOverflow());
+				while (encoder.flush(buffer).isOverflow())
+					escreveBuffer(buffer);
+				escreveBuffer(buffer);
+			}
+		} catch (IOException e) {
+			erro = e;
+		} finally {
+			texto.setLength(0);
+			buffer.clear();
+		}
+	}
+
+	private void escreveBuffer(ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			canal.write(buffer);
+		buffer.clear();
+	}
+}
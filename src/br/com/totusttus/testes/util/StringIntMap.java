@@ -0,0 +1,162 @@
+package br.com.totusttus.testes.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Mapa de String para int com endereçamento aberto (linear probing).
+ *
+ * As chaves e os valores ficam em dois arrays paralelos, então não há um
+ * objeto Entry nem um Integer por elemento como em um HashMap<String,
+ * Integer>.
+ *
+ * Não é thread-safe. Em streams paralelos, cada worker usa o seu próprio mapa
+ * e eles são combinados no final com o mergeAll.
+ *
+ * @author thiag
+ *
+ */
+public class StringIntMap {
+
+	private static final int CAPACIDADE_INICIAL = 16;
+	private static final float CARGA_MAXIMA = 0.5f;
+
+	private String[] chaves;
+	private int[] valores;
+	private int tamanho;
+	private int limite;
+
+	public StringIntMap() {
+		this(CAPACIDADE_INICIAL);
+	}
+
+	public StringIntMap(int capacidadeEsperada) {
+		int capacidade = Integer.highestOneBit(Math.max((int) (capacidadeEsperada / CARGA_MAXIMA), 2) - 1) << 1;
+		aloca(capacidade);
+	}
+
+	private void aloca(int capacidade) {
+		chaves = new String[capacidade];
+		valores = new int[capacidade];
+		limite = (int) (capacidade * CARGA_MAXIMA);
+	}
+
+	/*
+	 * Espalha os bits do hash, pois String.hashCode concentra a variação nos
+	 * bits baixos quando as chaves são parecidas.
+	 */
+	private static int espalha(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private int posicao(String chave) {
+		int mascara = chaves.length - 1;
+		int i = espalha(chave.hashCode()) & mascara;
+		while (chaves[i] != null && !chaves[i].equals(chave))
+			i = (i + 1) & mascara;
+		return i;
+	}
+
+	public int size() {
+		return tamanho;
+	}
+
+	public boolean isEmpty() {
+		return tamanho == 0;
+	}
+
+	public boolean containsKey(String chave) {
+		return chaves[posicao(chave)] != null;
+	}
+
+	public int get(String chave) {
+		return getOrDefault(chave, 0);
+	}
+
+	public int getOrDefault(String chave, int padrao) {
+		int i = posicao(chave);
+		return chaves[i] != null ? valores[i] : padrao;
+	}
+
+	public void put(String chave, int valor) {
+		merge(chave, valor, (antigo, novo) -> novo);
+	}
+
+	/**
+	 * Mesma ideia do Map.merge: se a chave não existe, guarda o valor; se já
+	 * existe, guarda o resultado da função de merge.
+	 */
+	public int merge(String chave, int valor, IntBinaryOperator funcaoDeMerge) {
+		if (chave == null)
+			throw new NullPointerException("Chave nula");
+
+		int i = posicao(chave);
+		if (chaves[i] != null) {
+			valores[i] = funcaoDeMerge.applyAsInt(valores[i], valor);
+			return valores[i];
+		}
+
+		chaves[i] = chave;
+		valores[i] = valor;
+		if (++tamanho > limite)
+			redimensiona();
+		return valor;
+	}
+
+	/**
+	 * Junta todas as entradas de outro mapa neste, usando a função de merge
+	 * nas chaves repetidas.
+	 */
+	public StringIntMap mergeAll(StringIntMap outro, IntBinaryOperator funcaoDeMerge) {
+		outro.forEach((chave, valor) -> merge(chave, valor, funcaoDeMerge));
+		return this;
+	}
+
+	private void redimensiona() {
+		String[] chavesAntigas = chaves;
+		int[] valoresAntigos = valores;
+		aloca(chaves.length * 2);
+		for (int i = 0; i < chavesAntigas.length; i++) {
+			if (chavesAntigas[i] != null) {
+				int j = posicao(chavesAntigas[i]);
+				chaves[j] = chavesAntigas[i];
+				valores[j] = valoresAntigos[i];
+			}
+		}
+	}
+
+	public void forEach(ObjIntConsumer<String> acao) {
+		for (int i = 0; i < chaves.length; i++)
+			if (chaves[i] != null)
+				acao.accept(chaves[i], valores[i]);
+	}
+
+	public void clear() {
+		Arrays.fill(chaves, null);
+		tamanho = 0;
+	}
+
+	/**
+	 * Cópia como Map<String, Integer>, para quem precisar da interface Map.
+	 */
+	public Map<String, Integer> toMap() {
+		Map<String, Integer> mapa = new HashMap<>(tamanho * 2);
+		forEach(mapa::put);
+		return mapa;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		forEach((chave, valor) -> {
+			if (builder.length() > 1)
+				builder.append(", ");
+			builder.append(chave).append('=').append(valor);
+		});
+		return builder.append('}').toString();
+	}
+}
@@ -0,0 +1,255 @@
+package br.com.totusttus.testes.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+
+/**
+ * Seleção dos K maiores (ou menores) elementos por uma chave int, sem ordenar
+ * a coleção inteira.
+ *
+ * Mantém um heap de no máximo K posições: para os maiores, a raiz é o menor
+ * dos K guardados, e um novo elemento só entra se for maior que ela. O custo é
+ * O(n log K) em vez do O(n log n) do sort, e as chaves ficam em um int[], sem
+ * boxing. Os arrays começam pequenos e crescem até K conforme os elementos
+ * chegam, então um K maior que a coleção (até Integer.MAX_VALUE, "todos")
+ * só ocupa a memória dos elementos guardados.
+ *
+ * Dois TopK podem ser juntados com o merge, o que permite calcular resultados
+ * parciais em paralelo (veja o collector).
+ *
+ * @author thiag
+ *
+ */
+public class TopK<T> {
+
+	private static final int CAPACIDADE_INICIAL = 16;
+
+	private final boolean menores;
+	private final int k;
+	private int[] chaves;
+	/*
+	 * Junto com cada chave guardamos ou um objeto (valores) ou uma posição de
+	 * array (posicoes), nunca os dois.
+	 */
+	private Object[] valores;
+	private int[] posicoes;
+	private int tamanho;
+
+	private TopK(boolean menores, int k, int[] chaves, Object[] valores, int[] posicoes, int tamanho) {
+		this.menores = menores;
+		this.k = k;
+		this.chaves = chaves;
+		this.valores = valores;
+		this.posicoes = posicoes;
+		this.tamanho = tamanho;
+	}
+
+	/*
+	 * capacidade é o tamanho inicial dos arrays: quem já sabe quantos
+	 * elementos vêm (os indices) aloca tudo de uma vez.
+	 */
+	private TopK(int k, int capacidade, boolean menores, boolean primitivo) {
+		this(menores, verificaK(k), new int[capacidade], primitivo ? null : new Object[capacidade],
+				primitivo ? new int[capacidade] : null, 0);
+	}
+
+	private TopK(int k, boolean menores, boolean primitivo) {
+		this(k, Math.min(verificaK(k), CAPACIDADE_INICIAL), menores, primitivo);
+	}
+
+	private static int verificaK(int k) {
+		if (k < 0)
+			throw new IllegalArgumentException("K negativo: " + k);
+		return k;
+	}
+
+	public static <T> TopK<T> maiores(int k) {
+		return new TopK<>(k, false, false);
+	}
+
+	public static <T> TopK<T> menores(int k) {
+		return new TopK<>(k, true, false);
+	}
+
+	public void add(int chave, T valor) {
+		int i = posicaoDeEntrada(chave);
+		if (i >= 0)
+			valores[i] = valor;
+		ajusta(i);
+	}
+
+	private void add(int chave, int posicao) {
+		int i = posicaoDeEntrada(chave);
+		if (i >= 0)
+			posicoes[i] = posicao;
+		ajusta(i);
+	}
+
+	/*
+	 * Decide onde a nova chave entra: no final do heap enquanto ele não está
+	 * cheio, ou no lugar da raiz se ela for pior que a nova chave. Devolve -1
+	 * quando o elemento deve ser descartado.
+	 */
+	private int posicaoDeEntrada(int chave) {
+		if (tamanho < k) {
+			if (tamanho == chaves.length)
+				cresce();
+			chaves[tamanho] = chave;
+			return tamanho++;
+		}
+		if (tamanho > 0 && pior(chaves[0], chave)) {
+			chaves[0] = chave;
+			return 0;
+		}
+		return -1;
+	}
+
+	private void cresce() {
+		int capacidade = (int) Math.min(k, chaves.length + (chaves.length >> 1) + 1L);
+		chaves = Arrays.copyOf(chaves, capacidade);
+		if (valores != null)
+			valores = Arrays.copyOf(valores, capacidade);
+		else
+			posicoes = Arrays.copyOf(posicoes, capacidade);
+	}
+
+	private void ajusta(int i) {
+		if (i == 0)
+			desce(0, tamanho);
+		else if (i > 0)
+			sobe(i);
+	}
+
+	/*
+	 * true se a chave a é "pior" que a chave b, isto é, deve ficar mais perto
+	 * da raiz e sair primeiro.
+	 */
+	private boolean pior(int a, int b) {
+		return menores ? a > b : a < b;
+	}
+
+	private void sobe(int i) {
+		while (i > 0) {
+			int pai = (i - 1) >>> 1;
+			if (!pior(chaves[i], chaves[pai]))
+				break;
+			troca(i, pai);
+			i = pai;
+		}
+	}
+
+	private void desce(int i, int limite) {
+		while (true) {
+			int filho = 2 * i + 1;
+			if (filho >= limite)
+				break;
+			if (filho + 1 < limite && pior(chaves[filho + 1], chaves[filho]))
+				filho++;
+			if (!pior(chaves[filho], chaves[i]))
+				break;
+			troca(i, filho);
+			i = filho;
+		}
+	}
+
+	private void troca(int i, int j) {
+		int chave = chaves[i];
+		chaves[i] = chaves[j];
+		chaves[j] = chave;
+		if (valores != null) {
+			Object valor = valores[i];
+			valores[i] = valores[j];
+			valores[j] = valor;
+		} else {
+			int posicao = posicoes[i];
+			posicoes[i] = posicoes[j];
+			posicoes[j] = posicao;
+		}
+	}
+
+	/*
+	 * Heapsort do próprio heap: a raiz (o pior) vai para o final a cada passo,
+	 * então os arrays terminam ordenados do melhor para o pior. Destrói o
+	 * heap, por isso só é chamado sobre cópias.
+	 */
+	private void ordena() {
+		for (int fim = tamanho - 1; fim > 0; fim--) {
+			troca(0, fim);
+			desce(0, fim);
+		}
+	}
+
+	private TopK<T> copia() {
+		return new TopK<>(menores, k, Arrays.copyOf(chaves, tamanho),
+				valores == null ? null : Arrays.copyOf(valores, tamanho),
+				posicoes == null ? null : Arrays.copyOf(posicoes, tamanho), tamanho);
+	}
+
+	@SuppressWarnings("unchecked")
+	public TopK<T> merge(TopK<T> outro) {
+		for (int i = 0; i < outro.tamanho; i++)
+			add(outro.chaves[i], (T) outro.valores[i]);
+		return this;
+	}
+
+	public int size() {
+		return tamanho;
+	}
+
+	/**
+	 * Os elementos guardados, do melhor para o pior (do maior para o menor no
+	 * caso de maiores). Não altera o TopK.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> toList() {
+		TopK<T> copia = copia();
+		copia.ordena();
+		List<T> lista = new ArrayList<>(tamanho);
+		for (int i = 0; i < tamanho; i++)
+			lista.add((T) copia.valores[i]);
+		return Collections.unmodifiableList(lista);
+	}
+
+	/**
+	 * Collector com os K maiores elementos pela chave. Funciona em
+	 * parallelStream: cada worker tem o seu TopK e eles são juntados no final.
+	 */
+	public static <T> Collector<T, ?, List<T>> maiores(int k, ToIntFunction<? super T> chave) {
+		return collector(k, chave, false);
+	}
+
+	public static <T> Collector<T, ?, List<T>> menores(int k, ToIntFunction<? super T> chave) {
+		return collector(k, chave, true);
+	}
+
+	private static <T> Collector<T, ?, List<T>> collector(int k, ToIntFunction<? super T> chave, boolean menores) {
+		return Collector.<T, TopK<T>, List<T>>of(() -> new TopK<>(k, menores, false),
+				(top, elemento) -> top.add(chave.applyAsInt(elemento), elemento), TopK::merge, TopK::toList,
+				Collector.Characteristics.UNORDERED);
+	}
+
+	/**
+	 * Forma primitiva: as posições das K maiores chaves do intervalo
+	 * [inicio, fim) do array, da maior para a menor. Não cria nenhum objeto
+	 * por elemento.
+	 */
+	public static int[] indicesDosMaiores(int[] chaves, int inicio, int fim, int k) {
+		return indices(chaves, inicio, fim, k, false);
+	}
+
+	public static int[] indicesDosMenores(int[] chaves, int inicio, int fim, int k) {
+		return indices(chaves, inicio, fim, k, true);
+	}
+
+	private static int[] indices(int[] chaves, int inicio, int fim, int k, boolean menores) {
+		TopK<Void> top = new TopK<>(k, Math.min(k, Math.max(fim - inicio, 0)), menores, true);
+		for (int i = inicio; i < fim; i++)
+			top.add(chaves[i], i);
+		top.ordena();
+		return Arrays.copyOf(top.posicoes, top.tamanho);
+	}
+}
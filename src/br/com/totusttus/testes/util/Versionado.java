@@ -0,0 +1,17 @@
+package br.com.totusttus.testes.util;
+
+/**
+ * Coleção que conta as próprias alterações. A versão só cresce: qualquer
+ * inclusão ou remoção gera uma versão nova, então dois resultados calculados
+ * na mesma versão são sempre iguais.
+ *
+ * É o que o CacheDeResultados usa para saber se um resultado guardado ainda
+ * vale.
+ *
+ * @author thiag
+ *
+ */
+public interface Versionado {
+
+	long getVersao();
+}